@@ -0,0 +1,44 @@
+package benchmarks;/*
+ * benchmarks.CoupleWorldStepBenchmark.java
+ *
+ * Same measurement as WorldStepBenchmark, restricted to the couple-heavy
+ * levels.  Every couple adds an NpcRope of Blob bodies held together by
+ * DistanceJoints, and these levels are the ones that drop frames, so we keep
+ * their results in a separate table.  The parameter list is the set of levels
+ * with five or more NPC pairs; override it with -p level=... if levels change.
+ */
+
+import com.badlogic.gdx.physics.box2d.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import root.GameMode;
+
+/**
+ * world.step cost for levels dominated by rope bodies and joints.
+ */
+@State(Scope.Benchmark)
+public class CoupleWorldStepBenchmark {
+    /**
+     * The level id from levels.json
+     */
+    @Param({"11", "12", "13", "16", "17", "18", "20"})
+    public int level;
+
+    /**
+     * The physics world for the level
+     */
+    private World world;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        world = HeadlessLevels.buildLevel(level);
+    }
+
+    @Benchmark
+    public void step() {
+        world.step(GameMode.WORLD_STEP, GameMode.WORLD_VELOC, GameMode.WORLD_POSIT);
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;/*
+ * benchmarks.HeadlessLevels.java
+ *
+ * Shared setup for the physics benchmarks.  JMH forks a fresh JVM for every
+ * parameter set, so each fork boots the headless backend once, loads all of
+ * the game content once, and then builds a single level through the same
+ * code path GDXRoot uses (GameMode.setLevel, initializeContent, reset).
+ */
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.physics.box2d.World;
+import entities.Level;
+import root.GameMode;
+import root.HeadlessCanvas;
+import root.SimulationRunner;
+
+/**
+ * Lazily booted headless game, shared by every benchmark in a fork.
+ */
+public class HeadlessLevels {
+    /**
+     * Asset manager holding all game content (null until booted)
+     */
+    private static AssetManager manager;
+    /**
+     * Game mode used to build levels (null until booted)
+     */
+    private static GameMode gameMode;
+
+    /**
+     * Boots the headless backend and loads all game content, if not done already.
+     */
+    private static synchronized void boot() {
+        if (gameMode != null) {
+            return;
+        }
+        Gdx.gl = Gdx.gl20 = HeadlessCanvas.createNoopGL();
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        new HeadlessApplication(new ApplicationAdapter() {
+        }, config);
+        manager = SimulationRunner.createAssetManager();
+        gameMode = SimulationRunner.loadGameMode(manager);
+    }
+
+    /**
+     * Builds the given level and returns its physics world.
+     * <p>
+     * The world is owned by the shared game mode, and is disposed the next time a
+     * level is built.
+     *
+     * @param id The level id from levels.json
+     * @return the physics world for the level
+     */
+    public static World buildLevel(int id) {
+        boot();
+        Level level = SimulationRunner.startLevel(gameMode, manager, id);
+        if (level == null) {
+            throw new IllegalArgumentException("No level with id " + id);
+        }
+        return gameMode.getWorld();
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;/*
+ * benchmarks.WorldStepBenchmark.java
+ *
+ * Measures the cost of one fixed physics step for every shipped level.  The
+ * world is built exactly as it is in game, then stepped with the same
+ * constants GameMode.postUpdate uses.  Run with the gc profiler (the default
+ * in build.gradle) to get allocations per step alongside the timings.
+ */
+
+import com.badlogic.gdx.physics.box2d.World;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import root.GameMode;
+
+/**
+ * world.step cost per level in levels.json.
+ */
+@State(Scope.Benchmark)
+public class WorldStepBenchmark {
+    /**
+     * The level id from levels.json
+     */
+    @Param({"1", "2", "3", "4", "5", "6", "7", "8", "9", "10",
+            "11", "12", "13", "14", "15", "16", "17", "18", "19", "20"})
+    public int level;
+
+    /**
+     * The physics world for the level
+     */
+    private World world;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUp() {
+        world = HeadlessLevels.buildLevel(level);
+    }
+
+    @Benchmark
+    public void step() {
+        world.step(GameMode.WORLD_STEP, GameMode.WORLD_VELOC, GameMode.WORLD_POSIT);
+    }
+}
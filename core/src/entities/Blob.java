@@ -2,6 +2,7 @@ package entities;
 
 import com.badlogic.gdx.math.Vector2;
 import obstacle.WheelObstacle;
+import util.CollisionType;
 
 public class Blob extends WheelObstacle {
     public static final String BLOB_NAME = "blob";
@@ -11,6 +12,7 @@ public class Blob extends WheelObstacle {
     public Blob(float x, float y, float radius, int id) {
         super(x, y, radius);
         setName(BLOB_NAME);
+        setCollisionType(CollisionType.BLOB);
         this.id = id;
         norm = new Vector2();
     }
@@ -19,6 +19,7 @@ public class Couple extends ComplexObstacle {
     private NpcRope trampoline;
     private final Stone leftTile;
     private final Stone rightTile;
+    private final int id;
 
     public Couple(float x1, float y1, float x2, float y2, String type1, String type2, TextureRegion avatar1, TextureRegion avatar2, Vector2 drawScale,
                   Stone leftTile, Stone rightTile, int id) {
@@ -48,9 +49,19 @@ public class Couple extends ComplexObstacle {
         this.bodies.add(trampoline);
         this.leftTile = leftTile;
         this.rightTile = rightTile;
+        this.id = id;
         setName("couples" + id);
     }
 
+    /**
+     * Returns the id shared by this couple and its rope
+     *
+     * @return the id shared by this couple and its rope
+     */
+    public int getId() {
+        return id;
+    }
+
     /**
      * @param x
      * @param y
@@ -59,7 +70,7 @@ public class Couple extends ComplexObstacle {
     public NpcPerson createAvatar(float x, float y, TextureRegion t, boolean l) {
         float dWidth = t instanceof FilmStrip ? t.getRegionWidth() / drawScale.x / 2.2f : t.getRegionWidth() / drawScale.x;
         float dHeight = t.getRegionHeight() / drawScale.y;
-        NpcPerson avatar = new NpcPerson(x, y, dWidth, dHeight, "npc", "npcSensor", l);
+        NpcPerson avatar = new NpcPerson(x, y, dWidth, dHeight, "npc", l);
         avatar.setAttached(true);
         avatar.setBodyType(BodyDef.BodyType.KinematicBody);
         avatar.setFriction(2f);
@@ -1,6 +1,7 @@
 package entities;
 
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
@@ -8,6 +9,7 @@ import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
 import obstacle.PolygonObstacle;
 import root.GameCanvas;
+import util.CollisionType;
 import util.FilmStrip;
 
 public class Gate extends PolygonObstacle {
@@ -36,19 +38,32 @@ public class Gate extends PolygonObstacle {
         sensorDef.filter.maskBits = getFilterData().maskBits;
         sensorDef.filter.categoryBits = getFilterData().categoryBits;
         sensorFixture = body.createFixture(sensorDef);
-        sensorFixture.setUserData("gatesensor");
+        sensorFixture.setUserData(CollisionType.GATE_SENSOR);
         return true;
     }
 
     public void draw(GameCanvas canvas) {
-        canvas.draw(texture, Color.WHITE, 0, 0, getX() * drawScale.x - texture.getRegionWidth() * 0.7f / 2f,
-                getY() * drawScale.y - 20f, getAngle(), 0.7f, 0.7f);
+        canvas.draw(texture, Color.WHITE, 0, 0, getDrawX() * drawScale.x - texture.getRegionWidth() * 0.7f / 2f,
+                getDrawY() * drawScale.y - 20f, getDrawAngle(), 0.7f, 0.7f);
     }
 
-
-    public void drawDebug(GameCanvas canvas) {
-        super.drawDebug(canvas);
-        canvas.drawPhysics(sensorShape, Color.RED, getX(), getY(), getAngle(), drawScale.x, drawScale.y);
+    /**
+     * Stores the bounding box of the gate in out.
+     * <p>
+     * The door is drawn much larger than the body of the gate, so the box is
+     * widened to cover the door as well.
+     *
+     * @param out The rectangle to store the result
+     * @return the rectangle out, for chaining
+     */
+    public Rectangle getBounds(Rectangle out) {
+        super.getBounds(out);
+        float left = getX() - texture.getRegionWidth() * 0.7f / 2f / drawScale.x;
+        float bottom = getY() - 20f / drawScale.y;
+        out.merge(left, bottom);
+        out.merge(left + texture.getRegionWidth() * 0.7f / drawScale.x,
+                bottom + texture.getRegionHeight() * 0.7f / drawScale.y);
+        return out;
     }
 
 }
@@ -5,13 +5,13 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import obstacle.CapsuleObstacle;
 import root.GameCanvas;
+import util.CollisionType;
 
 public class Item extends CapsuleObstacle {
     // Amount to shrink item by for fixture
     private static final float ITEM_VSHRINK = 0.01f;
     private static final float ITEM_HSHRINK = 0.01f;
     private static final float ITEM_SENSOR_SCALE = 0.09f;
-    private final String sensorName;
     private CircleShape sensorShape;
     private FixtureDef sensorDef;
     private Fixture sensorFixture;
@@ -25,10 +25,19 @@ public class Item extends CapsuleObstacle {
         super(x, y, width * ITEM_HSHRINK, height * ITEM_VSHRINK);
         this.setBodyType(BodyDef.BodyType.StaticBody);
         this.setPosition(x + this.getWidth() / 2 + 0.15f, y + this.getHeight() / 2);
-        this.sensorName = "item_sensor";
         this.id = id;
         this.state = ItemState.NOT_COLLECTED;
         setName(name);
+        setCollisionType(CollisionType.ITEM);
+    }
+
+    /**
+     * Returns the id of this item in its level
+     *
+     * @return the id of this item in its level
+     */
+    public int getId() {
+        return id;
     }
 
     public void setState(boolean isCollected) {
@@ -43,11 +52,11 @@ public class Item extends CapsuleObstacle {
 
     public void draw(GameCanvas canvas) {
         if (this.state != ItemState.COLLECTED) {
-            canvas.draw(texture, Color.WHITE, origin.x, origin.y, getX() * drawScale.x,
-                    getY() * drawScale.y, getAngle(), 0.2f, 0.2f);
+            canvas.draw(texture, Color.WHITE, origin.x, origin.y, getDrawX() * drawScale.x,
+                    getDrawY() * drawScale.y, getDrawAngle(), 0.2f, 0.2f);
         } else {
             canvas.draw(texture, Color.WHITE, origin.x, origin.y, origin.x,
-                    origin.y, getAngle(), 0.2f, 0.2f);
+                    origin.y, getDrawAngle(), 0.2f, 0.2f);
         }
     }
 
@@ -66,17 +75,9 @@ public class Item extends CapsuleObstacle {
         sensorShape.setRadius(ITEM_SENSOR_SCALE * getTexture().getRegionWidth() / drawScale.x);
         sensorDef.shape = sensorShape;
         sensorFixture = body.createFixture(sensorDef);
-        sensorFixture.setUserData(getSensorName());
+        sensorFixture.setUserData(CollisionType.ITEM_SENSOR);
 
         return true;
     }
 
-    private String getSensorName() {
-        return sensorName;
-    }
-
-    public void drawDebug(GameCanvas canvas) {
-        super.drawDebug(canvas);
-        canvas.drawPhysics(sensorShape, Color.RED, getX(), getY(), drawScale.x, drawScale.y);
-    }
 }
@@ -3,8 +3,10 @@ package entities;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
-import com.badlogic.gdx.utils.JsonWriter;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -13,6 +15,15 @@ import java.util.List;
  * a single level
  */
 public class Level implements Json.Serializable {
+    /**
+     * The code of a normal tile in a compiled level
+     */
+    static final int NORMAL = 0;
+    /**
+     * The code of a spike tile in a compiled level
+     */
+    static final int SPIKES = 1;
+
     private final List<Tile> tiles;
     private final List<Tile> spikes;
     private final Vector2 exitPos;
@@ -59,8 +70,8 @@ public class Level implements Json.Serializable {
         //Game Tiles
         JsonValue tilesData = jsonData.get("tiles");
         for (JsonValue tileJsonValue : tilesData) {
-            String tileJson = tileJsonValue.toJson(JsonWriter.OutputType.minimal);
-            Tile tile = json.fromJson(Tile.class, tileJson);
+            Tile tile = new Tile();
+            tile.read(json, tileJsonValue);
             if (tile.getType().equals("spikes")) {
                 spikes.add(tile);
             } else if (tile.getType().equals("normal")) {
@@ -79,8 +90,8 @@ public class Level implements Json.Serializable {
         // Couple Positions
         JsonValue npcsData = jsonData.get("npc");
         for (JsonValue npcData : npcsData) {
-            String npcJson = npcData.toJson(JsonWriter.OutputType.minimal);
-            NpcData npc = json.fromJson(NpcData.class, npcJson);
+            NpcData npc = new NpcData();
+            npc.read(json, npcData);
             this.npcData.add(npc);
         }
 
@@ -96,12 +107,95 @@ public class Level implements Json.Serializable {
 
         JsonValue textBoxData = jsonData.get("text");
         for (JsonValue textData : textBoxData) {
-            String textJson = textData.toJson(JsonWriter.OutputType.minimal);
-            TextBox text = json.fromJson(TextBox.class, textJson);
+            TextBox text = new TextBox();
+            text.read(json, textData);
             this.text.add(text);
         }
     }
 
+    /**
+     * Reads this level from a compiled level (see LevelFormat).
+     * <p>
+     * The sections are the type, the player and exit positions, the tiles, the
+     * npcs, the items and the text boxes.  Each list is a count followed by its
+     * entries.
+     *
+     * @param buffer The compiled level, positioned after the header
+     */
+    void read(ByteBuffer buffer) {
+        type = LevelFormat.readString(buffer);
+        playerPos.set(buffer.getFloat(), buffer.getFloat());
+        exitPos.set(buffer.getFloat(), buffer.getFloat());
+
+        int count = buffer.getInt();
+        for (int ii = 0; ii < count; ii++) {
+            Tile tile = new Tile();
+            tile.read(buffer);
+            if (tile.getType().equals("spikes")) {
+                spikes.add(tile);
+            } else {
+                tiles.add(tile);
+            }
+        }
+
+        count = buffer.getInt();
+        for (int ii = 0; ii < count; ii++) {
+            NpcData npc = new NpcData();
+            npc.read(buffer);
+            npcData.add(npc);
+        }
+
+        count = buffer.getInt();
+        for (int ii = 0; ii < count; ii++) {
+            items.add(new float[]{buffer.getFloat(), buffer.getFloat()});
+        }
+
+        count = buffer.getInt();
+        for (int ii = 0; ii < count; ii++) {
+            TextBox box = new TextBox();
+            box.read(buffer);
+            text.add(box);
+        }
+    }
+
+    /**
+     * Writes this level to a compiled level (see LevelFormat).
+     *
+     * @param out The compiled level, positioned after the header
+     * @throws IOException if the level cannot be written
+     */
+    void write(DataOutput out) throws IOException {
+        LevelFormat.writeString(out, type);
+        out.writeFloat(playerPos.x);
+        out.writeFloat(playerPos.y);
+        out.writeFloat(exitPos.x);
+        out.writeFloat(exitPos.y);
+
+        out.writeInt(tiles.size() + spikes.size());
+        for (Tile tile : tiles) {
+            tile.write(out);
+        }
+        for (Tile tile : spikes) {
+            tile.write(out);
+        }
+
+        out.writeInt(npcData.size());
+        for (NpcData npc : npcData) {
+            npc.write(out);
+        }
+
+        out.writeInt(items.size());
+        for (float[] item : items) {
+            out.writeFloat(item[0]);
+            out.writeFloat(item[1]);
+        }
+
+        out.writeInt(text.size());
+        for (TextBox box : text) {
+            box.write(out);
+        }
+    }
+
     /**
      * @return the tiles for the level
      */
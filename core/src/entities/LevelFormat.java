@@ -0,0 +1,204 @@
+/*
+ * LevelFormat.java
+ *
+ * Levels are authored as JSON, but reading JSON means building a tree of values
+ * and then walking it by name.  The build compiles each level into a flat binary
+ * file among its generated assets (not in the source tree), and the game reads
+ * that instead when it is there.
+ *
+ * A compiled level is a header, which holds the checksum of the JSON it was
+ * compiled from, followed by one section per kind of data: the player and exit,
+ * the tiles, the npcs, the items and the text boxes.  Each section is a count
+ * followed by the entries, and each entry is its ints (kinds and flags)
+ * followed by its floats.  Strings are an int byte count followed by UTF-8
+ * bytes.  Everything is big-endian, which is what both DataOutputStream and a
+ * fresh ByteBuffer use.
+ */
+package entities;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import util.Trace;
+
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+
+/**
+ * Reading and writing of compiled levels.
+ * <p>
+ * The JSON file stays the source of truth.  A compiled level is only used if it
+ * was compiled from the current JSON file (by checksum) and has the current
+ * version, so editing a level never requires recompiling it.  File times are not
+ * used, as a compiled level packaged on the classpath has none.
+ */
+public class LevelFormat {
+    /**
+     * The first int of every compiled level ("NSAL")
+     */
+    public static final int MAGIC = 0x4E53414C;
+    /**
+     * The version of the layout, to be raised whenever it changes
+     */
+    public static final int VERSION = 2;
+    /**
+     * The extension of a compiled level
+     */
+    public static final String EXTENSION = ".lvl";
+    /**
+     * The extension of a level source
+     */
+    private static final String SOURCE_EXTENSION = ".json";
+    /**
+     * The encoding of strings
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    /**
+     * The tile directions, indexed by their code
+     */
+    private static final String[] DIRECTIONS = {"up", "down", "left", "right"};
+
+    /**
+     * Returns the path of the compiled form of a level.
+     *
+     * @param path The path of the level source
+     * @return the path of the compiled form of a level
+     */
+    public static String compiledPath(String path) {
+        if (path.endsWith(SOURCE_EXTENSION)) {
+            path = path.substring(0, path.length() - SOURCE_EXTENSION.length());
+        }
+        return path + EXTENSION;
+    }
+
+    /**
+     * Loads a level, from its compiled form if that is up to date.
+     * <p>
+     * Otherwise the level is parsed from its JSON source.
+     *
+     * @param json The JSON parser for the fallback
+     * @param path The internal path of the level source
+     * @return the level
+     */
+    public static Level load(Json json, String path) {
+        long start = Trace.begin();
+        byte[] source = Gdx.files.internal(path).readBytes();
+        FileHandle compiled = Gdx.files.internal(compiledPath(path));
+        if (compiled.exists()) {
+            Level level = read(ByteBuffer.wrap(compiled.readBytes()), checksum(source));
+            if (level != null) {
+                Trace.end(path, "level", start, "compiled");
+                return level;
+            }
+            Gdx.app.error("entities.LevelFormat", "Ignoring outdated compiled level " + compiled.path());
+        }
+        Level level = json.fromJson(Level.class, new String(source, UTF8));
+        Trace.end(path, "level", start, "json");
+        return level;
+    }
+
+    /**
+     * Returns the checksum of a level source, as stored in its compiled form.
+     *
+     * @param source The contents of the level source
+     * @return the checksum of a level source
+     */
+    public static long checksum(byte[] source) {
+        CRC32 crc = new CRC32();
+        crc.update(source, 0, source.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Reads a compiled level.
+     *
+     * @param buffer   The compiled level, positioned at its start
+     * @param checksum The checksum of the current level source
+     * @return the level, or null if the buffer is not a compiled level of this
+     * version compiled from that source
+     */
+    public static Level read(ByteBuffer buffer, long checksum) {
+        if (buffer.remaining() < 16 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != checksum) {
+            return null;
+        }
+        Level level = new Level();
+        level.read(buffer);
+        return level;
+    }
+
+    /**
+     * Writes a level in the compiled form.
+     *
+     * @param level    The level to write
+     * @param checksum The checksum of the level source
+     * @param file     The file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Level level, long checksum, FileHandle file) throws IOException {
+        DataOutputStream out = new DataOutputStream(file.write(false, 4096));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checksum);
+            level.write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param buffer The compiled level
+     * @return the string
+     */
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param out   The compiled level
+     * @param value The string
+     * @throws IOException if the string cannot be written
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Returns the direction with the given code.
+     *
+     * @param code The direction code
+     * @return the direction with the given code
+     */
+    static String direction(int code) {
+        return DIRECTIONS[code];
+    }
+
+    /**
+     * Returns the code of a direction.
+     *
+     * @param direction The direction
+     * @return the code of a direction
+     * @throws IOException if the direction is not known
+     */
+    static int directionCode(String direction) throws IOException {
+        for (int ii = 0; ii < DIRECTIONS.length; ii++) {
+            if (DIRECTIONS[ii].equals(direction)) {
+                return ii;
+            }
+        }
+        throw new IOException("Unknown tile direction " + direction);
+    }
+}
@@ -2,19 +2,87 @@ package entities;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Preferences;
+import com.badlogic.gdx.utils.IntMap;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.AsyncTask;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * The index of every level, with the levels themselves loaded on demand.
+ * <p>
+ * Reading the index only reads levels.json, which lists the id, path, type and
+ * item count of each level.  A level is parsed the first time it is asked for,
+ * and the few most recently used levels are kept.  A level can also be
+ * prefetched, which parses it on a background thread.
+ */
 public class LevelMetadata implements Json.Serializable {
-    private final Map<Integer, Level> levelMap;
+    /**
+     * The number of parsed levels to keep
+     */
+    private static final int CACHE_SIZE = 4;
+
+    /**
+     * The index entry of a level
+     */
+    public static class Entry {
+        /**
+         * The path of the level source
+         */
+        public final String path;
+        /**
+         * The level type (its theme)
+         */
+        public final String type;
+        /**
+         * The number of items in the level
+         */
+        public final int itemCount;
+
+        Entry(String path, String type, int itemCount) {
+            this.path = path;
+            this.type = type;
+            this.itemCount = itemCount;
+        }
+    }
+
+    /**
+     * The index entry of each level, by id
+     */
+    private final IntMap<Entry> entries;
+    /**
+     * The most recently used levels, least recent first
+     */
+    private final LinkedHashMap<Integer, Level> cache;
+    /**
+     * Levels being parsed in the background
+     */
+    private final IntMap<AsyncResult<Level>> pending;
+    /**
+     * The thread that parses prefetched levels
+     */
+    private AsyncExecutor executor;
+    /**
+     * The parser for levels read on the calling thread
+     */
+    private final Json json;
     private final Preferences levelState;
     private final static boolean UNLOCK_ALL_LEVELS = true;
 
     public LevelMetadata() {
-        levelMap = new HashMap<>();
+        entries = new IntMap<>();
+        cache = new LinkedHashMap<Integer, Level>(CACHE_SIZE + 1, 1.0f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Level> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        pending = new IntMap<>();
+        json = new Json();
         levelState = Gdx.app.getPreferences("no-strings-attached.save");
     }
 
@@ -29,16 +97,113 @@ public class LevelMetadata implements Json.Serializable {
         for (JsonValue jsonLevel : levels) {
             String levelPath = jsonLevel.getString("path");
             int levelID = jsonLevel.getInt("id");
-            Level level = json.fromJson(Level.class, Gdx.files.internal(levelPath));
-            levelMap.put(levelID, level);
+            String type = jsonLevel.getString("type", null);
+            int items = jsonLevel.getInt("items", -1);
+            if (type == null || items < 0) {
+                // An older index without the summary; read the level to fill it in
+                Level level = LevelFormat.load(json, levelPath);
+                type = level.getType();
+                items = level.getItems().size();
+                cache.put(levelID, level);
+            }
+            entries.put(levelID, new Entry(levelPath, type, items));
             if (!saveExists) {
                 levelState.putBoolean(String.valueOf(levelID), levelID == 1);
             }
         }
     }
 
+    /**
+     * Returns the index entry of a level.
+     *
+     * @param index The level id
+     * @return the index entry of a level, or null if there is no such level
+     */
+    public Entry getEntry(int index) {
+        return entries.get(index);
+    }
+
+    /**
+     * Returns a level, parsing it if it is not cached.
+     * <p>
+     * If the level is being prefetched, this waits for the prefetch to finish.
+     *
+     * @param index The level id
+     * @return the level, or null if there is no such level
+     */
     public Level getLevel(int index) {
-        return levelMap.get(index);
+        Entry entry = entries.get(index);
+        if (entry == null) {
+            return null;
+        }
+        Level level;
+        AsyncResult<Level> result;
+        synchronized (cache) {
+            level = cache.get(index);
+            result = pending.remove(index);
+        }
+        if (level != null) {
+            return level;
+        }
+        level = result != null ? result.get() : LevelFormat.load(json, entry.path);
+        synchronized (cache) {
+            cache.put(index, level);
+        }
+        return level;
+    }
+
+    /**
+     * Starts parsing a level in the background, unless it is cached or pending.
+     * <p>
+     * The level can then be fetched with getLevel as usual.
+     *
+     * @param index The level id
+     */
+    public void prefetch(final int index) {
+        final Entry entry = entries.get(index);
+        if (entry == null) {
+            return;
+        }
+        synchronized (cache) {
+            if (cache.containsKey(index) || pending.containsKey(index)) {
+                return;
+            }
+            if (executor == null) {
+                executor = new AsyncExecutor(1, "LevelPrefetch");
+            }
+            pending.put(index, executor.submit(new AsyncTask<Level>() {
+                @Override
+                public Level call() {
+                    // Json is not thread safe, so the background thread has its own
+                    Level level = LevelFormat.load(new Json(), entry.path);
+                    synchronized (cache) {
+                        if (pending.containsKey(index)) {
+                            pending.remove(index);
+                            cache.put(index, level);
+                        }
+                    }
+                    return level;
+                }
+            }));
+        }
+    }
+
+    /**
+     * Stops the prefetch thread and drops any level still being parsed.
+     * <p>
+     * A later prefetch starts a new thread, so this is safe to call more than once.
+     */
+    public void dispose() {
+        AsyncExecutor stopped;
+        synchronized (cache) {
+            pending.clear();
+            stopped = executor;
+            executor = null;
+        }
+        // A running task locks the cache when it finishes, so wait outside of the lock
+        if (stopped != null) {
+            stopped.dispose();
+        }
     }
 
     public boolean isLevelUnlocked(int index) {
@@ -51,7 +216,7 @@ public class LevelMetadata implements Json.Serializable {
     }
 
     public int getLevelCount() {
-        return levelMap.size();
+        return entries.size;
     }
 
     public void saveGame() {
@@ -60,7 +225,7 @@ public class LevelMetadata implements Json.Serializable {
 
     public void resetSave() {
         levelState.putBoolean(String.valueOf(1), true);
-        for (int i = 2; i <= levelMap.size(); i++) {
+        for (int i = 2; i <= entries.size; i++) {
             levelState.putBoolean(String.valueOf(i), false);
         }
         levelState.putBoolean("saveExists", true);
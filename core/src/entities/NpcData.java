@@ -3,6 +3,10 @@ package entities;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 public class NpcData implements Json.Serializable {
     private final float[] pos = new float[2];
     private boolean isSliding;
@@ -66,4 +70,52 @@ public class NpcData implements Json.Serializable {
             rotatingDegree = jsonData.getFloat("degree");
         }
     }
+
+    /**
+     * Reads this npc from a compiled level.
+     * <p>
+     * The layout is the sliding and rotating flags as ints, then the position,
+     * then the ends of the slide if it slides, then the center and angle of the
+     * rotation if it rotates, all as floats.
+     *
+     * @param buffer The compiled level
+     */
+    void read(ByteBuffer buffer) {
+        isSliding = buffer.getInt() != 0;
+        isRotating = buffer.getInt() != 0;
+        pos[0] = buffer.getFloat();
+        pos[1] = buffer.getFloat();
+        if (isSliding) {
+            left = new float[]{buffer.getFloat(), buffer.getFloat()};
+            right = new float[]{buffer.getFloat(), buffer.getFloat()};
+        }
+        if (isRotating) {
+            rotatingCenter = new float[]{buffer.getFloat(), buffer.getFloat()};
+            rotatingDegree = buffer.getFloat();
+        }
+    }
+
+    /**
+     * Writes this npc to a compiled level.
+     *
+     * @param out The compiled level
+     * @throws IOException if the npc cannot be written
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(isSliding ? 1 : 0);
+        out.writeInt(isRotating ? 1 : 0);
+        out.writeFloat(pos[0]);
+        out.writeFloat(pos[1]);
+        if (isSliding) {
+            out.writeFloat(left[0]);
+            out.writeFloat(left[1]);
+            out.writeFloat(right[0]);
+            out.writeFloat(right[1]);
+        }
+        if (isRotating) {
+            out.writeFloat(rotatingCenter[0]);
+            out.writeFloat(rotatingCenter[1]);
+            out.writeFloat(rotatingDegree);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package entities;
 
+import util.CollisionType;
 import util.FilmStrip;
 
 public class NpcPerson extends Person {
@@ -35,14 +36,15 @@ public class NpcPerson extends Person {
      * @param width      The object width in physics units
      * @param height     The object width in physics units
      * @param name
-     * @param sensorName
      */
-    public NpcPerson(float x, float y, float width, float height, String name, String sensorName, boolean left) {
-        super(x, y, width, height, name, sensorName);
+    public NpcPerson(float x, float y, float width, float height, String name, boolean left) {
+        super(x, y, width, height, name);
         this.left = left;
         this.type = "";
         flip = false;
         this.setName("npc");
+        setCollisionType(CollisionType.NPC);
+        sensorType = CollisionType.NPC_SENSOR;
     }
 
     private void setAnchors() {
@@ -284,8 +284,8 @@ public class NpcRope extends Rope {
         int endIndex = contPoints.length - 1;
 
         for (int i = startIndex; i < endIndex; i++) {
-            Vector2 pos = upperLayer.get(i - 1).getPosition();
-            contPoints[i].set(pos.x * drawScale.x, pos.y * drawScale.y);
+            WheelObstacle obj = upperLayer.get(i - 1);
+            contPoints[i].set(obj.getDrawX() * drawScale.x, obj.getDrawY() * drawScale.y);
         }
 
 
@@ -369,15 +369,16 @@ public class NpcRope extends Rope {
             setNorms();
         }
 
-        canvas.drawCatmullRom(splineCurve, tint, MAX_DRAW_POINTS, points);
+        tessellate(canvas.getViewZoom());
+        canvas.drawRope(points, 1, pointCount, tint);
     }
 
     private void setNorms() {
-        for (WheelObstacle b : upperLayer) {
-            ((Blob) b).setNorm(approxNorm);
+        for (int i = 0; i < upperLayer.size(); i++) {
+            ((Blob) upperLayer.get(i)).setNorm(approxNorm);
         }
-        for (WheelObstacle b : lowerLayer) {
-            ((Blob) b).setNorm(approxNorm);
+        for (int i = 0; i < lowerLayer.size(); i++) {
+            ((Blob) lowerLayer.get(i)).setNorm(approxNorm);
         }
     }
 
@@ -17,6 +17,7 @@ import com.badlogic.gdx.physics.box2d.*;
 import obstacle.CapsuleObstacle;
 import obstacle.Obstacle;
 import root.GameCanvas;
+import util.CollisionType;
 
 import java.util.ArrayList;
 
@@ -126,6 +127,10 @@ public class Person extends CapsuleObstacle {
     private boolean isGod;
 
     private NpcPerson onNpc;
+    /**
+     * The collision tag of the foot sensor
+     */
+    protected CollisionType sensorType = CollisionType.PLAYER_SENSOR;
     /**
      * Whether our feet are on the ground
      */
@@ -162,7 +167,6 @@ public class Person extends CapsuleObstacle {
         this.fallingBack = fallingBack;
     }
 
-    private final String sensorName;
     private Person target;
     private NpcPerson canSwingTo;
     private final Vector2 trampolineDir;
@@ -389,17 +393,6 @@ public class Person extends CapsuleObstacle {
         this.isTrampolining = isTrampolining;
     }
 
-    /**
-     * Returns the name of the ground sensor
-     * <p>
-     * This is used by ContactListener
-     *
-     * @return the name of the ground sensor
-     */
-    public String getSensorName() {
-        return sensorName;
-    }
-
     /**
      * Creates a new dude avatar at the given position.
      * <p>
@@ -412,7 +405,7 @@ public class Person extends CapsuleObstacle {
      * @param width  The object width in physics units
      * @param height The object width in physics units
      */
-    public Person(float x, float y, float width, float height, String name, String sensorName) {
+    public Person(float x, float y, float width, float height, String name) {
         super(x, y, width * HSHRINK, height * VSHRINK);
         setDensity(PLAYER_DENSITY);
         setFriction(PLAYER_FRICTION);  /// HE WILL STICK TO WALLS IF YOU FORGET
@@ -428,12 +421,12 @@ public class Person extends CapsuleObstacle {
         isTrampolining = false;
         isOnNpc = false;
         onNpc = null;
-        this.sensorName = sensorName;
         this.inventory = new ArrayList<>();
         trampolineForce = new Vector2();
         isAttached = false;
         jumpCooldown = 0;
         setName(name);
+        setCollisionType(CollisionType.PLAYER);
     }
 
     public NpcPerson getOnNpc() {
@@ -512,7 +505,7 @@ public class Person extends CapsuleObstacle {
         sensorDef.filter.maskBits = getFilterData().maskBits;
         sensorDef.filter.categoryBits = getFilterData().categoryBits;
         sensorFixture = body.createFixture(sensorDef);
-        sensorFixture.setUserData(getSensorName());
+        sensorFixture.setUserData(sensorType);
 
         return true;
     }
@@ -687,11 +680,11 @@ public class Person extends CapsuleObstacle {
             tint.set(Color.WHITE);
         }
         if (!won() && lastTexture != null) {
-            canvas.draw(lastTexture, lastTint, origin.x, origin.y, getX() * drawScale.x,
-                    getY() * drawScale.y, getAngle(), (isFacingRight ? 1 : -1) * HSHRINK, VSHRINK);
+            canvas.draw(lastTexture, lastTint, origin.x, origin.y, getDrawX() * drawScale.x,
+                    getDrawY() * drawScale.y, getDrawAngle(), (isFacingRight ? 1 : -1) * HSHRINK, VSHRINK);
         }
-        canvas.draw(texture, tint, origin.x, origin.y, getX() * drawScale.x,
-                getY() * drawScale.y, getAngle(), (isFacingRight ? 1 : -1) * HSHRINK, VSHRINK);
+        canvas.draw(texture, tint, origin.x, origin.y, getDrawX() * drawScale.x,
+                getDrawY() * drawScale.y, getDrawAngle(), (isFacingRight ? 1 : -1) * HSHRINK, VSHRINK);
     }
 
     public void kill() {
@@ -733,18 +726,6 @@ public class Person extends CapsuleObstacle {
         return won;
     }
 
-    /**
-     * Draws the outline of the physics body.
-     * <p>
-     * This method can be helpful for understanding issues with collisions.
-     *
-     * @param canvas Drawing context
-     */
-    public void drawDebug(GameCanvas canvas) {
-        super.drawDebug(canvas);
-        canvas.drawPhysics(sensorShape, Color.RED, getX(), getY(), getAngle(), drawScale.x, drawScale.y);
-    }
-
     public void setAttached(boolean isAttached) {
         released = this.isAttached && !isAttached;
         this.isAttached = isAttached;
@@ -17,11 +17,45 @@ public class PlayerRope extends Rope {
     private static final float PLAYER_ROPE_DENSITY = 0.6f;
     private static final float SEGMENT_LENGTH = 0.21f;
     private ArrayList<BoxObstacle> segmentLayer;
+    /**
+     * Cache objects for creating the joints (so that reuse does not allocate)
+     */
+    private final Vector2 anchor1 = new Vector2();
+    private final Vector2 anchor2 = new Vector2();
+    private final RevoluteJointDef jointDef = new RevoluteJointDef();
 
     public PlayerRope(float x0, float y0, float x1, float y1, float ropeLength) {
         super(x0, y0, x1, y1, "player_rope", PLAYER_ROPE_DENSITY, ropeLength, SEGMENT_LENGTH, -1);
     }
 
+    /**
+     * Moves this rope to span the given points, so that it can be added again.
+     * <p>
+     * This lets GameMode keep a single rope for every swing instead of allocating
+     * a new one.  The rope must not be active (it must have been removed from the
+     * world).  The length, and so the number of planks, does not change.
+     *
+     * @param x0 The x-coordinate of the start of the rope
+     * @param y0 The y-coordinate of the start of the rope
+     * @param x1 The x-coordinate of the end of the rope
+     * @param y1 The y-coordinate of the end of the rope
+     */
+    public void reset(float x0, float y0, float x1, float y1) {
+        assert !isActive();
+        markRemoved(false);
+        setPosition(x0, y0);
+        setAngle(0);
+        dimension.set(x1 - x0, y1 - y0).nor();
+        for (int i = 0; i < segmentLayer.size(); i++) {
+            float t = i * (lWidth + spacing) + lWidth / 2.0f;
+            BoxObstacle plank = segmentLayer.get(i);
+            plank.setPosition(x0 + dimension.x * t, y0 + dimension.y * t);
+            plank.setAngle(0);
+            plank.setAngularVelocity(0);
+        }
+        dimension.set(x1 - x0, y1 - y0);
+    }
+
     public float getNPC() {
         float x = contPoints[0].x;
         return x / drawScale.x;
@@ -80,10 +114,8 @@ public class PlayerRope extends Rope {
     protected boolean createJoints(World world) {
         assert segmentLayer.size() > 0;
         float anc = this.lWidth / 2;
-        Vector2 anchor1 = new Vector2(anc / 2, 0);
-        Vector2 anchor2 = new Vector2(-anc / 2, 0);
-
-        RevoluteJointDef jointDef = new RevoluteJointDef();
+        anchor1.set(anc / 2, 0);
+        anchor2.set(-anc / 2, 0);
 
         for (int i = 0; i < segmentLayer.size() - 1; i++) {
             Obstacle curr = segmentLayer.get(i);
@@ -137,8 +169,8 @@ public class PlayerRope extends Rope {
         int endIndex = contPoints.length - 1;
 
         for (int i = startIndex; i < endIndex; i++) {
-            Vector2 pos = segmentLayer.get(i - 1).getPosition();
-            contPoints[i].set(pos.x * drawScale.x, pos.y * drawScale.y);
+            BoxObstacle obj = segmentLayer.get(i - 1);
+            contPoints[i].set(obj.getDrawX() * drawScale.x, obj.getDrawY() * drawScale.y);
         }
 
         contPoints[0] = contPoints[1];
@@ -155,7 +187,8 @@ public class PlayerRope extends Rope {
     public void draw(GameCanvas canvas) {
         // Delegate to components
         setCurrentSplineCurve();
-        canvas.drawCatmullRom(splineCurve, tint, MAX_DRAW_POINTS, points);
+        tessellate(canvas.getViewZoom());
+        canvas.drawRope(points, 1, pointCount, tint);
     }
 
     /**
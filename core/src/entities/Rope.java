@@ -3,6 +3,7 @@ package entities;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.CatmullRomSpline;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import obstacle.ComplexObstacle;
@@ -10,6 +11,18 @@ import obstacle.WheelObstacle;
 
 public abstract class Rope extends ComplexObstacle {
     protected final int MAX_DRAW_POINTS = 100;
+    /**
+     * Length (in screen pixels) of the longest straight piece of a tessellated span
+     */
+    private static final float SEGMENT_LENGTH = 6f;
+    /**
+     * Bend (in radians) at the ends of a span that earns it one more piece
+     */
+    private static final float SEGMENT_TURN = 0.15f;
+    /**
+     * Distance (in screen pixels) a control point must move to tessellate again
+     */
+    private static final float RETESSELLATE_DISTANCE = 1f;
     // Dimensions of the rope
     protected Vector2 dimension;
     protected CatmullRomSpline<Vector2> splineCurve;
@@ -21,6 +34,22 @@ public abstract class Rope extends ComplexObstacle {
     protected float lWidth;
     protected int id;
     protected Color tint = new Color(0.67f, 0f, 0f, 1f);
+    /**
+     * The number of draw points in use, starting at index 1
+     */
+    protected int pointCount;
+    /**
+     * The control points (as x,y pairs) at the last tessellation
+     */
+    private float[] tessellated;
+    /**
+     * The number of pieces in each span of the last tessellation
+     */
+    private int[] spanPieces;
+    /**
+     * The view zoom at the last tessellation
+     */
+    private float tessellatedZoom;
 
     public Rope() {
         points = new Vector2[MAX_DRAW_POINTS];
@@ -53,6 +82,133 @@ public abstract class Rope extends ComplexObstacle {
             splineCurve.set(contPoints, false);
     }
 
+    /**
+     * Samples the current spline into the draw points.
+     * <p>
+     * Each span of the spline is cut into pieces at most SEGMENT_LENGTH pixels
+     * long on screen, plus one more piece for every SEGMENT_TURN radians that the
+     * control polygon bends at its ends, so a straight rope gets few points and a
+     * curled one gets many.  Each point is evaluated once.  If the zoom is the
+     * same and no control point has moved RETESSELLATE_DISTANCE pixels on screen
+     * since the last call, the old points are kept, so a resting rope costs
+     * nothing.  If the rope needs more points than there are, they are spread
+     * evenly over the spans instead.  The points are stored from index 1 (point 0
+     * is not used for drawing), and pointCount is set to their number.
+     *
+     * @param zoom The number of world pixels that cover one screen pixel
+     */
+    void tessellate(float zoom) {
+        int spans = contPoints.length - 3;
+        if (spans < 1) {
+            pointCount = 0;
+            return;
+        }
+        if (!controlPointsMoved(RETESSELLATE_DISTANCE * zoom) && zoom == tessellatedZoom) {
+            return;
+        }
+        tessellatedZoom = zoom;
+
+        if (spanPieces == null || spanPieces.length != spans) {
+            spanPieces = new int[spans];
+        }
+        int total = 1;
+        for (int k = 0; k < spans; k++) {
+            Vector2 p0 = contPoints[k];
+            Vector2 p1 = contPoints[k + 1];
+            Vector2 p2 = contPoints[k + 2];
+            Vector2 p3 = contPoints[k + 3];
+            float turn = turn(p0, p1, p2) + turn(p1, p2, p3);
+            int pieces = MathUtils.ceil(p1.dst(p2) / (SEGMENT_LENGTH * zoom)) + (int) (turn / SEGMENT_TURN);
+            spanPieces[k] = Math.max(1, pieces);
+            total += spanPieces[k];
+        }
+        // Keep within the draw points, shrinking every span alike
+        int limit = MAX_DRAW_POINTS - 1;
+        if (total > limit) {
+            float shrink = (limit - 1) / (float) (total - 1);
+            total = 1;
+            for (int k = 0; k < spans; k++) {
+                spanPieces[k] = Math.max(1, (int) (spanPieces[k] * shrink));
+                total += spanPieces[k];
+            }
+            if (total > limit) {
+                sampleEvenly(spans, limit);
+                return;
+            }
+        }
+
+        int index = 1;
+        for (int k = 0; k < spans; k++) {
+            int pieces = spanPieces[k];
+            for (int j = 0; j < pieces; j++) {
+                splineCurve.valueAt(points[index++], k, j / (float) pieces);
+            }
+        }
+        splineCurve.valueAt(points[index++], spans - 1, 1);
+        pointCount = index - 1;
+    }
+
+    /**
+     * Samples the given number of points evenly along the spline.
+     * <p>
+     * This is the fallback when the spans need more points than there are, as
+     * there are too many spans for each to get a piece of its own.
+     *
+     * @param spans The number of spans in the spline
+     * @param count The number of points to sample
+     */
+    private void sampleEvenly(int spans, int count) {
+        for (int i = 0; i < count; i++) {
+            float t = spans * i / (float) (count - 1);
+            int k = Math.min((int) t, spans - 1);
+            splineCurve.valueAt(points[i + 1], k, t - k);
+        }
+        pointCount = count;
+    }
+
+    /**
+     * Returns true if a control point moved far enough to tessellate again.
+     * <p>
+     * If so, the current control points are remembered for the next call.
+     *
+     * @param distance The distance (in pixels) a control point must move
+     * @return true if a control point moved far enough to tessellate again
+     */
+    private boolean controlPointsMoved(float distance) {
+        boolean moved = tessellated == null || tessellated.length != 2 * contPoints.length;
+        if (moved) {
+            tessellated = new float[2 * contPoints.length];
+        } else {
+            for (int i = 0; i < contPoints.length && !moved; i++) {
+                moved = Math.abs(contPoints[i].x - tessellated[2 * i]) >= distance ||
+                        Math.abs(contPoints[i].y - tessellated[2 * i + 1]) >= distance;
+            }
+        }
+        if (moved) {
+            for (int i = 0; i < contPoints.length; i++) {
+                tessellated[2 * i] = contPoints[i].x;
+                tessellated[2 * i + 1] = contPoints[i].y;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Returns the angle (in radians) that a polyline turns at its middle point.
+     *
+     * @param a The first point
+     * @param b The middle point
+     * @param c The last point
+     * @return the angle that a polyline turns at its middle point
+     */
+    private static float turn(Vector2 a, Vector2 b, Vector2 c) {
+        float ux = b.x - a.x;
+        float uy = b.y - a.y;
+        float vx = c.x - b.x;
+        float vy = c.y - b.y;
+        return Math.abs(MathUtils.atan2(ux * vy - uy * vx, ux * vx + uy * vy));
+    }
+
     boolean isCloser(WheelObstacle a, WheelObstacle b, Vector2 pos, float h) {
         return a.getPosition().dst2(pos.x, pos.y - h / 2) <= b.getPosition().dst2(pos.x, pos.y - h / 2);
     }
@@ -8,6 +8,7 @@ import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
 import obstacle.PolygonObstacle;
 import root.GameCanvas;
+import util.CollisionType;
 
 public class Spikes extends PolygonObstacle {
 
@@ -15,23 +16,12 @@ public class Spikes extends PolygonObstacle {
     private String direction;
     private PolygonShape sensorShape;
     private Fixture sensorFixture;
-    private final String sensorName;
     private static final float SENSOR_HEIGHT = 0.05f;
 
-    public String getSensorName() {
-        return sensorName;
-    }
-
-    public void drawDebug(GameCanvas canvas) {
-        super.drawDebug(canvas);
-        canvas.drawPhysics(sensorShape, Color.RED, getX(), getY(), getAngle(), drawScale.x, drawScale.y);
-    }
-
     public Spikes(float[] points, float x, float y, String direction, float scale) {
         super(points, x, y);
         this.scale = scale;
         this.direction = direction;
-        this.sensorName = "spike";
     }
 
     public boolean activatePhysics(World world) {
@@ -64,7 +54,7 @@ public class Spikes extends PolygonObstacle {
         sensorDef.filter.maskBits = getFilterData().maskBits;
         sensorDef.filter.categoryBits = getFilterData().categoryBits;
         sensorFixture = body.createFixture(sensorDef);
-        sensorFixture.setUserData(getSensorName());
+        sensorFixture.setUserData(CollisionType.SPIKES_SENSOR);
         return true;
     }
 
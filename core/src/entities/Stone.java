@@ -40,6 +40,15 @@ public class Stone extends PolygonObstacle {
     TextureRegion texLeft;
     TextureRegion texRight;
 
+    /**
+     * Returns true if this stone never moves (it neither slides nor rotates).
+     *
+     * @return true if this stone never moves
+     */
+    public boolean isStatic() {
+        return !isSliding && !isRotating;
+    }
+
     public void setIsSliding(boolean b) {
         isSliding = b;
     }
@@ -173,45 +182,45 @@ public class Stone extends PolygonObstacle {
         if (type.equals("mountain")) {
 
             if (height <= 2 && width <= 2 && type.equals("village")) {
-                float firstx = getX() * drawScale.x;
-                float firsty = getY() * drawScale.y;
+                float firstx = getDrawX() * drawScale.x;
+                float firsty = getDrawY() * drawScale.y;
                 canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                        firstx + width * drawScale.x / 2, firsty + height * drawScale.y / 2, getAngle(),
+                        firstx + width * drawScale.x / 2, firsty + height * drawScale.y / 2, getDrawAngle(),
                         width * drawScale.x / texture.getRegionWidth(), height * drawScale.y / texture.getRegionHeight());
             } else if (height <= 2 && width <= 2) {
-                firstx = (getX() - 0.3f) * drawScale.x;
-                firsty = (getY() - 0.3f) * drawScale.y;
-                this.x = getX() - 0.3f;
-                this.y = getY() - 0.3f;
+                firstx = (getDrawX() - 0.3f) * drawScale.x;
+                firsty = (getDrawY() - 0.3f) * drawScale.y;
+                this.x = getDrawX() - 0.3f;
+                this.y = getDrawY() - 0.3f;
                 canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                        firstx + width * drawScale.x / 2, firsty + height * drawScale.y / 2, getAngle(),
+                        firstx + width * drawScale.x / 2, firsty + height * drawScale.y / 2, getDrawAngle(),
                         width * drawScale.x / texture.getRegionWidth(), height * drawScale.y / texture.getRegionHeight());
 
             } else if (height <= 2) {
                 float sca = sc;
-                this.x = getX() - 0.3f;
+                this.x = getDrawX() - 0.3f;
                 if (type.equals("mountain"))
-                    this.y = getY() - 0.3f;
-                else this.y = getY();
+                    this.y = getDrawY() - 0.3f;
+                else this.y = getDrawY();
                 firstx = x * drawScale.x;
                 firsty = y * drawScale.y;
                 // scale by y
                 approxDist = 0.5f;
                 canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                        start, firsty + height * drawScale.y / 2, getAngle(),
+                        start, firsty + height * drawScale.y / 2, getDrawAngle(),
                         sca, sca);
                 canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                        end, firsty + height * drawScale.y / 2, getAngle(),
+                        end, firsty + height * drawScale.y / 2, getDrawAngle(),
                         sca, sca);
                 for (int i = 0; i < num; i++) {
                     //  float y = ylower + rand.nextFloat()*(yupper- ylower);
                     canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                            start + (i + 1) * dist, firsty + height * drawScale.y / 2, getAngle(),
+                            start + (i + 1) * dist, firsty + height * drawScale.y / 2, getDrawAngle(),
                             sca, sca);
                 }
             } else if (height > 2 * width) {
-                this.x = getX() - 0.3f;
-                this.y = getY() - 0.3f;
+                this.x = getDrawX() - 0.3f;
+                this.y = getDrawY() - 0.3f;
                 float overlap = 0.7f;
                 float scx = width * drawScale.x / texture.getRegionWidth();
                 float num = (int) (height * drawScale.y / (texture.getRegionHeight() * scx * overlap));
@@ -221,53 +230,53 @@ public class Stone extends PolygonObstacle {
 
                 for (int i = 0; i < num; i++)
                     canvas.draw(texture, Color.WHITE, 0, 0, x * drawScale.x,
-                            y * drawScale.y + i * dist, getAngle(), scx, scx * scy);
+                            y * drawScale.y + i * dist, getDrawAngle(), scx, scx * scy);
 
             } else {
 
-                this.x = getX() - 0.3f;
-                this.y = getY() - 0.3f;
+                this.x = getDrawX() - 0.3f;
+                this.y = getDrawY() - 0.3f;
                 float sca = 1.1f;
                 approxDist = 0.6f;
-                float startX = getX() * drawScale.x + texture.getRegionWidth() / 2 * sca;
-                float startY = getY() * drawScale.y + texture.getRegionHeight() / 2 * sca;
-                float endX = (getX() + width) * drawScale.x - texture.getRegionWidth() * sca / 2;
-                float endY = (getY() + height) * drawScale.y - texture.getRegionHeight() * sca / 2;
+                float startX = getDrawX() * drawScale.x + texture.getRegionWidth() / 2 * sca;
+                float startY = getDrawY() * drawScale.y + texture.getRegionHeight() / 2 * sca;
+                float endX = (getDrawX() + width) * drawScale.x - texture.getRegionWidth() * sca / 2;
+                float endY = (getDrawY() + height) * drawScale.y - texture.getRegionHeight() * sca / 2;
                 float numX = (int) Math.ceil((endX - startX) / (texture.getRegionWidth() * sca * approxDist));
                 float numY = (int) Math.ceil((endY - startY) / (texture.getRegionHeight() * sca * approxDist));
                 float distX = (endX - startX) / numX;
                 float distY = (endY - startY) / numY;
                 canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                        startX, startY, getAngle(),
+                        startX, startY, getDrawAngle(),
                         sca, sca);
 
                 for (int i = 0; i < numX + 1; i++) {
                     for (int j = 0; j < numY + 1; j++) {
                         canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                                startX + (i) * distX, startY + (j) * distY, getAngle(),
+                                startX + (i) * distX, startY + (j) * distY, getDrawAngle(),
                                 sca, sca);
                     }
                 }
             }
         } else {
             if (height <= 2 && width <= 2) {
-                float firstx = getX() * drawScale.x;
-                float firsty = getY() * drawScale.y;
+                float firstx = getDrawX() * drawScale.x;
+                float firsty = getDrawY() * drawScale.y;
                 if (type.equals("village")) {
                     canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                            firstx + width * drawScale.x / 2, firsty + height * drawScale.y / 2, getAngle(),
+                            firstx + width * drawScale.x / 2, firsty + height * drawScale.y / 2, getDrawAngle(),
                             width * drawScale.x / texture.getRegionWidth() * 1.2f, 1.2f * height * drawScale.y / texture.getRegionHeight());
 
                 } else {
                     canvas.draw(texture, Color.WHITE, texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
-                            firstx + width * drawScale.x / 2, firsty + height * drawScale.y / 2, getAngle(),
+                            firstx + width * drawScale.x / 2, firsty + height * drawScale.y / 2, getDrawAngle(),
                             width * drawScale.x / texture.getRegionWidth(), height * drawScale.y / texture.getRegionHeight());
                 }
             } else if (height > 2 * width) {
 
 
-                this.x = getX();
-                this.y = getY();
+                this.x = getDrawX();
+                this.y = getDrawY();
                 float scx = width * drawScale.x / texture.getRegionWidth();
                 float num = (int) (height * drawScale.y / (texture.getRegionHeight() * scx));
                 float dist = height * drawScale.y / num;
@@ -276,19 +285,19 @@ public class Stone extends PolygonObstacle {
                 if (type.equals("forest")) {
                     for (int i = 0; i < num; i++)
                         canvas.draw(texture, Color.WHITE, 0, 0, x * drawScale.x,
-                                y * drawScale.y + i * dist, getAngle(), scx * 1.15f, scx * scy * 1.15f);
+                                y * drawScale.y + i * dist, getDrawAngle(), scx * 1.15f, scx * scy * 1.15f);
 
 
                 } else {
                     for (int i = 0; i < num; i++)
                         canvas.draw(texture, Color.WHITE, 0, 0, x * drawScale.x,
-                                y * drawScale.y + i * dist, getAngle(), scx, scx * scy);
+                                y * drawScale.y + i * dist, getDrawAngle(), scx, scx * scy);
                 }
 
             } else {
 
-                this.x = getX();
-                this.y = getY();
+                this.x = getDrawX();
+                this.y = getDrawY();
 
 
                 float scy = height * drawScale.y / texture.getRegionHeight();
@@ -301,25 +310,25 @@ public class Stone extends PolygonObstacle {
 
 
                     canvas.draw(texLeft, Color.WHITE, 0, 0, x * drawScale.x,
-                            y * drawScale.y, getAngle(), scx * scy, scy * 1.1f);
+                            y * drawScale.y, getDrawAngle(), scx * scy, scy * 1.1f);
 
                     for (int i = 1; i < num - 1; i++)
                         canvas.draw(texture, Color.WHITE, 0, 0, x * drawScale.x + i * dist,
-                                y * drawScale.y, getAngle(), scx * scy, scy * 1.1f);
+                                y * drawScale.y, getDrawAngle(), scx * scy, scy * 1.1f);
 
                     canvas.draw(texRight, Color.WHITE, 0, 0, x * drawScale.x + (num - 1) * dist,
-                            y * drawScale.y, getAngle(), scx * scy, scy * 1.1f);
+                            y * drawScale.y, getDrawAngle(), scx * scy, scy * 1.1f);
 
                 } else if (type.equals("forest")) {
                     for (int i = 0; i < num; i++)
                         canvas.draw(texture, Color.WHITE, 0, 0, x * drawScale.x + i * dist,
-                                y * drawScale.y, getAngle(), scx * scy * 1.15f, scy * 1.1f);
+                                y * drawScale.y, getDrawAngle(), scx * scy * 1.15f, scy * 1.1f);
 
                 } else {
 
                     for (int i = 0; i < num; i++)
                         canvas.draw(texture, Color.WHITE, 0, 0, x * drawScale.x + i * dist,
-                                y * drawScale.y, getAngle(), scx * scy, scy);
+                                y * drawScale.y, getDrawAngle(), scx * scy, scy);
                 }
             }
 
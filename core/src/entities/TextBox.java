@@ -3,6 +3,10 @@ package entities;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 public class TextBox implements Json.Serializable {
     private String text;
     private float x;
@@ -20,6 +24,31 @@ public class TextBox implements Json.Serializable {
         y = jsonData.getFloat("y");
     }
 
+    /**
+     * Reads this text box from a compiled level.
+     * <p>
+     * The layout is the text as a string, then the position as floats.
+     *
+     * @param buffer The compiled level
+     */
+    void read(ByteBuffer buffer) {
+        text = LevelFormat.readString(buffer);
+        x = buffer.getFloat();
+        y = buffer.getFloat();
+    }
+
+    /**
+     * Writes this text box to a compiled level.
+     *
+     * @param out The compiled level
+     * @throws IOException if the text box cannot be written
+     */
+    void write(DataOutput out) throws IOException {
+        LevelFormat.writeString(out, text);
+        out.writeFloat(x);
+        out.writeFloat(y);
+    }
+
     public String getText() {
         return text;
     }
@@ -3,6 +3,10 @@ package entities;
 import com.badlogic.gdx.utils.Json;
 import com.badlogic.gdx.utils.JsonValue;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 public class Tile implements Json.Serializable {
     private float[] corners;
     private float height;
@@ -70,14 +74,7 @@ public class Tile implements Json.Serializable {
         y = jsonData.getFloat("y");
         type = jsonData.getString("type");
         direction = jsonData.getString("direction");
-        corners[0] = 0;
-        corners[1] = 0;
-        corners[2] = 0;
-        corners[3] = height;
-        corners[4] = width;
-        corners[5] = height;
-        corners[6] = width;
-        corners[7] = 0;
+        setCorners();
 
         isSliding = jsonData.getBoolean("isSliding");
         if (isSliding) {
@@ -89,4 +86,64 @@ public class Tile implements Json.Serializable {
             right[1] = jsonData.get("rightPos").getFloat("y");
         }
     }
+
+    /**
+     * Reads this tile from a compiled level.
+     * <p>
+     * The layout is the type, direction and sliding flag as ints, then the
+     * position and size as floats, then the ends of the slide if it slides.
+     *
+     * @param buffer The compiled level
+     */
+    void read(ByteBuffer buffer) {
+        type = buffer.getInt() == Level.SPIKES ? "spikes" : "normal";
+        direction = LevelFormat.direction(buffer.getInt());
+        isSliding = buffer.getInt() != 0;
+        x = buffer.getFloat();
+        y = buffer.getFloat();
+        width = buffer.getFloat();
+        height = buffer.getFloat();
+        corners = new float[8];
+        setCorners();
+        if (isSliding) {
+            left = new float[]{buffer.getFloat(), buffer.getFloat()};
+            right = new float[]{buffer.getFloat(), buffer.getFloat()};
+        }
+    }
+
+    /**
+     * Writes this tile to a compiled level.
+     *
+     * @param out The compiled level
+     * @throws IOException if the tile cannot be written
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(type.equals("spikes") ? Level.SPIKES : Level.NORMAL);
+        out.writeInt(LevelFormat.directionCode(direction));
+        out.writeInt(isSliding ? 1 : 0);
+        out.writeFloat(x);
+        out.writeFloat(y);
+        out.writeFloat(width);
+        out.writeFloat(height);
+        if (isSliding) {
+            out.writeFloat(left[0]);
+            out.writeFloat(left[1]);
+            out.writeFloat(right[0]);
+            out.writeFloat(right[1]);
+        }
+    }
+
+    /**
+     * Sets the corners of this tile from its size.
+     */
+    private void setCorners() {
+        corners[0] = 0;
+        corners[1] = 0;
+        corners[2] = 0;
+        corners[3] = height;
+        corners[4] = width;
+        corners[5] = height;
+        corners[6] = width;
+        corners[7] = 0;
+    }
 }
@@ -16,6 +16,7 @@
  */
 package obstacle;
 
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
@@ -50,6 +51,10 @@ public abstract class ComplexObstacle extends Obstacle {
      * Potential joints for connecting the multiple bodies
      */
     protected Array<Joint> joints;
+    /**
+     * Cache for the bounds of a component
+     */
+    private final Rectangle boundsCache = new Rectangle();
 
     /// BodyDef Methods
 
@@ -989,6 +994,7 @@ public abstract class ComplexObstacle extends Obstacle {
             success = success && obj.activatePhysics(world);
         }
         success = success && createJoints(world);
+        super.saveTransform();
 
         // Clean up if we failed
         if (!success) {
@@ -1045,6 +1051,33 @@ public abstract class ComplexObstacle extends Obstacle {
         }
     }
 
+    /**
+     * Saves the current transform as the previous transform.
+     * <p>
+     * This is called just before every physics step, and is delegated to the
+     * components.
+     */
+    public void saveTransform() {
+        super.saveTransform();
+        for (Obstacle obj : bodies) {
+            obj.saveTransform();
+        }
+    }
+
+    /**
+     * Sets how far to draw between the previous and current transform.
+     * <p>
+     * The value is delegated to the components.
+     *
+     * @param alpha the interpolation factor (0 to 1)
+     */
+    public void setDrawAlpha(float alpha) {
+        super.setDrawAlpha(alpha);
+        for (Obstacle obj : bodies) {
+            obj.setDrawAlpha(alpha);
+        }
+    }
+
     /**
      * Sets the drawing scale for this physics object
      * <p>
@@ -1087,9 +1120,39 @@ public abstract class ComplexObstacle extends Obstacle {
      */
     public void drawDebug(GameCanvas canvas) {
         // Delegate to components
-        for (Obstacle obj : bodies) {
-            obj.drawDebug(canvas);
+        for (int ii = 0; ii < bodies.size; ii++) {
+            bodies.get(ii).drawDebug(canvas);
+        }
+    }
+
+    /**
+     * Stores the axis-aligned bounding box of the physics body in out.
+     * <p>
+     * This is the union of the boxes of the active components.  If no component
+     * is active, the box is the position alone.
+     *
+     * @param out The rectangle to store the result
+     * @return the rectangle out, for chaining
+     */
+    public Rectangle getBounds(Rectangle out) {
+        boolean empty = true;
+        for (int ii = 0; ii < bodies.size; ii++) {
+            Obstacle obj = bodies.get(ii);
+            if (!obj.bodyinfo.active) {
+                continue;
+            }
+            if (empty) {
+                obj.getBounds(out);
+                empty = false;
+            } else {
+                obj.getBounds(boundsCache);
+                out.merge(boundsCache);
+            }
+        }
+        if (empty) {
+            out.set(getX(), getY(), 0, 0);
         }
+        return out;
     }
 
 }
@@ -17,10 +17,12 @@
  */
 package obstacle;
 
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
 import root.GameCanvas;
+import util.CollisionType;
 
 /**
  * Base model class to support collisions.
@@ -57,6 +59,14 @@ public abstract class Obstacle {
      * A tag for debugging purposes
      */
     private String nametag;
+    /**
+     * The tag used by the collision listener
+     */
+    private CollisionType collisionType = CollisionType.NONE;
+    /**
+     * Whether this object is drawn from a sprite cache rather than by draw()
+     */
+    private boolean baked;
     /**
      * Drawing scale to convert physics units to pixels
      */
@@ -90,6 +100,20 @@ public abstract class Obstacle {
      */
     protected Vector2 scaleCache = new Vector2();
 
+    /// Render interpolation
+    /**
+     * The position of this body before the most recent physics step
+     */
+    protected Vector2 previousPosition = new Vector2();
+    /**
+     * The angle of this body before the most recent physics step
+     */
+    protected float previousAngle;
+    /**
+     * How far to draw between the previous and current transform (0 to 1)
+     */
+    protected float drawAlpha = 1.0f;
+
 
     /// BodyDef Methods
 
@@ -937,6 +961,47 @@ public abstract class Obstacle {
         nametag = value;
     }
 
+    /**
+     * Returns the tag used by the collision listener.
+     * <p>
+     * Unlike the name, this tag is meant for game logic.  It is NONE unless set.
+     *
+     * @return the tag used by the collision listener
+     */
+    public CollisionType getCollisionType() {
+        return collisionType;
+    }
+
+    /**
+     * Sets the tag used by the collision listener.
+     *
+     * @param value the tag used by the collision listener
+     */
+    public void setCollisionType(CollisionType value) {
+        collisionType = value;
+    }
+
+    /**
+     * Returns true if this object is drawn from a sprite cache.
+     * <p>
+     * A baked object has already been recorded into a cache, so the scene must
+     * not call draw() on it every frame.
+     *
+     * @return true if this object is drawn from a sprite cache
+     */
+    public boolean isBaked() {
+        return baked;
+    }
+
+    /**
+     * Sets whether this object is drawn from a sprite cache.
+     *
+     * @param value whether this object is drawn from a sprite cache
+     */
+    public void setBaked(boolean value) {
+        baked = value;
+    }
+
     /**
      * Create a new physics object at the origin.
      */
@@ -997,6 +1062,63 @@ public abstract class Obstacle {
      */
     public abstract void deactivatePhysics(World world);
 
+    /**
+     * Saves the current transform as the previous transform.
+     * <p>
+     * This is called just before every physics step.  The draw methods blend
+     * between this transform and the current one, so that drawing can run at a
+     * different rate than the fixed physics step.
+     */
+    public void saveTransform() {
+        previousPosition.set(getX(), getY());
+        previousAngle = getAngle();
+    }
+
+    /**
+     * Sets how far to draw between the previous and current transform.
+     * <p>
+     * The value is the fraction of a physics step left over in the accumulator
+     * after the last step.  A value of 1 draws the current transform.
+     *
+     * @param alpha the interpolation factor (0 to 1)
+     */
+    public void setDrawAlpha(float alpha) {
+        drawAlpha = alpha;
+    }
+
+    /**
+     * Returns the x-coordinate to draw this body at
+     * <p>
+     * This is interpolated between the previous and current physics step.
+     *
+     * @return the x-coordinate to draw this body at
+     */
+    public float getDrawX() {
+        return previousPosition.x + (getX() - previousPosition.x) * drawAlpha;
+    }
+
+    /**
+     * Returns the y-coordinate to draw this body at
+     * <p>
+     * This is interpolated between the previous and current physics step.
+     *
+     * @return the y-coordinate to draw this body at
+     */
+    public float getDrawY() {
+        return previousPosition.y + (getY() - previousPosition.y) * drawAlpha;
+    }
+
+    /**
+     * Returns the angle to draw this body at (in radians)
+     * <p>
+     * This is interpolated between the previous and current physics step.
+     *
+     * @return the angle to draw this body at
+     */
+    public float getDrawAngle() {
+        return previousAngle + (getAngle() - previousAngle) * drawAlpha;
+    }
+
     /**
      * Updates the object's physics state (NOT GAME LOGIC).
      * <p>
@@ -1026,4 +1148,17 @@ public abstract class Obstacle {
      */
     public abstract void drawDebug(GameCanvas canvas);
 
+    /**
+     * Stores the axis-aligned bounding box of the physics body in out.
+     * <p>
+     * The box is in physics units, and covers every fixture (including sensors)
+     * at the current physics position.  It does not account for a texture that
+     * is drawn larger than the body, so a caller testing visibility should pad
+     * the box.
+     *
+     * @param out The rectangle to store the result
+     * @return the rectangle out, for chaining
+     */
+    public abstract Rectangle getBounds(Rectangle out);
+
 }
\ No newline at end of file
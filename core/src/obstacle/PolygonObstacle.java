@@ -385,20 +385,7 @@ public class PolygonObstacle extends SimpleObstacle {
      */
     public void draw(GameCanvas canvas) {
         if (region != null) {
-            canvas.draw(region, Color.WHITE, 0, 0, getX() * drawScale.x, getY() * drawScale.y, getAngle(), 1, 1);
-        }
-    }
-
-    /**
-     * Draws the outline of the physics body.
-     * <p>
-     * This method can be helpful for understanding issues with collisions.
-     *
-     * @param canvas Drawing context
-     */
-    public void drawDebug(GameCanvas canvas) {
-        for (PolygonShape tri : shapes) {
-            canvas.drawPhysics(tri, Color.YELLOW, getX(), getY(), getAngle(), drawScale.x, drawScale.y);
+            canvas.draw(region, Color.WHITE, 0, 0, getDrawX() * drawScale.x, getDrawY() * drawScale.y, getDrawAngle(), 1, 1);
         }
     }
 
@@ -18,12 +18,11 @@ package obstacle;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.physics.box2d.BodyDef.BodyType;
-import com.badlogic.gdx.physics.box2d.Filter;
-import com.badlogic.gdx.physics.box2d.Fixture;
-import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
 import root.GameCanvas;
 
 /**
@@ -50,6 +49,11 @@ public abstract class SimpleObstacle extends Obstacle {
      */
     protected Vector2 origin;
 
+    /**
+     * Cache for the fixture vertices when computing the bounds
+     */
+    private final Vector2 boundsCache = new Vector2();
+
     /// BodyDef Methods
 
     /**
@@ -788,8 +792,97 @@ public abstract class SimpleObstacle extends Obstacle {
      */
     public void draw(GameCanvas canvas) {
         if (texture != null) {
-            canvas.draw(texture, Color.WHITE, origin.x, origin.y, getX() * drawScale.x, getY() * drawScale.x, getAngle(), 1, 1);
+            canvas.draw(texture, Color.WHITE, origin.x, origin.y, getDrawX() * drawScale.x, getDrawY() * drawScale.x, getDrawAngle(), 1, 1);
+        }
+    }
+
+    /**
+     * Draws the outline of the physics body.
+     * <p>
+     * Every fixture of the body is drawn, sensors included, using outlines that
+     * the canvas caches per fixture.  Nothing is drawn before the body exists.
+     *
+     * @param canvas Drawing context
+     */
+    public void drawDebug(GameCanvas canvas) {
+        if (body != null) {
+            canvas.drawPhysics(body, drawScale.x, drawScale.y);
+        }
+    }
+
+    /**
+     * Stores the axis-aligned bounding box of the physics body in out.
+     * <p>
+     * The box is computed from the fixtures of the body, so it follows any
+     * rotation.  Before the body is created, the box is the position alone.
+     *
+     * @param out The rectangle to store the result
+     * @return the rectangle out, for chaining
+     */
+    public Rectangle getBounds(Rectangle out) {
+        if (body == null) {
+            return out.set(getX(), getY(), 0, 0);
+        }
+        float left = Float.MAX_VALUE;
+        float bottom = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float top = -Float.MAX_VALUE;
+        Array<Fixture> fixtures = body.getFixtureList();
+        for (int ii = 0; ii < fixtures.size; ii++) {
+            Shape shape = fixtures.get(ii).getShape();
+            switch (shape.getType()) {
+                case Circle:
+                    CircleShape circle = (CircleShape) shape;
+                    Vector2 center = body.getWorldPoint(circle.getPosition());
+                    float radius = circle.getRadius();
+                    left = Math.min(left, center.x - radius);
+                    bottom = Math.min(bottom, center.y - radius);
+                    right = Math.max(right, center.x + radius);
+                    top = Math.max(top, center.y + radius);
+                    break;
+                case Polygon:
+                    PolygonShape polygon = (PolygonShape) shape;
+                    for (int jj = 0; jj < polygon.getVertexCount(); jj++) {
+                        polygon.getVertex(jj, boundsCache);
+                        Vector2 point = body.getWorldPoint(boundsCache);
+                        left = Math.min(left, point.x);
+                        bottom = Math.min(bottom, point.y);
+                        right = Math.max(right, point.x);
+                        top = Math.max(top, point.y);
+                    }
+                    break;
+                case Edge:
+                    EdgeShape edge = (EdgeShape) shape;
+                    for (int jj = 0; jj < 2; jj++) {
+                        if (jj == 0) {
+                            edge.getVertex1(boundsCache);
+                        } else {
+                            edge.getVertex2(boundsCache);
+                        }
+                        Vector2 point = body.getWorldPoint(boundsCache);
+                        left = Math.min(left, point.x);
+                        bottom = Math.min(bottom, point.y);
+                        right = Math.max(right, point.x);
+                        top = Math.max(top, point.y);
+                    }
+                    break;
+                case Chain:
+                    ChainShape chain = (ChainShape) shape;
+                    for (int jj = 0; jj < chain.getVertexCount(); jj++) {
+                        chain.getVertex(jj, boundsCache);
+                        Vector2 point = body.getWorldPoint(boundsCache);
+                        left = Math.min(left, point.x);
+                        bottom = Math.min(bottom, point.y);
+                        right = Math.max(right, point.x);
+                        top = Math.max(top, point.y);
+                    }
+                    break;
+            }
+        }
+        if (left > right) {
+            return out.set(getX(), getY(), 0, 0);
         }
+        return out.set(left, bottom, right - left, top - bottom);
     }
 
     /**
@@ -842,6 +935,7 @@ public abstract class SimpleObstacle extends Obstacle {
         // Only initialize if a body was created.
         if (body != null) {
             createFixtures();
+            saveTransform();
             return true;
         }
 
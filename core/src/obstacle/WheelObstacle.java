@@ -11,7 +11,6 @@
  */
 package obstacle;
 
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import root.GameCanvas;
@@ -111,15 +110,4 @@ public class WheelObstacle extends SimpleObstacle {
         }
     }
 
-    /**
-     * Draws the outline of the physics body.
-     * <p>
-     * This method can be helpful for understanding issues with collisions.
-     *
-     * @param canvas Drawing context
-     */
-    public void drawDebug(GameCanvas canvas) {
-        canvas.drawPhysics(shape, Color.YELLOW, getX(), getY(), drawScale.x, drawScale.y);
-    }
-
 }
\ No newline at end of file
@@ -1,26 +1,153 @@
 package root;
 
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.utils.ObjectSet;
 import entities.*;
 import obstacle.Obstacle;
+import util.CollisionType;
 
 /**
  * ContactListener that detects and handles collisions in the Box2D World
+ * <p>
+ * Each fixture of a contact is reduced to a CollisionType: the tag of the
+ * fixture if it is a tagged sensor, and the tag of its body otherwise.  The
+ * pair of tags indexes a table of rule flags, built once, so a contact costs
+ * two array lookups plus the rules that actually apply to it.
  */
 public class CollisionController implements ContactListener {
+    /**
+     * The player touched an npc (anything else clears the npc flag)
+     */
+    private static final int RULE_ON_NPC = 1;
+    /**
+     * The player (first fixture) touched a blob
+     */
+    private static final int RULE_BLOB_A = 1 << 1;
+    /**
+     * The player (second fixture) touched a blob
+     */
+    private static final int RULE_BLOB_B = 1 << 2;
+    /**
+     * The player (second fixture) reached the gate sensor
+     */
+    private static final int RULE_GATE_A = 1 << 3;
+    /**
+     * The player (first fixture) reached the gate sensor
+     */
+    private static final int RULE_GATE_B = 1 << 4;
+    /**
+     * The player (first fixture) touched an item sensor
+     */
+    private static final int RULE_ITEM_A = 1 << 5;
+    /**
+     * The player (second fixture) touched an item sensor
+     */
+    private static final int RULE_ITEM_B = 1 << 6;
+    /**
+     * The player touched a spike sensor
+     */
+    private static final int RULE_SPIKES = 1 << 7;
+    /**
+     * The foot sensor of the player touched something other than the player
+     */
+    private static final int RULE_GROUND = 1 << 8;
+    /**
+     * The foot sensor of the player left a blob
+     */
+    private static final int RULE_TRAMPOLINE = 1 << 9;
+
+    /**
+     * The number of collision types
+     */
+    private static final int TYPES = CollisionType.values().length;
+    /**
+     * The tag values, cached to avoid the copy made by values()
+     */
+    private static final CollisionType[] TYPE_VALUES = CollisionType.values();
+    /**
+     * Rule flags for beginContact, indexed by the tags of fixture A and fixture B
+     */
+    private static final int[][] BEGIN_RULES = new int[TYPES][TYPES];
+    /**
+     * Rule flags for endContact, indexed by the tags of fixture A and fixture B
+     */
+    private static final int[][] END_RULES = new int[TYPES][TYPES];
+
+    static {
+        for (CollisionType a : TYPE_VALUES) {
+            for (CollisionType b : TYPE_VALUES) {
+                boolean playerA = a.getBody() == CollisionType.PLAYER;
+                boolean playerB = b.getBody() == CollisionType.PLAYER;
+                int rules = 0;
+                if (playerA && b.getBody() == CollisionType.NPC) {
+                    rules |= RULE_ON_NPC;
+                }
+                if (playerA && b == CollisionType.BLOB) {
+                    rules |= RULE_BLOB_A;
+                }
+                if (playerB && a == CollisionType.BLOB) {
+                    rules |= RULE_BLOB_B;
+                }
+                if (a == CollisionType.GATE_SENSOR && playerB) {
+                    rules |= RULE_GATE_A;
+                }
+                if (b == CollisionType.GATE_SENSOR && playerA) {
+                    rules |= RULE_GATE_B;
+                }
+                if (playerA && b == CollisionType.ITEM_SENSOR) {
+                    rules |= RULE_ITEM_A;
+                }
+                if (playerB && a == CollisionType.ITEM_SENSOR) {
+                    rules |= RULE_ITEM_B;
+                }
+                if ((playerA && b == CollisionType.SPIKES_SENSOR) || (playerB && a == CollisionType.SPIKES_SENSOR)) {
+                    rules |= RULE_SPIKES;
+                }
+                if ((b == CollisionType.PLAYER_SENSOR && !playerA) || (a == CollisionType.PLAYER_SENSOR && !playerB)) {
+                    rules |= RULE_GROUND;
+                }
+                BEGIN_RULES[a.ordinal()][b.ordinal()] = rules;
+
+                rules = 0;
+                if ((a == CollisionType.PLAYER_SENSOR && b == CollisionType.BLOB) ||
+                        (b == CollisionType.PLAYER_SENSOR && a == CollisionType.BLOB)) {
+                    rules |= RULE_TRAMPOLINE;
+                }
+                if ((b == CollisionType.PLAYER_SENSOR && !playerA) || (a == CollisionType.PLAYER_SENSOR && !playerB)) {
+                    rules |= RULE_GROUND;
+                }
+                END_RULES[a.ordinal()][b.ordinal()] = rules;
+            }
+        }
+    }
+
     /**
      * Mark set to handle more sophisticated collision callbacks
      */
     private final ObjectSet<Fixture> sensorFixtures;
     private final Person player;
-    private final Vector2 trampolineForce;
 
     public CollisionController(Person player) {
         this.sensorFixtures = new ObjectSet<>();
         this.player = player;
-        this.trampolineForce = new Vector2();
+    }
+
+    /**
+     * Returns the collision tag of a fixture.
+     * <p>
+     * This is the tag stored in the fixture if it is a tagged sensor, and the tag
+     * of its obstacle otherwise.
+     *
+     * @param fixture The fixture to classify
+     * @return the collision tag of a fixture
+     */
+    private static CollisionType typeOf(Fixture fixture) {
+        Object data = fixture.getUserData();
+        if (data instanceof CollisionType) {
+            return (CollisionType) data;
+        }
+        Object obstacle = fixture.getBody().getUserData();
+        return obstacle instanceof Obstacle ? ((Obstacle) obstacle).getCollisionType() : CollisionType.NONE;
     }
 
     /**
@@ -35,84 +162,48 @@ public class CollisionController implements ContactListener {
     public void beginContact(Contact contact) {
         Fixture fix1 = contact.getFixtureA();
         Fixture fix2 = contact.getFixtureB();
-        Body body1 = fix1.getBody();
-        Body body2 = fix2.getBody();
-
-        Object fd1 = fix1.getUserData();
-        Object fd2 = fix2.getUserData();
-
-        try {
-            Obstacle bd1 = (Obstacle) body1.getUserData();
-            Obstacle bd2 = (Obstacle) body2.getUserData();
-
-            if (bd1.getName().equals("player_rope") && bd2 != player) {
-                bd1.markRemoved(true);
-            }
-
-            if (bd2.getName().equals("player_rope") && bd1 != player) {
-                NpcRope rope = (NpcRope) bd2;
-                if (bd1.getName().equals("npc") && rope.isBroken()) {
-                    player.setTarget((Person) bd1);
-                }
-                bd2.markRemoved(true);
-            }
-
-            if (bd1 == player && bd2.getName().contains("npc")) {
-                NpcPerson n = (NpcPerson) bd2;
-                player.setOnNpc(n);
-                player.setIsOnNpc(true);
-            } else {
-                player.setIsOnNpc(false);
-            }
-
-            if (bd1 == player && bd2.getName().equals(Blob.BLOB_NAME)) {
-                Vector2 norm = ((Blob) bd2).getNorm();
-                player.setTrampolineDir(norm);
-                player.setOnString(true);
-            }
-
-            if ("gatesensor".equals(fd1) && bd2.getName().equals(player.getName())) {
-                player.atGate();
-            }
-
+        int rules = BEGIN_RULES[typeOf(fix1).ordinal()][typeOf(fix2).ordinal()];
 
-            if ("gatesensor".equals(fd2) && bd1.getName().equals(player.getName())) {
-                player.atGate();
-            }
-
-            if (bd2 == player && bd1.getName().equals(Blob.BLOB_NAME)) {
-                Vector2 norm = ((Blob) bd1).getNorm();
-                player.setTrampolineDir(norm);
-                player.setOnString(true);
-            }
+        Obstacle bd1 = (Obstacle) fix1.getBody().getUserData();
+        Obstacle bd2 = (Obstacle) fix2.getBody().getUserData();
 
-            if (bd1 == player && ("item_sensor").equals(fd2) && !((Item) bd2).getState()) {
-                player.addItem(bd2.getName());
-                ((Item) bd2).setState(true);
-                bd2.markRemoved(true);
-                player.setDidCollect(bd2.getName());
-            } else if (bd2 == player && ("item_sensor").equals(fd1) && !((Item) bd1).getState()) {
-                player.addItem(bd1.getName());
-                ((Item) bd1).setState(true);
-                bd1.markRemoved(true);
-                player.setDidCollect(bd1.getName());
-            }
+        if ((rules & RULE_ON_NPC) != 0) {
+            player.setOnNpc((NpcPerson) bd2);
+            player.setIsOnNpc(true);
+        } else {
+            player.setIsOnNpc(false);
+        }
+        if (rules == 0) {
+            return;
+        }
 
-            if ((bd1 == player && ("spike").equals(fd2)) || (bd2 == player && ("spike").equals(fd1))) {
-                if (!player.won())
-                    player.kill();
-            }
+        if ((rules & RULE_BLOB_A) != 0) {
+            player.setTrampolineDir(((Blob) bd2).getNorm());
+            player.setOnString(true);
+        }
+        if ((rules & (RULE_GATE_A | RULE_GATE_B)) != 0) {
+            player.atGate();
+        }
+        if ((rules & RULE_BLOB_B) != 0) {
+            player.setTrampolineDir(((Blob) bd1).getNorm());
+            player.setOnString(true);
+        }
 
+        if ((rules & RULE_ITEM_A) != 0 && !((Item) bd2).getState()) {
+            collect((Item) bd2);
+        } else if ((rules & RULE_ITEM_B) != 0 && !((Item) bd1).getState()) {
+            collect((Item) bd1);
+        }
 
-            // See if we have landed on the ground.
-            if ((player.getSensorName().equals(fd2) && player != bd1) ||
-                    (player.getSensorName().equals(fd1) && player != bd2)) {
-                player.setGrounded(true);
-                sensorFixtures.add(player == bd1 ? fix2 : fix1); // Could have more than one ground
-            }
+        if ((rules & RULE_SPIKES) != 0) {
+            if (!player.won())
+                player.kill();
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        // See if we have landed on the ground.
+        if ((rules & RULE_GROUND) != 0) {
+            player.setGrounded(true);
+            sensorFixtures.add(player == bd1 ? fix2 : fix1); // Could have more than one ground
         }
     }
 
@@ -126,23 +217,17 @@ public class CollisionController implements ContactListener {
     public void endContact(Contact contact) {
         Fixture fix1 = contact.getFixtureA();
         Fixture fix2 = contact.getFixtureB();
+        int rules = END_RULES[typeOf(fix1).ordinal()][typeOf(fix2).ordinal()];
+        if (rules == 0) {
+            return;
+        }
 
-        Body body1 = fix1.getBody();
-        Body body2 = fix2.getBody();
-
-        Object fd1 = fix1.getUserData();
-        Object fd2 = fix2.getUserData();
-
-        Obstacle bd1 = (Obstacle) body1.getUserData();
-        Obstacle bd2 = (Obstacle) body2.getUserData();
-
-        if ((player.getSensorName().equals(fd1) && bd2.getName().equals(Blob.BLOB_NAME)) ||
-                (player.getSensorName().equals(fd2) && bd1.getName().equals(Blob.BLOB_NAME))) {
+        if ((rules & RULE_TRAMPOLINE) != 0) {
             player.setIsTrampolining(true);
         }
 
-        if ((player.getSensorName().equals(fd2) && player != bd1) ||
-                (player.getSensorName().equals(fd1) && player != bd2)) {
+        if ((rules & RULE_GROUND) != 0) {
+            Obstacle bd1 = (Obstacle) fix1.getBody().getUserData();
             sensorFixtures.remove(player == bd1 ? fix2 : fix1);
             if (sensorFixtures.size == 0) {
                 player.setGrounded(false);
@@ -150,6 +235,18 @@ public class CollisionController implements ContactListener {
         }
     }
 
+    /**
+     * Picks up an item the player has touched.
+     *
+     * @param item The item to collect
+     */
+    private void collect(Item item) {
+        player.addItem(item.getName());
+        item.setState(true);
+        item.markRemoved(true);
+        player.setDidCollect(item.getName());
+    }
+
     /**
      * Unused ContactListener method
      */
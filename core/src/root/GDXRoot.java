@@ -18,14 +18,27 @@ import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.assets.loaders.FileHandleResolver;
 import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGeneratorLoader;
 import com.badlogic.gdx.graphics.g2d.freetype.FreetypeFontLoader;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Scaling;
 import entities.LevelMetadata;
+import util.MetricsSink;
 import util.ScreenListener;
+import util.Trace;
+import util.TracedLoader;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
 
 /**
  * Root class for a LibGDX.
@@ -75,6 +88,57 @@ public class GDXRoot extends Game implements ScreenListener {
 
     public static boolean useArrow = true;
 
+    /**
+     * Whether to record player input for every level attempt (see InputRecorder)
+     */
+    public static boolean recordInput = false;
+
+    /**
+     * Format for the per-frame metrics file, or null to not write one (see MetricsSink)
+     */
+    public static MetricsSink.Format metricsFormat = null;
+    /**
+     * The smallest world render scale chosen by dynamic resolution (see GameCanvas)
+     */
+    public static float minRenderScale = GameCanvas.DEFAULT_MIN_RENDER_SCALE;
+    /**
+     * A fixed world render scale, or 0 to adapt it to the frame time
+     */
+    public static float renderScale = 0;
+    /**
+     * File for the startup and asset loading trace, or null to not write one (see Trace)
+     */
+    public static String traceFile = null;
+    /**
+     * Where the per-frame metrics are written (a local file, without extension)
+     */
+    private static final String METRICS_FILE = "metrics/frames";
+    /**
+     * Time (in milliseconds) given to background asset loading each frame
+     */
+    private static final int STREAM_BUDGET = 2;
+    /**
+     * How many levels before the end of a theme the next theme is prefetched
+     */
+    private static final int PREFETCH_LEVELS = 2;
+
+    /**
+     * Destination for the per-frame metrics (null if not enabled)
+     */
+    private MetricsSink metrics;
+    /**
+     * Counts OpenGL draw calls and texture binds (null if metrics are not enabled)
+     */
+    private GLProfiler glProfiler;
+    /**
+     * The JVM garbage collectors, for the metrics GC counters
+     */
+    private List<GarbageCollectorMXBean> collectors;
+    /**
+     * Number of frames rendered since the metrics were started
+     */
+    private long frameCount;
+
     public static int currentLevel;
 
     private boolean TransitionLoaded = false;
@@ -100,6 +164,18 @@ public class GDXRoot extends Game implements ScreenListener {
         manager.setLoader(FreeTypeFontGenerator.class, new FreeTypeFontGeneratorLoader(resolver));
         manager.setLoader(BitmapFont.class, ".ttf", new FreetypeFontLoader(resolver));
         manager.setLoader(LevelMetadata.class, ".json", new LevelLoader(resolver));
+
+        if (traceFile != null) {
+            Trace.start(traceFile);
+            TracedLoader.install(manager, Texture.class, "");
+            TracedLoader.install(manager, TextureAtlas.class, "");
+            TracedLoader.install(manager, Music.class, "");
+            TracedLoader.install(manager, Sound.class, "");
+            TracedLoader.install(manager, BitmapFont.class, "");
+            TracedLoader.install(manager, BitmapFont.class, ".ttf");
+            TracedLoader.install(manager, FreeTypeFontGenerator.class, "");
+            TracedLoader.install(manager, LevelMetadata.class, ".json");
+        }
     }
 
     /**
@@ -109,35 +185,87 @@ public class GDXRoot extends Game implements ScreenListener {
      * the asynchronous loader for all other assets.
      */
     public void create() {
+        long start = Trace.begin();
         canvas = new GameCanvas(false);
+        canvas.setMinRenderScale(minRenderScale);
+        if (renderScale > 0) {
+            canvas.pinRenderScale(renderScale);
+        }
         UIcanvas = new GameCanvas(true);
 
-        loadingMode = new LoadingMode(UIcanvas, manager, 1);
+        loadingMode = new LoadingMode(UIcanvas, manager);
 
         cutScene = new CutScene(manager, UIcanvas);
-        cutScene.preloadContent(manager);
-
         pauseScreen = new PauseMode(manager, UIcanvas);
-        pauseScreen.preloadContent(manager);
-
         helpScreen = new HelpMode(manager, UIcanvas);
-        helpScreen.preloadContent(manager);
-
         settings = new SettingMode(manager, UIcanvas);
-        settings.preloadContent(manager);
-
         gameMode = new GameMode();
-        gameMode.preloadContent(manager);
-
         levelSelector = new LevelSelectorMode();
-        levelSelector.preloadContent(manager);
-
         transitionMode = new LevelTransitionMode();
-        transitionMode.preloadContent(manager);
+
+        // The menu buttons lead to these, so they load first
+        loadingMode.addMenuTier(settings);
+        loadingMode.addMenuTier(levelSelector, cutScene);
+        // The rest streams in behind the menu, starting with the first level
+        loadingMode.addTier(gameMode);
+        loadingMode.addTier(pauseScreen, helpScreen, transitionMode);
 
         loadingMode.setScreenListener(this);
         Gdx.input.setInputProcessor(loadingMode);
         setScreen(loadingMode);
+
+        if (metricsFormat != null) {
+            metrics = new MetricsSink(Gdx.files.local(METRICS_FILE), metricsFormat);
+            glProfiler = new GLProfiler(Gdx.graphics);
+            glProfiler.enable();
+            collectors = ManagementFactory.getGarbageCollectorMXBeans();
+            frameCount = 0;
+        }
+        Trace.end("GDXRoot.create", "startup", start);
+    }
+
+    /**
+     * Called when the Application should render itself.
+     * <p>
+     * The active screen does all of the work.  If metrics are enabled, we also
+     * measure the frame and hand the values to the metrics sink.
+     */
+    @Override
+    public void render() {
+        // Stream prefetched assets once the loading screen has handed over
+        if (getScreen() != loadingMode) {
+            manager.update(STREAM_BUDGET);
+        }
+        if (metrics == null) {
+            super.render();
+            return;
+        }
+
+        long steps = gameMode.getPhysicsStepCount();
+        long start = System.nanoTime();
+        super.render();
+        float cpuMillis = (System.nanoTime() - start) / 1.0e6f;
+
+        World world = gameMode.getWorld();
+        int bodies = world == null ? 0 : world.getBodyCount();
+        int joints = world == null ? 0 : world.getJointCount();
+        int objects = gameMode.objects == null ? 0 : gameMode.objects.size();
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (int ii = 0; ii < collectors.size(); ii++) {
+            gcCount += Math.max(0, collectors.get(ii).getCollectionCount());
+            gcMillis += Math.max(0, collectors.get(ii).getCollectionTime());
+        }
+        Runtime runtime = Runtime.getRuntime();
+
+        metrics.record(frameCount++, Gdx.graphics.getDeltaTime() * 1000.0f, cpuMillis,
+                (int) (gameMode.getPhysicsStepCount() - steps), bodies, joints, objects,
+                canvas.getRenderCalls() + UIcanvas.getRenderCalls(),
+                glProfiler.getDrawCalls(), glProfiler.getTextureBindings(),
+                runtime.totalMemory() - runtime.freeMemory(), gcCount, gcMillis);
+        canvas.resetRenderCalls();
+        UIcanvas.resetRenderCalls();
+        glProfiler.reset();
     }
 
     /**
@@ -146,13 +274,23 @@ public class GDXRoot extends Game implements ScreenListener {
      * This is preceded by a call to pause().
      */
     public void dispose() {
+        if (metrics != null) {
+            metrics.dispose();
+            glProfiler.disable();
+            metrics = null;
+        }
         // Call dispose on our children
         setScreen(null);
         gameMode.unloadContent(manager);
         gameMode.dispose();
 
+        // Stop the prefetch thread of the level index, so it does not outlive the game
+        LevelMetadata levelMetadata = levelSelector.getLevelMetadata();
         levelSelector.unloadContent(manager);
         levelSelector.dispose();
+        if (levelMetadata != null) {
+            levelMetadata.dispose();
+        }
 
         canvas.dispose();
         canvas = null;
@@ -193,14 +331,14 @@ public class GDXRoot extends Game implements ScreenListener {
                 case CutScene.INTO_CUTSCENE:
                     if (!isOpeningPlayed) {
                         cutScene.setTheme(CutScene.THEME.OPENING);
-                        cutScene.loadContent(manager);
+                        loadContent(cutScene);
                         cutScene.setScreenListener(this);
                         setScreen(cutScene);
                         loadingMode.hide();
                         isOpeningPlayed = true;
                     } else {
                         levelSelector.startNewGame();
-                        levelSelector.loadContent(manager);
+                        loadContent(levelSelector);
                         levelSelector.setScreenListener(this);
                         levelSelector.setCanvas(UIcanvas);
                         levelSelector.reset();
@@ -210,14 +348,14 @@ public class GDXRoot extends Game implements ScreenListener {
                 case SettingMode.INTO_SETTING:
                     LastScreen = loadingMode;
                     settings.setScreenListener(this);
-                    settings.loadContent(manager);
+                    loadContent(settings);
                     settings.initUI();
                     setScreen(settings);
                     loadingMode.hide();
                     break;
                 case LevelSelectorMode.INTO_SELECTOR:
                     isOpeningPlayed = true;
-                    levelSelector.loadContent(manager);
+                    loadContent(levelSelector);
                     levelSelector.setScreenListener(this);
                     levelSelector.setCanvas(UIcanvas);
                     levelSelector.initUI();
@@ -242,7 +380,7 @@ public class GDXRoot extends Game implements ScreenListener {
                 }
             }
         } else if (screen == cutScene && exitCode == LevelSelectorMode.INTO_SELECTOR) {
-            levelSelector.loadContent(manager);
+            loadContent(levelSelector);
             levelSelector.setScreenListener(this);
             levelSelector.setCanvas(UIcanvas);
             levelSelector.initUI();
@@ -260,8 +398,10 @@ public class GDXRoot extends Game implements ScreenListener {
                     Gdx.input.setInputProcessor(null);
                     currentLevel = levelSelector.getLevelIndex();
                     gameMode.setLevel(levelSelector.getCurrentLevel());
-                    gameMode.loadContent(manager);
-                    gameMode.initializeContent(manager);
+                    loadingMode.finishLoading();
+                    loadContent(gameMode);
+                    initializeContent();
+                    prefetchNextTheme();
                     gameMode.setScreenListener(this);
                     gameMode.setCanvas(canvas);
                     gameMode.reset();
@@ -283,7 +423,7 @@ public class GDXRoot extends Game implements ScreenListener {
                     setScreen(gameMode);
                     break;
                 case (HelpMode.INTO_HELP):
-                    helpScreen.loadContent(manager);
+                    loadContent(helpScreen);
                     helpScreen.setScreenListener(this);
                     helpScreen.initialize();
                     setScreen(helpScreen);
@@ -302,7 +442,7 @@ public class GDXRoot extends Game implements ScreenListener {
                     LastScreen = pauseScreen;
                     gameMode.pause();
                     settings.setScreenListener(this);
-                    settings.loadContent(manager);
+                    loadContent(settings);
                     settings.initUI();
                     setScreen(settings);
                     break;
@@ -326,7 +466,7 @@ public class GDXRoot extends Game implements ScreenListener {
                     if (currentLevel != 20) {
                         transitionMode.setCanvas(UIcanvas);
                         if (!TransitionLoaded) {
-                            transitionMode.loadContent(manager);
+                            loadContent(transitionMode);
                             transitionMode.initializeInterface();
                             TransitionLoaded = true;
                         }
@@ -344,7 +484,7 @@ public class GDXRoot extends Game implements ScreenListener {
                 case PauseMode.INTO_PAUSE:
                     gameMode.hide();
                     pauseScreen.setScreenListener(this);
-                    pauseScreen.loadContent(manager);
+                    loadContent(pauseScreen);
                     pauseScreen.initialize();
                     setScreen(pauseScreen);
             }
@@ -376,8 +516,9 @@ public class GDXRoot extends Game implements ScreenListener {
                             return;
                         }
                         gameMode.setLevel(levelSelector.getLevel(currentLevel));
-                        gameMode.loadContent(manager);
-                        gameMode.initializeContent(manager);
+                        loadContent(gameMode);
+                        initializeContent();
+                        prefetchNextTheme();
                         gameMode.reset();
                         setScreen(gameMode);
                     }
@@ -388,11 +529,49 @@ public class GDXRoot extends Game implements ScreenListener {
     }
 
 
+    /**
+     * Loads the content of a mode, recording it in the trace.
+     *
+     * @param mode The mode to load
+     */
+    private void loadContent(Mode mode) {
+        long start = Trace.begin();
+        mode.loadContent(manager);
+        Trace.end(mode.getClass().getSimpleName() + ".loadContent", "mode", start);
+    }
+
+    /**
+     * Initializes the game for the current level, recording it in the trace.
+     */
+    private void initializeContent() {
+        long start = Trace.begin();
+        gameMode.initializeContent(manager);
+        Trace.end("GameMode.initializeContent", "mode", start);
+    }
+
+    /**
+     * Prefetches the theme of the next levels, if it differs from the current one.
+     * <p>
+     * This is called whenever a level starts.  Once the player is within a few
+     * levels of the end of a theme, the assets of the next theme are queued, and
+     * stream in while this theme is played.
+     */
+    private void prefetchNextTheme() {
+        String current = levelSelector.getLevelType(currentLevel);
+        for (int ii = 1; ii <= PREFETCH_LEVELS; ii++) {
+            String next = levelSelector.getLevelType(currentLevel + ii);
+            if (current != null && next != null && !next.equals(current)) {
+                gameMode.prefetchTheme(manager, next);
+                return;
+            }
+        }
+    }
+
     public void setCutScene(int level) {
         switch (level) {
             case 6:
                 cutScene.setTheme(CutScene.THEME.CITY);
-                cutScene.loadContent(manager);
+                loadContent(cutScene);
                 cutScene.setScreenListener(this);
                 setScreen(cutScene);
                 isCityPlayed = true;
@@ -400,7 +579,7 @@ public class GDXRoot extends Game implements ScreenListener {
                 break;
             case 10:
                 cutScene.setTheme(CutScene.THEME.VILLAGE);
-                cutScene.loadContent(manager);
+                loadContent(cutScene);
                 cutScene.setScreenListener(this);
                 setScreen(cutScene);
                 isVillagePlayed = true;
@@ -408,7 +587,7 @@ public class GDXRoot extends Game implements ScreenListener {
                 break;
             case 14:
                 cutScene.setTheme(CutScene.THEME.FOREST);
-                cutScene.loadContent(manager);
+                loadContent(cutScene);
                 cutScene.setScreenListener(this);
                 setScreen(cutScene);
                 isForestPlayed = true;
@@ -416,7 +595,7 @@ public class GDXRoot extends Game implements ScreenListener {
                 break;
             case 21:
                 cutScene.setTheme(CutScene.THEME.END);
-                cutScene.loadContent(manager);
+                loadContent(cutScene);
                 cutScene.setScreenListener(this);
                 setScreen(cutScene);
                 break;
@@ -20,17 +20,24 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.*;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.*;
-import com.badlogic.gdx.physics.box2d.CircleShape;
-import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.*;
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.Scaling;
 import com.badlogic.gdx.utils.viewport.ScalingViewport;
 import util.FilmStrip;
+import util.OutlineCache;
+import util.Trace;
+
+import java.util.Comparator;
 
 /**
  * Primary view class for the game, abstracting the basic graphics calls.
@@ -55,7 +62,15 @@ public class GameCanvas {
         /**
          * We are drawing outlines
          */
-        DEBUG
+        DEBUG,
+        /**
+         * We are drawing a screen-space overlay
+         */
+        OVERLAY,
+        /**
+         * We are recording sprites into the static cache (or counting them)
+         */
+        CACHE
     }
 
     /**
@@ -85,6 +100,88 @@ public class GameCanvas {
     }
 
 
+    /**
+     * Width of a rope in world pixels
+     */
+    private static final float ROPE_WIDTH = 3.0f;
+    /**
+     * Number of rope vertices that can be queued (also the size of the sprite batch)
+     */
+    private static final int ROPE_VERTICES = 8000;
+    /**
+     * Floats per rope vertex (position, packed color, texture coordinates)
+     */
+    private static final int ROPE_VERTEX_SIZE = 5;
+
+    /**
+     * Sorted pass layer for scenery behind everything else (the exit)
+     */
+    public static final int LAYER_SCENERY = 0;
+    /**
+     * Sorted pass layer for the characters and items of the level (and their ropes)
+     */
+    public static final int LAYER_ACTORS = 1;
+    /**
+     * Sorted pass layer for platforms and hazards
+     */
+    public static final int LAYER_TERRAIN = 2;
+    /**
+     * Sorted pass layer for the player (and the player rope)
+     */
+    public static final int LAYER_PLAYER = 3;
+    /**
+     * Sorted pass layer for markers drawn over the world
+     */
+    public static final int LAYER_EFFECTS = 4;
+    /**
+     * Debug option to draw the joints between bodies
+     */
+    public static final int DEBUG_JOINTS = 1;
+    /**
+     * Debug option to draw the bounding box of every fixture
+     */
+    public static final int DEBUG_AABBS = 1 << 1;
+    /**
+     * Debug option to draw the points of touching contacts
+     */
+    public static final int DEBUG_CONTACTS = 1 << 2;
+    /**
+     * The half-width of a contact point marker (in pixels)
+     */
+    private static final float CONTACT_SIZE = 4.0f;
+    /**
+     * The default lower bound of the world render scale
+     */
+    public static final float DEFAULT_MIN_RENDER_SCALE = 0.5f;
+    /**
+     * The amount the world render scale changes in a single adjustment
+     */
+    private static final float RENDER_SCALE_STEP = 0.1f;
+    /**
+     * The frame time we try to stay under (in seconds)
+     */
+    private static final float TARGET_FRAME_TIME = 1.0f / 60.0f;
+    /**
+     * Average frame time (relative to the target) above which the scale drops
+     */
+    private static final float SLOW_FRAME_RATIO = 1.2f;
+    /**
+     * Average frame time (relative to the target) below which the scale may rise
+     */
+    private static final float FAST_FRAME_RATIO = 1.05f;
+    /**
+     * The number of frames averaged before each decision
+     */
+    private static final int SCALE_SAMPLE_FRAMES = 30;
+    /**
+     * The number of fast samples in a row needed to raise the scale
+     */
+    private static final int SCALE_RAISE_SAMPLES = 6;
+    /**
+     * Frames longer than this (in seconds) are hitches, and are not measured
+     */
+    private static final float MAX_SAMPLE_TIME = 0.25f;
+
     /**
      * Drawing context to handle textures AND POLYGONS as sprites
      */
@@ -96,12 +193,212 @@ public class GameCanvas {
      * Rendering context for the debug outlines
      */
     private ShapeRenderer debugRender;
+    /**
+     * Body-local outlines of the fixtures drawn in debug mode
+     */
+    private final OutlineCache outlines = new OutlineCache();
+    /**
+     * Buffer for a fixture outline transformed to the screen
+     */
+    private float[] debugVertices = new float[32];
+    /**
+     * The extra physics information drawn in debug mode (see the DEBUG constants)
+     */
+    private int debugOptions;
 
     /**
      * Rendering context for the debug outlines
      * TODO: change this into ??
      */
     private ShapeRenderer shapeRenderer;
+    /**
+     * Texture for ropes: opaque in the middle and clear at both edges, so that
+     * filtering blends the long edges of a rope into the background
+     */
+    private Texture ropeTexture;
+    /**
+     * Queued rope vertices, drawn together by flushRopes
+     */
+    private final float[] ropeVertices = new float[ROPE_VERTICES * ROPE_VERTEX_SIZE];
+    /**
+     * Triangle indices into the queued rope vertices
+     */
+    private final short[] ropeTriangles = new short[ROPE_VERTICES * 3];
+    /**
+     * The number of queued rope vertices
+     */
+    private int ropeVertexCount;
+    /**
+     * The number of queued rope triangle indices
+     */
+    private int ropeIndexCount;
+    /**
+     * The queued ropes, as (first vertex, vertex count, first index, index count)
+     */
+    private final IntArray ropeRanges = new IntArray();
+
+    /**
+     * A draw recorded by a sorted pass (see beginSorted)
+     */
+    private static class RenderCommand {
+        /**
+         * A texture region, transformed as by draw(region, tint, ox, oy, x, y, angle, sx, sy)
+         */
+        static final int REGION = 0;
+        /**
+         * A polygon region, transformed the same way
+         */
+        static final int POLYGON = 1;
+        /**
+         * A texture region stretched over a rectangle (x, y, sx by sy)
+         */
+        static final int RECT = 2;
+        /**
+         * A queued rope
+         */
+        static final int ROPE = 3;
+        /**
+         * Chunks of the static sprite cache
+         */
+        static final int CACHE = 4;
+        /**
+         * A texture region placed by an affine transform
+         */
+        static final int AFFINE = 5;
+        /**
+         * A polygon region placed by an affine transform
+         */
+        static final int POLYGON_AFFINE = 6;
+
+        int kind;
+        int layer;
+        /**
+         * Sort key of the texture (ropes after, and caches before, all sprites)
+         */
+        int texture;
+        int blend;
+        /**
+         * The order in which the command was recorded
+         */
+        int order;
+        /**
+         * A copy of the region drawn (a filmstrip may change frame before the draw)
+         */
+        final TextureRegion region = new TextureRegion();
+        PolygonRegion polygon;
+        /**
+         * The transform of an affine draw, with the origin already applied
+         */
+        final Affine2 affine = new Affine2();
+        IntArray chunks;
+        int rope;
+        float color;
+        float ox;
+        float oy;
+        float x;
+        float y;
+        float angle;
+        float sx;
+        float sy;
+    }
+
+    /**
+     * Orders commands by layer, then texture, then blend state, then recording order
+     */
+    private static final Comparator<RenderCommand> RENDER_ORDER = new Comparator<RenderCommand>() {
+        @Override
+        public int compare(RenderCommand a, RenderCommand b) {
+            if (a.layer != b.layer) {
+                return a.layer < b.layer ? -1 : 1;
+            }
+            if (a.texture != b.texture) {
+                return a.texture < b.texture ? -1 : 1;
+            }
+            if (a.blend != b.blend) {
+                return a.blend - b.blend;
+            }
+            return a.order - b.order;
+        }
+    };
+    /**
+     * The blend states, cached to avoid the copy made by values()
+     */
+    private static final BlendState[] BLEND_VALUES = BlendState.values();
+
+    /**
+     * The draws recorded this sorted pass (reused from frame to frame)
+     */
+    private final Array<RenderCommand> renderCommands = new Array<>();
+    /**
+     * The recorded draws in submission order
+     */
+    private final Array<RenderCommand> renderOrder = new Array<>();
+    /**
+     * The number of recorded draws
+     */
+    private int renderCount;
+    /**
+     * Whether the current standard pass records its draws for sorting
+     */
+    private boolean sorted;
+    /**
+     * The layer of draws recorded in the sorted pass
+     */
+    private int layer;
+    /**
+     * A queued screen-space draw (see drawUI)
+     */
+    private static class UICommand {
+        /**
+         * A texture centered at (x, y), scaled by scale
+         */
+        static final int TEXTURE = 0;
+        /**
+         * Text in the default font, at font scale scale
+         */
+        static final int TEXT = 1;
+        /**
+         * Text in the small font
+         */
+        static final int SMALL_TEXT = 2;
+        /**
+         * Text in the default font, in black
+         */
+        static final int BLACK_TEXT = 3;
+        /**
+         * A scene2d stage
+         */
+        static final int STAGE = 4;
+
+        int kind;
+        TextureRegion region;
+        CharSequence text;
+        Stage stage;
+        float x;
+        float y;
+        float scale;
+    }
+
+    /**
+     * The screen-space draws queued this pass (reused from frame to frame)
+     */
+    private final Array<UICommand> uiCommands = new Array<>();
+    /**
+     * The number of queued screen-space draws
+     */
+    private int uiCount;
+    /**
+     * Cache of the sprites that never move in the current level (null if none)
+     */
+    private SpriteCache staticCache;
+    /**
+     * Whether the cache pass only counts sprites, rather than recording them
+     */
+    private boolean countOnly;
+    /**
+     * The number of sprites counted in the cache pass
+     */
+    private int cacheCount;
     /**
      * Track whether or not we are active (for error checking)
      */
@@ -110,7 +407,7 @@ public class GameCanvas {
     /**
      * The current color blending mode
      */
-    private BlendState blend;
+    private BlendState blend = BlendState.NO_PREMULT;
 
     /**
      * Camera for the underlying SpriteBatch
@@ -121,6 +418,43 @@ public class GameCanvas {
      * The Viewport used to manage the camera
      */
     private ScalingViewport viewport;
+
+    /**
+     * The offscreen buffer for the world pass (created on first use)
+     */
+    private FrameBuffer worldBuffer;
+    /**
+     * The fraction of the screen resolution used for the world pass
+     */
+    private float renderScale = 1.0f;
+    /**
+     * The smallest scale the adaptive controller may choose
+     */
+    private float minRenderScale = DEFAULT_MIN_RENDER_SCALE;
+    /**
+     * Whether the render scale is fixed rather than adapted to the frame time
+     */
+    private boolean renderScalePinned;
+    /**
+     * Whether the world pass is currently drawing into the world buffer
+     */
+    private boolean worldTarget;
+    /**
+     * The sum of the frame times in the current sample
+     */
+    private float frameTimeSum;
+    /**
+     * The number of frame times in the current sample
+     */
+    private int frameTimeCount;
+    /**
+     * The number of fast samples in a row
+     */
+    private int fastSamples;
+    /**
+     * Projection for copying the world buffer to the screen
+     */
+    private final Matrix4 bufferProjection = new Matrix4().setToOrtho2D(0, 0, 1, 1);
     /**
      * Value to cache window width (if we are currently full screen)
      */
@@ -156,6 +490,15 @@ public class GameCanvas {
 
     private final BitmapFont selectorFont;
 
+    /**
+     * Font for overlay text (created on first use)
+     */
+    private BitmapFont overlayFont;
+    /**
+     * Whether the overlay pass is currently drawing text (rather than shapes)
+     */
+    private boolean overlayText;
+
     /**
      * Creates a new game.GameCanvas determined by the application configuration.
      * <p>
@@ -166,10 +509,19 @@ public class GameCanvas {
     public GameCanvas(boolean UI) {
 
         active = DrawPass.INACTIVE;
-        spriteBatch = new PolygonSpriteBatch();
+        spriteBatch = new PolygonSpriteBatch(ROPE_VERTICES);
         UIBatch = new PolygonSpriteBatch();
         debugRender = new ShapeRenderer();
         shapeRenderer = new ShapeRenderer();
+
+        Pixmap pixmap = new Pixmap(1, 8, Pixmap.Format.RGBA8888);
+        for (int y = 0; y < pixmap.getHeight(); y++) {
+            boolean edge = y == 0 || y == pixmap.getHeight() - 1;
+            pixmap.drawPixel(0, y, edge ? 0xffffff00 : 0xffffffff);
+        }
+        ropeTexture = new Texture(pixmap);
+        ropeTexture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        pixmap.dispose();
         // Set the projection matrix (for proper scaling)
 
         camera = new OrthographicCamera(getWidth(), getHeight());
@@ -193,17 +545,52 @@ public class GameCanvas {
         cacheVector3 = new Vector3();
         cacheVector2 = new Vector2();
         vertex = new Vector2();
+        long start = Trace.begin();
         FreeTypeFontGenerator generator = new FreeTypeFontGenerator(Gdx.files.internal("ui/BalooThambi.ttf"));
         FreeTypeFontGenerator.FreeTypeFontParameter parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
         parameter.size = 50;
         font = generator.generateFont(parameter);
+        Trace.end("GameCanvas.font", "font", start, "ui/BalooThambi.ttf");
+        start = Trace.begin();
         generator = new FreeTypeFontGenerator(Gdx.files.internal("ui/BalooThambi.ttf"));
         parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
         parameter.size = 30;
         selectorFont = generator.generateFont(parameter);
+        Trace.end("GameCanvas.selectorFont", "font", start, "ui/BalooThambi.ttf");
 //        GlyphLayout layout = new GlyphLayout(font, text);
     }
 
+    /**
+     * Creates a game.GameCanvas of the given size with no graphics resources.
+     * <p>
+     * Only the camera and viewport are initialized; no batches, renderers, stage
+     * or fonts are created.  This is for subclasses that run without an OpenGL
+     * context, such as the headless simulation canvas.
+     *
+     * @param width  the canvas width
+     * @param height the canvas height
+     */
+    protected GameCanvas(int width, int height) {
+        active = DrawPass.INACTIVE;
+        this.width = width;
+        this.height = height;
+
+        camera = new OrthographicCamera(width, height);
+        camera.setToOrtho(false, width, height);
+        viewport = new ScalingViewport(Scaling.fit, width * 3 / 5, height * 3 / 5, camera);
+        stage = null;
+        font = null;
+        selectorFont = null;
+
+        // Initialize the cache objects
+        holder = new TextureRegion();
+        local = new Affine2();
+        global = new Matrix4();
+        cacheVector3 = new Vector3();
+        cacheVector2 = new Vector2();
+        vertex = new Vector2();
+    }
+
     /**
      * Eliminate any resources that should be garbage collected manually.
      */
@@ -214,6 +601,17 @@ public class GameCanvas {
         }
         spriteBatch.dispose();
         spriteBatch = null;
+        ropeTexture.dispose();
+        ropeTexture = null;
+        clearStaticCache();
+        if (worldBuffer != null) {
+            worldBuffer.dispose();
+            worldBuffer = null;
+        }
+        if (overlayFont != null) {
+            overlayFont.dispose();
+            overlayFont = null;
+        }
         local = null;
         global = null;
         vertex = null;
@@ -221,6 +619,10 @@ public class GameCanvas {
     }
 
     private final Vector2 positionCache = new Vector2();
+    /**
+     * Cache for the view of the camera when drawing backgrounds
+     */
+    private final Rectangle viewCache = new Rectangle();
 
     /**
      * Private method to process the wrap offset of an image.
@@ -487,76 +889,291 @@ public class GameCanvas {
         active = DrawPass.STANDARD;
     }
 
+    /**
+     * Start a sorted drawing sequence.
+     * <p>
+     * This is a standard pass, except that sprites, ropes and static cache
+     * chunks are not drawn at once.  They are recorded with the current layer
+     * (see setLayer) and drawn at end(), sorted by layer, then texture, then
+     * blend state.  Layers are drawn in increasing order, so they keep the
+     * layering of the scene, while draws in the same layer are grouped by
+     * texture so that the batch flushes as rarely as possible.  Within a layer,
+     * ropes are drawn after the sprites and cache chunks before them.  Only the
+     * transformed region and polygon draws, the rectangle region draws, ropes
+     * and static chunks are recorded; other draws happen immediately.
+     */
+    public void beginSorted() {
+        begin();
+        sorted = true;
+        layer = LAYER_SCENERY;
+        renderCount = 0;
+    }
+
+    /**
+     * Sets the layer of subsequent draws in a sorted pass.
+     * <p>
+     * Layers are drawn in increasing order (see the LAYER constants).
+     *
+     * @param layer the layer of subsequent draws
+     */
+    public void setLayer(int layer) {
+        this.layer = layer;
+    }
+
     /**
      * Ends a drawing sequence, flushing textures to the graphics card.
      */
     public void end() {
+        if (sorted) {
+            submitQueue();
+            sorted = false;
+        }
+        flushRopes();
         spriteBatch.end();
+        if (!worldTarget) {
+            flushUI();
+        }
         active = DrawPass.INACTIVE;
     }
 
     /**
-     * Draws the tinted texture at the given position.
-     * <p>
-     * The texture colors will be multiplied by the given color.  This will turn
-     * any white into the given color.  Other colors will be similarly affected.
-     * <p>
-     * Unless otherwise transformed by the global transform (@see begin(Affine2)),
-     * the texture will be unscaled.  The bottom left of the texture will be positioned
-     * at the given coordinates.
+     * Returns the fraction of the screen resolution used for the world.
      *
-     * @param image The texture to draw
-     * @param x     The x-coordinate of the bottom left corner
-     * @param y     The y-coordinate of the bottom left corner
+     * @return the fraction of the screen resolution used for the world
      */
-    public void draw(Texture image, float x, float y) {
-        if (active != DrawPass.STANDARD) {
-            Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
-            return;
-        }
-
-        // Unlike Lab 1, we can shortcut without a master drawing method
-        spriteBatch.setColor(Color.WHITE);
-        spriteBatch.draw(image, x, y);
+    public float getRenderScale() {
+        return renderScale;
     }
 
     /**
-     * Draws the tinted texture at the given position.
+     * Fixes the fraction of the screen resolution used for the world.
      * <p>
-     * The texture colors will be multiplied by the given color.  This will turn
-     * any white into the given color.  Other colors will be similarly affected.
+     * The scale no longer adapts to the frame time until unpinRenderScale() is
+     * called.  A scale of 1 draws the world straight to the screen.
+     *
+     * @param scale the fraction of the screen resolution (clamped to (0,1])
+     */
+    public void pinRenderScale(float scale) {
+        renderScale = MathUtils.clamp(scale, 0.1f, 1.0f);
+        renderScalePinned = true;
+    }
+
+    /**
+     * Lets the render scale adapt to the frame time again.
      * <p>
-     * Unless otherwise transformed by the global transform (@see begin(Affine2)),
-     * the texture will be unscaled.  The bottom left of the texture will be positioned
-     * at the given coordinates.
+     * Adapting starts from the current scale.
+     */
+    public void unpinRenderScale() {
+        renderScalePinned = false;
+        frameTimeSum = 0;
+        frameTimeCount = 0;
+        fastSamples = 0;
+    }
+
+    /**
+     * Returns true if the render scale is fixed.
      *
-     * @param image  The texture to draw
-     * @param tint   The color tint
-     * @param x      The x-coordinate of the bottom left corner
-     * @param y      The y-coordinate of the bottom left corner
-     * @param width  The texture width
-     * @param height The texture height
+     * @return true if the render scale is fixed
      */
-    public void draw(Texture image, Color tint, float x, float y, float width, float height) {
-        if (active != DrawPass.STANDARD) {
-            Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
-            return;
-        }
+    public boolean isRenderScalePinned() {
+        return renderScalePinned;
+    }
 
-        // Unlike Lab 1, we can shortcut without a master drawing method
-        spriteBatch.setColor(tint);
-        spriteBatch.draw(image, x, y, width, height);
+    /**
+     * Returns the smallest scale the adaptive controller may choose.
+     *
+     * @return the smallest scale the adaptive controller may choose
+     */
+    public float getMinRenderScale() {
+        return minRenderScale;
     }
 
     /**
-     * Draws the tinted texture at the given position.
-     * <p>
-     * The texture colors will be multiplied by the given color.  This will turn
-     * any white into the given color.  Other colors will be similarly affected.
+     * Sets the smallest scale the adaptive controller may choose.
      * <p>
-     * Unless otherwise transformed by the global transform (@see begin(Affine2)),
-     * the texture will be unscaled.  The bottom left of the texture will be positioned
-     * at the given coordinates.
+     * A minimum of 1 turns dynamic resolution off.  This does not affect a
+     * pinned scale.
+     *
+     * @param scale the smallest scale (clamped to (0,1])
+     */
+    public void setMinRenderScale(float scale) {
+        minRenderScale = MathUtils.clamp(scale, 0.1f, 1.0f);
+        if (!renderScalePinned && renderScale < minRenderScale) {
+            renderScale = minRenderScale;
+        }
+    }
+
+    /**
+     * Starts drawing the world at the current render scale.
+     * <p>
+     * Every pass until endWorld() draws into an offscreen buffer that is the
+     * render scale times the size of the viewport.  The camera is unchanged, so
+     * the world covers the buffer exactly as it would cover the screen.  Screen
+     * space draws queued by these passes are held back until endWorld(), so that
+     * the HUD is drawn at full resolution.
+     * <p>
+     * Unless the scale is pinned, this also measures the frame time and adjusts
+     * the scale.  There is no portable way to time the GPU, so we time the whole
+     * frame: a fill-rate bound frame shows up as a long frame, because swapping
+     * buffers waits for the GPU.  The scale drops quickly when frames are slow,
+     * and rises slowly once they have been fast for a while, so that it does not
+     * oscillate.  At a scale of 1 the world is drawn straight to the screen.
+     * <p>
+     * This must be called outside of any other drawing pass.
+     */
+    public void beginWorld() {
+        if (!renderScalePinned) {
+            adaptRenderScale(Gdx.graphics.getRawDeltaTime());
+        }
+        if (renderScale >= 1.0f) {
+            return;
+        }
+
+        int w = Math.max(1, Math.round(viewport.getScreenWidth() * renderScale));
+        int h = Math.max(1, Math.round(viewport.getScreenHeight() * renderScale));
+        if (worldBuffer == null || worldBuffer.getWidth() != w || worldBuffer.getHeight() != h) {
+            if (worldBuffer != null) {
+                worldBuffer.dispose();
+            }
+            worldBuffer = new FrameBuffer(Pixmap.Format.RGBA8888, w, h, false);
+            worldBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        }
+        worldBuffer.begin();
+        Gdx.gl.glClearColor(0, 0, 0, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        worldTarget = true;
+    }
+
+    /**
+     * Ends drawing the world, scaling it up to the screen.
+     * <p>
+     * The buffer is stretched over the area of the viewport, and then any screen
+     * space draws held back since beginWorld() are drawn at full resolution.
+     * <p>
+     * This must be called outside of any other drawing pass.
+     */
+    public void endWorld() {
+        if (!worldTarget) {
+            return;
+        }
+        worldTarget = false;
+        worldBuffer.end(viewport.getScreenX(), viewport.getScreenY(),
+                viewport.getScreenWidth(), viewport.getScreenHeight());
+
+        // The buffer is upside down as a texture, so v runs from the bottom
+        spriteBatch.setProjectionMatrix(bufferProjection);
+        spriteBatch.setColor(Color.WHITE);
+        spriteBatch.disableBlending();
+        spriteBatch.begin();
+        spriteBatch.draw(worldBuffer.getColorBufferTexture(), 0, 0, 1, 1, 0, 0, 1, 1);
+        spriteBatch.end();
+        spriteBatch.enableBlending();
+        flushUI();
+    }
+
+    /**
+     * Adds a frame time to the current sample, and adjusts the render scale once
+     * the sample is complete.
+     *
+     * @param frameTime the time of the last frame (in seconds)
+     */
+    private void adaptRenderScale(float frameTime) {
+        if (frameTime <= 0 || frameTime > MAX_SAMPLE_TIME) {
+            return;
+        }
+        frameTimeSum += frameTime;
+        if (++frameTimeCount < SCALE_SAMPLE_FRAMES) {
+            return;
+        }
+        float ratio = frameTimeSum / frameTimeCount / TARGET_FRAME_TIME;
+        frameTimeSum = 0;
+        frameTimeCount = 0;
+
+        if (ratio > SLOW_FRAME_RATIO) {
+            fastSamples = 0;
+            renderScale = Math.max(minRenderScale, renderScale - RENDER_SCALE_STEP);
+        } else if (ratio < FAST_FRAME_RATIO && renderScale < 1.0f) {
+            if (++fastSamples >= SCALE_RAISE_SAMPLES) {
+                fastSamples = 0;
+                renderScale = Math.min(1.0f, renderScale + RENDER_SCALE_STEP);
+            }
+        } else {
+            fastSamples = 0;
+        }
+    }
+
+    /**
+     * Draws the tinted texture at the given position.
+     * <p>
+     * The texture colors will be multiplied by the given color.  This will turn
+     * any white into the given color.  Other colors will be similarly affected.
+     * <p>
+     * Unless otherwise transformed by the global transform (@see begin(Affine2)),
+     * the texture will be unscaled.  The bottom left of the texture will be positioned
+     * at the given coordinates.
+     *
+     * @param image The texture to draw
+     * @param x     The x-coordinate of the bottom left corner
+     * @param y     The y-coordinate of the bottom left corner
+     */
+    public void draw(Texture image, float x, float y) {
+        if (active != DrawPass.STANDARD) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+            return;
+        }
+        if (sorted) {
+            holder.setRegion(image);
+            queueRect(holder, Color.WHITE, x, y, image.getWidth(), image.getHeight());
+            return;
+        }
+
+        // Unlike Lab 1, we can shortcut without a master drawing method
+        spriteBatch.setColor(Color.WHITE);
+        spriteBatch.draw(image, x, y);
+    }
+
+    /**
+     * Draws the tinted texture at the given position.
+     * <p>
+     * The texture colors will be multiplied by the given color.  This will turn
+     * any white into the given color.  Other colors will be similarly affected.
+     * <p>
+     * Unless otherwise transformed by the global transform (@see begin(Affine2)),
+     * the texture will be unscaled.  The bottom left of the texture will be positioned
+     * at the given coordinates.
+     *
+     * @param image  The texture to draw
+     * @param tint   The color tint
+     * @param x      The x-coordinate of the bottom left corner
+     * @param y      The y-coordinate of the bottom left corner
+     * @param width  The texture width
+     * @param height The texture height
+     */
+    public void draw(Texture image, Color tint, float x, float y, float width, float height) {
+        if (active != DrawPass.STANDARD) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+            return;
+        }
+        if (sorted) {
+            holder.setRegion(image);
+            queueRect(holder, tint, x, y, width, height);
+            return;
+        }
+
+        // Unlike Lab 1, we can shortcut without a master drawing method
+        spriteBatch.setColor(tint);
+        spriteBatch.draw(image, x, y, width, height);
+    }
+
+    /**
+     * Draws the tinted texture at the given position.
+     * <p>
+     * The texture colors will be multiplied by the given color.  This will turn
+     * any white into the given color.  Other colors will be similarly affected.
+     * <p>
+     * Unless otherwise transformed by the global transform (@see begin(Affine2)),
+     * the texture will be unscaled.  The bottom left of the texture will be positioned
+     * at the given coordinates.
      *
      * @param image  The texture to draw
      * @param tint   The color tint
@@ -666,6 +1283,10 @@ public class GameCanvas {
             Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
             return;
         }
+        if (sorted) {
+            queueRect(region, Color.WHITE, x, y, region.getRegionWidth(), region.getRegionHeight());
+            return;
+        }
 
         // Unlike Lab 1, we can shortcut without a master drawing method
         spriteBatch.setColor(Color.WHITE);
@@ -694,6 +1315,10 @@ public class GameCanvas {
             Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
             return;
         }
+        if (sorted) {
+            queueRect(region, tint, x, y, width, height);
+            return;
+        }
 
         // Unlike Lab 1, we can shortcut without a master drawing method
         spriteBatch.setColor(tint);
@@ -724,6 +1349,10 @@ public class GameCanvas {
             Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
             return;
         }
+        if (sorted) {
+            queueRect(region, tint, x - ox, y - oy, width, height);
+            return;
+        }
 
         // Unlike Lab 1, we can shortcut without a master drawing method
         spriteBatch.setColor(tint);
@@ -759,11 +1388,22 @@ public class GameCanvas {
      */
     public void draw(TextureRegion region, Color tint, float ox, float oy,
                      float x, float y, float angle, float sx, float sy) {
+        if (active == DrawPass.CACHE) {
+            cacheSprite(region, tint, ox, oy, x, y, angle, sx, sy);
+            return;
+        }
         if (active != DrawPass.STANDARD) {
             Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
             return;
         }
 
+        if (sorted) {
+            RenderCommand command = queueRender(RenderCommand.REGION, region.getTexture().getTextureObjectHandle());
+            command.region.setRegion(region);
+            setTransform(command, tint, ox, oy, x, y, angle, sx, sy);
+            return;
+        }
+
         // BUG: The draw command for texture regions does not work properly.
         // There is a workaround, but it will break if the bug is fixed.
         // For now, it is better to set the affine transform directly.
@@ -800,6 +1440,13 @@ public class GameCanvas {
 
         local.set(affine);
         local.translate(-ox, -oy);
+        if (sorted) {
+            RenderCommand command = queueRender(RenderCommand.AFFINE, region.getTexture().getTextureObjectHandle());
+            command.region.setRegion(region);
+            command.affine.set(local);
+            command.color = tint.toFloatBits();
+            return;
+        }
         spriteBatch.setColor(tint);
         spriteBatch.draw(region, region.getRegionWidth(), region.getRegionHeight(), local);
     }
@@ -829,6 +1476,10 @@ public class GameCanvas {
             Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
             return;
         }
+        if (sorted) {
+            queuePolygon(region, Color.WHITE, x, y, 1, 1);
+            return;
+        }
 
         // Unlike Lab 1, we can shortcut without a master drawing method
         spriteBatch.setColor(Color.WHITE);
@@ -863,6 +1514,11 @@ public class GameCanvas {
             Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
             return;
         }
+        if (sorted) {
+            TextureRegion bounds = region.getRegion();
+            queuePolygon(region, tint, x, y, width / bounds.getRegionWidth(), height / bounds.getRegionHeight());
+            return;
+        }
 
         // Unlike Lab 1, we can shortcut without a master drawing method
         spriteBatch.setColor(tint);
@@ -899,6 +1555,12 @@ public class GameCanvas {
             Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
             return;
         }
+        if (sorted) {
+            TextureRegion bounds = region.getRegion();
+            queuePolygon(region, tint, x - ox, y - oy,
+                    width / bounds.getRegionWidth(), height / bounds.getRegionHeight());
+            return;
+        }
 
         // Unlike Lab 1, we can shortcut without a master drawing method
         spriteBatch.setColor(tint);
@@ -938,6 +1600,14 @@ public class GameCanvas {
             return;
         }
 
+        if (sorted) {
+            RenderCommand command = queueRender(RenderCommand.POLYGON,
+                    region.getRegion().getTexture().getTextureObjectHandle());
+            command.polygon = region;
+            setTransform(command, tint, ox, oy, x, y, angle, sx, sy);
+            return;
+        }
+
         TextureRegion bounds = region.getRegion();
         spriteBatch.setColor(tint);
         spriteBatch.draw(region, x, y, ox, oy,
@@ -975,6 +1645,14 @@ public class GameCanvas {
 
         local.set(affine);
         local.translate(-ox, -oy);
+        if (sorted) {
+            RenderCommand command = queueRender(RenderCommand.POLYGON_AFFINE,
+                    region.getRegion().getTexture().getTextureObjectHandle());
+            command.polygon = region;
+            command.affine.set(local);
+            command.color = tint.toFloatBits();
+            return;
+        }
         computeVertices(local, region.getVertices());
 
         spriteBatch.setColor(tint);
@@ -1050,6 +1728,7 @@ public class GameCanvas {
 
         GlyphLayout layout = new GlyphLayout(font, text);
         shapeRenderer.setProjectionMatrix(camera.combined);
+        flushRopes();
         spriteBatch.end();
         shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
         Gdx.gl.glEnable(GL20.GL_BLEND);
@@ -1146,6 +1825,169 @@ public class GameCanvas {
         active = DrawPass.INACTIVE;
     }
 
+    /**
+     * Returns the extra physics information drawn in debug mode.
+     *
+     * @return the extra physics information drawn in debug mode
+     */
+    public int getDebugOptions() {
+        return debugOptions;
+    }
+
+    /**
+     * Sets the extra physics information drawn in debug mode.
+     * <p>
+     * The value is a combination of DEBUG_JOINTS, DEBUG_AABBS and DEBUG_CONTACTS.
+     * Bounding boxes are drawn by drawPhysics(Body), while joints and contacts
+     * are drawn by their own drawPhysics methods.
+     *
+     * @param options the extra physics information drawn in debug mode
+     */
+    public void setDebugOptions(int options) {
+        debugOptions = options;
+    }
+
+    /**
+     * Forgets the cached fixture outlines.
+     * <p>
+     * This should be called whenever the physics world is destroyed.
+     */
+    public void clearPhysicsOutlines() {
+        outlines.clear();
+    }
+
+    /**
+     * Draws the outline of every fixture of the given body.
+     * <p>
+     * The outlines are cached in body coordinates the first time a fixture is
+     * drawn, so each frame only applies the body transform.  Sensors are drawn in
+     * red and everything else in yellow.  If DEBUG_AABBS is set, the bounding box
+     * of each fixture is drawn as well.
+     *
+     * @param body The Box2d body
+     * @param sx   The amount to scale the x-axis
+     * @param sy   The amount to scale the y-axis
+     */
+    public void drawPhysics(Body body, float sx, float sy) {
+        if (active != DrawPass.DEBUG) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active beginDebug()", new IllegalStateException());
+            return;
+        }
+
+        float[] xf = body.getTransform().vals;
+        float px = xf[Transform.POS_X];
+        float py = xf[Transform.POS_Y];
+        float cos = xf[Transform.COS];
+        float sin = xf[Transform.SIN];
+        boolean bounds = (debugOptions & DEBUG_AABBS) != 0;
+        Array<Fixture> fixtures = body.getFixtureList();
+        for (int ii = 0; ii < fixtures.size; ii++) {
+            Fixture fixture = fixtures.get(ii);
+            OutlineCache.Outline outline = outlines.get(fixture);
+            int count = outline.count;
+            if (count < 4) {
+                continue;
+            }
+            if (debugVertices.length < count) {
+                debugVertices = new float[count];
+            }
+
+            float[] local = outline.vertices;
+            float left = Float.MAX_VALUE;
+            float bottom = Float.MAX_VALUE;
+            float right = -Float.MAX_VALUE;
+            float top = -Float.MAX_VALUE;
+            for (int jj = 0; jj < count; jj += 2) {
+                float x = (px + cos * local[jj] - sin * local[jj + 1]) * sx;
+                float y = (py + sin * local[jj] + cos * local[jj + 1]) * sy;
+                debugVertices[jj] = x;
+                debugVertices[jj + 1] = y;
+                left = Math.min(left, x);
+                bottom = Math.min(bottom, y);
+                right = Math.max(right, x);
+                top = Math.max(top, y);
+            }
+
+            debugRender.setColor(fixture.isSensor() ? Color.RED : Color.YELLOW);
+            if (outline.closed && count >= 6) {
+                debugRender.polygon(debugVertices, 0, count);
+            } else {
+                debugRender.polyline(debugVertices, 0, count);
+            }
+            if (bounds) {
+                debugRender.setColor(Color.CYAN);
+                debugRender.rect(left, bottom, right - left, top - bottom);
+            }
+        }
+    }
+
+    /**
+     * Draws the given joint, if DEBUG_JOINTS is set.
+     * <p>
+     * The joint is drawn as a path from the first body, through the two anchors,
+     * to the second body.
+     *
+     * @param joint The Box2d joint
+     * @param sx    The amount to scale the x-axis
+     * @param sy    The amount to scale the y-axis
+     */
+    public void drawPhysics(Joint joint, float sx, float sy) {
+        if (active != DrawPass.DEBUG) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active beginDebug()", new IllegalStateException());
+            return;
+        }
+        if ((debugOptions & DEBUG_JOINTS) == 0) {
+            return;
+        }
+
+        Vector2 pos = joint.getBodyA().getPosition();
+        float ax = pos.x * sx;
+        float ay = pos.y * sy;
+        pos = joint.getBodyB().getPosition();
+        float bx = pos.x * sx;
+        float by = pos.y * sy;
+        pos = joint.getAnchorA();
+        float x0 = pos.x * sx;
+        float y0 = pos.y * sy;
+        pos = joint.getAnchorB();
+        float x1 = pos.x * sx;
+        float y1 = pos.y * sy;
+
+        debugRender.setColor(Color.GREEN);
+        debugRender.line(ax, ay, x0, y0);
+        debugRender.line(x0, y0, x1, y1);
+        debugRender.line(x1, y1, bx, by);
+    }
+
+    /**
+     * Draws the points of the given contact, if DEBUG_CONTACTS is set.
+     * <p>
+     * Only touching contacts have points.  Each point is drawn as a small cross.
+     *
+     * @param contact The Box2d contact
+     * @param sx      The amount to scale the x-axis
+     * @param sy      The amount to scale the y-axis
+     */
+    public void drawPhysics(Contact contact, float sx, float sy) {
+        if (active != DrawPass.DEBUG) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active beginDebug()", new IllegalStateException());
+            return;
+        }
+        if ((debugOptions & DEBUG_CONTACTS) == 0 || !contact.isTouching()) {
+            return;
+        }
+
+        WorldManifold manifold = contact.getWorldManifold();
+        Vector2[] points = manifold.getPoints();
+        debugRender.setColor(Color.MAGENTA);
+        for (int ii = 0; ii < manifold.getNumberOfContactPoints(); ii++) {
+            float x = points[ii].x * sx;
+            float y = points[ii].y * sy;
+            debugRender.line(x - CONTACT_SIZE, y - CONTACT_SIZE, x + CONTACT_SIZE, y + CONTACT_SIZE);
+            debugRender.line(x - CONTACT_SIZE, y + CONTACT_SIZE, x + CONTACT_SIZE, y - CONTACT_SIZE);
+        }
+    }
+
     /**
      * Draws the outline of the given shape in the specified color
      *
@@ -1338,58 +2180,561 @@ public class GameCanvas {
         local.translate(-ox, -oy);
     }
 
-    public void drawCatmullRom(CatmullRomSpline<Vector2> catmull, Color tint, int k, Vector2[] points) {
-        shapeRenderer.setProjectionMatrix(camera.combined);
+    /**
+     * Returns the number of times the sprite batches have flushed to the graphics card.
+     * <p>
+     * Each flush is one draw call.  The count covers both the world and the UI
+     * batch, and accumulates until resetRenderCalls() is called.
+     *
+     * @return the number of sprite batch flushes since the last reset
+     */
+    public int getRenderCalls() {
+        return spriteBatch.totalRenderCalls + UIBatch.totalRenderCalls;
+    }
+
+    /**
+     * Resets the count returned by getRenderCalls().
+     */
+    public void resetRenderCalls() {
+        spriteBatch.totalRenderCalls = 0;
+        UIBatch.totalRenderCalls = 0;
+    }
+
+    /**
+     * Start a screen-space overlay drawing sequence.
+     * <p>
+     * The overlay is drawn on top of everything else, in pixel coordinates with the
+     * origin at the bottom left of the screen.  It is for development tools (such as
+     * the frame profiler), so it uses a built-in font rather than the game fonts.
+     * This must not be called inside of any other drawing pass.
+     */
+    public void beginOverlay() {
+        if (overlayFont == null) {
+            overlayFont = new BitmapFont();
+        }
+        shapeRenderer.setProjectionMatrix(UIBatch.getProjectionMatrix());
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        overlayText = false;
+        active = DrawPass.OVERLAY;
+    }
+
+    /**
+     * Draws a solid rectangle in the overlay.
+     *
+     * @param x      The x-coordinate of the bottom left corner (in pixels)
+     * @param y      The y-coordinate of the bottom left corner (in pixels)
+     * @param width  The rectangle width (in pixels)
+     * @param height The rectangle height (in pixels)
+     * @param color  The fill color
+     */
+    public void drawOverlayRect(float x, float y, float width, float height, Color color) {
+        if (active != DrawPass.OVERLAY) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active beginOverlay()", new IllegalStateException());
+            return;
+        }
+        if (overlayText) {
+            UIBatch.end();
+            shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+            overlayText = false;
+        }
+        shapeRenderer.setColor(color);
+        shapeRenderer.rect(x, y, width, height);
+    }
+
+    /**
+     * Draws a line of text in the overlay.
+     * <p>
+     * Consecutive text calls share a batch, so draw all of the shapes first.
+     *
+     * @param text  The text to draw (this is not retained)
+     * @param x     The x-coordinate of the top left corner (in pixels)
+     * @param y     The y-coordinate of the top left corner (in pixels)
+     * @param color The text color
+     */
+    public void drawOverlayText(CharSequence text, float x, float y, Color color) {
+        if (active != DrawPass.OVERLAY) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active beginOverlay()", new IllegalStateException());
+            return;
+        }
+        if (!overlayText) {
+            shapeRenderer.end();
+            UIBatch.begin();
+            overlayText = true;
+        }
+        overlayFont.setColor(color);
+        overlayFont.draw(UIBatch, text, x, y);
+    }
+
+    /**
+     * Ends the overlay drawing sequence, flushing it to the graphics card.
+     */
+    public void endOverlay() {
+        if (overlayText) {
+            UIBatch.end();
+        } else {
+            shapeRenderer.end();
+        }
+        active = DrawPass.INACTIVE;
+    }
+
+    /**
+     * Starts a pass that counts sprites instead of drawing them.
+     * <p>
+     * This is the first half of baking static sprites: draw every object to be
+     * baked inside this pass to learn how large the cache must be.  It must not
+     * be called inside of any other drawing pass.
+     */
+    public void beginSpriteCount() {
+        countOnly = true;
+        cacheCount = 0;
+        active = DrawPass.CACHE;
+    }
+
+    /**
+     * Ends a sprite counting pass.
+     *
+     * @return the number of sprites drawn during the pass
+     */
+    public int endSpriteCount() {
+        active = DrawPass.INACTIVE;
+        countOnly = false;
+        return cacheCount;
+    }
+
+    /**
+     * Replaces the static sprite cache with an empty one of the given size.
+     * <p>
+     * The cache is sized exactly, so use beginSpriteCount to find the size.
+     * Images are stored without shared indices, so the size is not limited to
+     * the 8191 images of an indexed cache.
+     *
+     * @param sprites The number of sprites the cache must hold
+     */
+    public void createStaticCache(int sprites) {
+        clearStaticCache();
+        if (sprites > 0) {
+            staticCache = new SpriteCache(sprites, false);
+        }
+    }
+
+    /**
+     * Disposes the static sprite cache, if there is one.
+     */
+    public void clearStaticCache() {
+        if (staticCache != null) {
+            staticCache.dispose();
+            staticCache = null;
+        }
+    }
+
+    /**
+     * Starts recording a chunk of the static sprite cache.
+     * <p>
+     * Until endStaticChunk, the transformed texture draws are recorded into the
+     * cache instead of drawn.  It must not be called inside of any other drawing
+     * pass, and the cache must have been created first.
+     */
+    public void beginStaticChunk() {
+        staticCache.beginCache();
+        countOnly = false;
+        active = DrawPass.CACHE;
+    }
+
+    /**
+     * Ends the chunk started by beginStaticChunk.
+     *
+     * @return the id of the chunk, for drawStaticChunks
+     */
+    public int endStaticChunk() {
+        active = DrawPass.INACTIVE;
+        return staticCache.endCache();
+    }
+
+    /**
+     * Draws chunks of the static sprite cache, one draw call per chunk and texture.
+     * <p>
+     * The cache does not use the sprite batch, so the batch (and any queued
+     * ropes) is flushed first.  This must be called inside of a standard pass.
+     *
+     * @param chunks The ids of the chunks to draw
+     */
+    public void drawStaticChunks(IntArray chunks) {
+        if (active != DrawPass.STANDARD) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+            return;
+        }
+        if (staticCache == null || chunks.size == 0) {
+            return;
+        }
+        if (sorted) {
+            queueRender(RenderCommand.CACHE, Integer.MIN_VALUE).chunks = chunks;
+            return;
+        }
+        flushRopes();
+        renderStaticChunks(chunks);
+    }
+
+    /**
+     * Draws chunks of the static sprite cache, pausing the sprite batch.
+     *
+     * @param chunks The ids of the chunks to draw
+     */
+    private void renderStaticChunks(IntArray chunks) {
         spriteBatch.end();
-        shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
         Gdx.gl.glEnable(GL20.GL_BLEND);
         Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
-        Gdx.gl20.glLineWidth(2);
-        shapeRenderer.setColor(tint);
-        for (int i = 1; i < k - 1; i++) {
-            shapeRenderer.line(catmull.valueAt(points[i], ((float) i) / ((float) k - 1)),
-                    catmull.valueAt(points[i + 1], ((float) (i + 1)) / ((float) k - 1)));
+        staticCache.setProjectionMatrix(spriteBatch.getProjectionMatrix());
+        staticCache.begin();
+        for (int ii = 0; ii < chunks.size; ii++) {
+            staticCache.draw(chunks.get(ii));
         }
-        shapeRenderer.end();
+        staticCache.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
         spriteBatch.begin();
     }
 
+    /**
+     * Records (or counts) a transformed texture draw in the static sprite cache.
+     * <p>
+     * The placement matches computeTransform: the texture origin goes to (x,y),
+     * after scaling and then rotation about the origin.
+     */
+    private void cacheSprite(TextureRegion region, Color tint, float ox, float oy,
+                             float x, float y, float angle, float sx, float sy) {
+        cacheCount++;
+        if (countOnly) {
+            return;
+        }
+        staticCache.setColor(tint);
+        staticCache.add(region, x - ox, y - oy, ox, oy, region.getRegionWidth(), region.getRegionHeight(),
+                sx, sy, 180.0f * angle / (float) Math.PI);
+    }
+
+    /**
+     * Queues a rope for drawing, as a thick strip through the given points.
+     * <p>
+     * The strip is ROPE_WIDTH pixels wide, centered on the points.  Queued ropes
+     * share one texture and carry their tint in their vertices, so every rope in
+     * the pass is drawn by a single call when the ropes are flushed.  That happens
+     * at end(), or before any method that switches away from the sprite batch.
+     * Ropes are therefore drawn on top of the sprites queued with them.
+     *
+     * @param points The points along the rope (these are not retained)
+     * @param first  The index of the first point to use
+     * @param count  The number of points to use
+     * @param tint   The rope color
+     */
+    public void drawRope(Vector2[] points, int first, int count, Color tint) {
+        if (active != DrawPass.STANDARD) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+            return;
+        }
+        count = Math.min(count, ROPE_VERTICES / 2);
+        if (count < 2) {
+            return;
+        }
+        if (ropeVertexCount + 2 * count > ROPE_VERTICES) {
+            // Out of room: a sorted pass must give up its order here
+            if (sorted) {
+                submitQueue();
+            }
+            flushRopes();
+        }
+
+        float color = tint.toFloatBits();
+        float half = ROPE_WIDTH / 2;
+        float nx = 0;
+        float ny = 1;
+        int base = ropeVertexCount;
+        int vv = base * ROPE_VERTEX_SIZE;
+        for (int ii = 0; ii < count; ii++) {
+            Vector2 prev = points[first + Math.max(ii - 1, 0)];
+            Vector2 next = points[first + Math.min(ii + 1, count - 1)];
+            float tx = next.x - prev.x;
+            float ty = next.y - prev.y;
+            float len = (float) Math.sqrt(tx * tx + ty * ty);
+            if (len > 0.0001f) {
+                // Otherwise keep the previous normal
+                nx = -ty / len;
+                ny = tx / len;
+            }
+            Vector2 p = points[first + ii];
+            ropeVertices[vv++] = p.x + nx * half;
+            ropeVertices[vv++] = p.y + ny * half;
+            ropeVertices[vv++] = color;
+            ropeVertices[vv++] = 0.5f;
+            ropeVertices[vv++] = 0;
+            ropeVertices[vv++] = p.x - nx * half;
+            ropeVertices[vv++] = p.y - ny * half;
+            ropeVertices[vv++] = color;
+            ropeVertices[vv++] = 0.5f;
+            ropeVertices[vv++] = 1;
+        }
+
+        int tt = ropeIndexCount;
+        for (int ii = 0; ii < count - 1; ii++) {
+            short left = (short) (2 * ii);
+            ropeTriangles[tt++] = left;
+            ropeTriangles[tt++] = (short) (left + 1);
+            ropeTriangles[tt++] = (short) (left + 2);
+            ropeTriangles[tt++] = (short) (left + 1);
+            ropeTriangles[tt++] = (short) (left + 3);
+            ropeTriangles[tt++] = (short) (left + 2);
+        }
+        if (sorted) {
+            queueRender(RenderCommand.ROPE, Integer.MAX_VALUE).rope = ropeRanges.size;
+        }
+        ropeRanges.add(base);
+        ropeRanges.add(2 * count);
+        ropeRanges.add(ropeIndexCount);
+        ropeRanges.add(tt - ropeIndexCount);
+        ropeVertexCount += 2 * count;
+        ropeIndexCount = tt;
+    }
+
+    /**
+     * Draws all queued ropes.
+     * <p>
+     * The ropes share a texture, so the sprite batch draws them all without a
+     * flush.  In a sorted pass the ropes are drawn with the other recorded draws
+     * instead, so this does nothing.  This must be called inside of a standard
+     * drawing pass.
+     */
+    public void flushRopes() {
+        if (sorted) {
+            return;
+        }
+        for (int ii = 0; ii < ropeRanges.size; ii += 4) {
+            renderRope(ii);
+        }
+        ropeRanges.clear();
+        ropeVertexCount = 0;
+        ropeIndexCount = 0;
+    }
+
+    /**
+     * Sends one queued rope to the sprite batch.
+     *
+     * @param range The position of the rope in ropeRanges
+     */
+    private void renderRope(int range) {
+        int[] ranges = ropeRanges.items;
+        spriteBatch.draw(ropeTexture, ropeVertices, ranges[range] * ROPE_VERTEX_SIZE,
+                ranges[range + 1] * ROPE_VERTEX_SIZE, ropeTriangles, ranges[range + 2], ranges[range + 3]);
+    }
+
+    /**
+     * Records a draw in the sorted pass, reusing an old command if possible.
+     *
+     * @param kind    The kind of draw (a constant in RenderCommand)
+     * @param texture The texture sort key
+     * @return the command to fill in
+     */
+    private RenderCommand queueRender(int kind, int texture) {
+        if (renderCount == renderCommands.size) {
+            renderCommands.add(new RenderCommand());
+        }
+        RenderCommand command = renderCommands.get(renderCount);
+        command.kind = kind;
+        command.layer = layer;
+        command.texture = texture;
+        command.blend = blend.ordinal();
+        command.order = renderCount++;
+        command.polygon = null;
+        command.chunks = null;
+        return command;
+    }
+
+    /**
+     * Records a rectangle draw of a region in the sorted pass.
+     *
+     * @param region The texture to draw
+     * @param tint   The color tint
+     * @param x      The x-coordinate of the bottom left corner
+     * @param y      The y-coordinate of the bottom left corner
+     * @param width  The texture width
+     * @param height The texture height
+     */
+    private void queueRect(TextureRegion region, Color tint, float x, float y, float width, float height) {
+        RenderCommand command = queueRender(RenderCommand.RECT, region.getTexture().getTextureObjectHandle());
+        command.region.setRegion(region);
+        command.color = tint.toFloatBits();
+        command.x = x;
+        command.y = y;
+        command.sx = width;
+        command.sy = height;
+    }
+
+    /**
+     * Records an unrotated draw of a polygon region in the sorted pass.
+     *
+     * @param region The polygon to draw
+     * @param tint   The color tint
+     * @param x      The x-coordinate of the bottom left corner
+     * @param y      The y-coordinate of the bottom left corner
+     * @param sx     The x-axis scaling factor
+     * @param sy     The y-axis scaling factor
+     */
+    private void queuePolygon(PolygonRegion region, Color tint, float x, float y, float sx, float sy) {
+        RenderCommand command = queueRender(RenderCommand.POLYGON,
+                region.getRegion().getTexture().getTextureObjectHandle());
+        command.polygon = region;
+        setTransform(command, tint, 0, 0, x, y, 0, sx, sy);
+    }
 
+    /**
+     * Stores the tint and transform of a transformed draw in a command.
+     */
+    private static void setTransform(RenderCommand command, Color tint, float ox, float oy,
+                                     float x, float y, float angle, float sx, float sy) {
+        command.color = tint.toFloatBits();
+        command.ox = ox;
+        command.oy = oy;
+        command.x = x;
+        command.y = y;
+        command.angle = angle;
+        command.sx = sx;
+        command.sy = sy;
+    }
+
+    /**
+     * Draws the commands recorded by the sorted pass, in sorted order.
+     * <p>
+     * The sprite batch only flushes when the texture or blend state changes, so
+     * grouping the commands by texture keeps the number of flushes down.
+     */
+    private void submitQueue() {
+        renderOrder.clear();
+        for (int ii = 0; ii < renderCount; ii++) {
+            renderOrder.add(renderCommands.get(ii));
+        }
+        renderOrder.sort(RENDER_ORDER);
+
+        BlendState previous = blend;
+        for (int ii = 0; ii < renderOrder.size; ii++) {
+            RenderCommand command = renderOrder.get(ii);
+            setBlendState(BLEND_VALUES[command.blend]);
+            switch (command.kind) {
+                case RenderCommand.REGION:
+                    computeTransform(command.ox, command.oy, command.x, command.y,
+                            command.angle, command.sx, command.sy);
+                    spriteBatch.setPackedColor(command.color);
+                    spriteBatch.draw(command.region, command.region.getRegionWidth(),
+                            command.region.getRegionHeight(), local);
+                    break;
+                case RenderCommand.POLYGON:
+                    TextureRegion bounds = command.polygon.getRegion();
+                    spriteBatch.setPackedColor(command.color);
+                    spriteBatch.draw(command.polygon, command.x, command.y, command.ox, command.oy,
+                            bounds.getRegionWidth(), bounds.getRegionHeight(),
+                            command.sx, command.sy, 180.0f * command.angle / (float) Math.PI);
+                    break;
+                case RenderCommand.RECT:
+                    spriteBatch.setPackedColor(command.color);
+                    spriteBatch.draw(command.region, command.x, command.y, command.sx, command.sy);
+                    break;
+                case RenderCommand.AFFINE:
+                    spriteBatch.setPackedColor(command.color);
+                    spriteBatch.draw(command.region, command.region.getRegionWidth(),
+                            command.region.getRegionHeight(), command.affine);
+                    break;
+                case RenderCommand.POLYGON_AFFINE:
+                    // The vertices are moved into place for the draw, then moved back
+                    local.set(command.affine);
+                    computeVertices(local, command.polygon.getVertices());
+                    spriteBatch.setPackedColor(command.color);
+                    spriteBatch.draw(command.polygon, 0, 0);
+                    local.inv();
+                    computeVertices(local, command.polygon.getVertices());
+                    break;
+                case RenderCommand.ROPE:
+                    renderRope(command.rope);
+                    break;
+                case RenderCommand.CACHE:
+                    renderStaticChunks(command.chunks);
+                    break;
+            }
+            command.region.setTexture(null);
+            command.polygon = null;
+            command.chunks = null;
+        }
+        spriteBatch.setColor(Color.WHITE);
+        setBlendState(previous);
+        renderOrder.clear();
+        renderCount = 0;
+        ropeRanges.clear();
+        ropeVertexCount = 0;
+        ropeIndexCount = 0;
+    }
+
+
+    /**
+     * Queues a texture to draw in screen space, centered at the given position.
+     * <p>
+     * Screen-space draws are not drawn at once.  They are queued and drawn in
+     * one pass of the UI batch at end(), on top of the world, in the order they
+     * were queued.  This must be called inside of a standard drawing pass.
+     *
+     * @param texture The texture to draw
+     * @param x       The x-coordinate of the texture center (in pixels)
+     * @param y       The y-coordinate of the texture center (in pixels)
+     * @param sc      The scale of the texture
+     */
     public void drawUI(TextureRegion texture, float x, float y, float sc) {
-        spriteBatch.end();
-        UIBatch.begin();
-//        UIBatch.setProjectionMatrix(camera.combined);
-        computeTransform(texture.getRegionWidth() / 2, texture.getRegionHeight() / 2, x, y, 0, sc, sc);
-        UIBatch.draw(texture, texture.getRegionWidth(), texture.getRegionHeight(), local);
-        UIBatch.end();
-        spriteBatch.begin();
+        UICommand command = queueUI(UICommand.TEXTURE);
+        command.region = texture;
+        command.x = x;
+        command.y = y;
+        command.scale = sc;
     }
 
+    /**
+     * Queues a message in the default font, at the given font scale.
+     *
+     * @param text The message to draw
+     * @param x    The x-coordinate of the top left corner (in pixels)
+     * @param y    The y-coordinate of the top left corner (in pixels)
+     * @param size The font scale
+     */
     public void drawUIText(String text, int x, int y, float size) {
-        spriteBatch.end();
-        UIBatch.begin();
-        font.getData().setScale(size);
-        font.draw(UIBatch, text, x, y);
-        UIBatch.end();
-        spriteBatch.begin();
+        UICommand command = queueUI(UICommand.TEXT);
+        command.text = text;
+        command.x = x;
+        command.y = y;
+        command.scale = size;
     }
 
-    public void drawItemCount(String text, int x, int y) {
-        spriteBatch.end();
-        UIBatch.begin();
-        selectorFont.draw(UIBatch, text, x, y);
-        UIBatch.end();
-        spriteBatch.begin();
+    /**
+     * Queues a message in the small font.
+     * <p>
+     * The text is only read when the queue is drawn, so it must not change
+     * before end().
+     *
+     * @param text The message to draw
+     * @param x    The x-coordinate of the top left corner (in pixels)
+     * @param y    The y-coordinate of the top left corner (in pixels)
+     */
+    public void drawItemCount(CharSequence text, int x, int y) {
+        UICommand command = queueUI(UICommand.SMALL_TEXT);
+        command.text = text;
+        command.x = x;
+        command.y = y;
     }
 
-
+    /**
+     * Queues a message in the default font, in black.
+     *
+     * @param text The message to draw
+     * @param x    The x-coordinate of the top left corner (in pixels)
+     * @param y    The y-coordinate of the top left corner (in pixels)
+     */
     public void drawUITextPause(String text, int x, int y) {
-        spriteBatch.end();
-        UIBatch.begin();
-        font.setColor(Color.BLACK);
-        font.draw(UIBatch, text, x, y);
-        UIBatch.end();
-        spriteBatch.begin();
+        UICommand command = queueUI(UICommand.BLACK_TEXT);
+        command.text = text;
+        command.x = x;
+        command.y = y;
     }
 
     public void drawWrapped(TextureRegion image, float x, float y, float width, float height) {
@@ -1402,21 +2747,62 @@ public class GameCanvas {
         spriteBatch.draw(image, positionCache.x - w, positionCache.y, width, height);
     }
 
-    public void drawMirrorred(Texture image, float x, float y, float width, float height, int srcX, int srcY, float sc) {
-        positionCache.set(x, y);
-        wrapPosition(positionCache);
+    /**
+     * Draws a background layer that covers the whole view in a single quad.
+     * <p>
+     * The layer is a grid of copies of the image, each width x height pixels,
+     * with the copy at (x,y) drawn as is and its neighbors mirrored.  Rather than
+     * drawing the copies one at a time, this draws one quad over the view and
+     * lets the texture wrap produce the grid, so the texture must use the
+     * MirroredRepeat wrap in both directions.  Scrolling a layer (for parallax)
+     * is just a change of x or y.  This must be called inside of a standard pass.
+     *
+     * @param image  The background texture (with a MirroredRepeat wrap)
+     * @param x      The x-coordinate of the lower left corner of the unmirrored copy
+     * @param y      The y-coordinate of the lower left corner of the unmirrored copy
+     * @param width  The width of a single copy
+     * @param height The height of a single copy
+     */
+    public void drawParallax(Texture image, float x, float y, float width, float height) {
+        if (active != DrawPass.STANDARD) {
+            Gdx.app.error("game.GameCanvas", "Cannot draw without active begin()", new IllegalStateException());
+            return;
+        }
+        getViewBounds(viewCache);
+        float u = (viewCache.x - x) / width;
+        float u2 = (viewCache.x + viewCache.width - x) / width;
+        float v = 1 - (viewCache.y - y) / height;
+        float v2 = 1 - (viewCache.y + viewCache.height - y) / height;
+        spriteBatch.draw(image, viewCache.x, viewCache.y, viewCache.width, viewCache.height, u, v, u2, v2);
+    }
 
-        float w = getWidth();
-        float h = (height / width) * getWidth();
-        // Have to draw the background twice for continuous scrolling.
-        spriteBatch.draw(image, positionCache.x, positionCache.y, width, height);
-        spriteBatch.draw(image, positionCache.x - w * sc, positionCache.y, width, height, 0, 0, srcX, srcY, true, false);
-        spriteBatch.draw(image, positionCache.x + w * sc, positionCache.y, width, height, 0, 0, srcX, srcY, true, false);
-        spriteBatch.draw(image, positionCache.x, positionCache.y + h * sc, width, height, 0, 0, srcX, srcY, false, true);
-        spriteBatch.draw(image, positionCache.x - w * sc, positionCache.y + h * sc, width, height, 0, 0, srcX, srcY, true, true);
-        spriteBatch.draw(image, positionCache.x, positionCache.y - h * sc, width, height, 0, 0, srcX, srcY, false, true);
-        spriteBatch.draw(image, positionCache.x - w * sc, positionCache.y - h * sc, width, height, 0, 0, srcX, srcY, true, true);
+    /**
+     * Stores the area of the world that the camera shows in out.
+     * <p>
+     * The area is in screen (pixel) coordinates, the same coordinates used to
+     * draw the game objects.  It reflects the latest calls to moveCamera and
+     * changeViewport.
+     *
+     * @param out The rectangle to store the result
+     * @return the rectangle out, for chaining
+     */
+    public Rectangle getViewBounds(Rectangle out) {
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+        return out.set(camera.position.x - width / 2, camera.position.y - height / 2, width, height);
+    }
 
+    /**
+     * Returns the number of world pixels that cover one screen pixel.
+     * <p>
+     * This is 1 when the camera shows the whole window, and less than 1 when
+     * it is zoomed in.
+     *
+     * @return the number of world pixels that cover one screen pixel
+     */
+    public float getViewZoom() {
+        int width = getWidth();
+        return width > 0 ? camera.viewportWidth * camera.zoom / width : 1;
     }
 
     public void moveCamera(float x, float y) {
@@ -1438,7 +2824,7 @@ public class GameCanvas {
 
     public void resetCamara() {
         active = DrawPass.INACTIVE;
-        spriteBatch = new PolygonSpriteBatch();
+        spriteBatch = new PolygonSpriteBatch(ROPE_VERTICES);
         UIBatch = new PolygonSpriteBatch();
         debugRender = new ShapeRenderer();
         shapeRenderer = new ShapeRenderer();
@@ -1469,14 +2855,78 @@ public class GameCanvas {
     }
 
 
+    /**
+     * Updates a stage now, and queues it to draw with the other screen-space draws.
+     * <p>
+     * The stage draws with its own batch, so the UI batch is paused around it.
+     *
+     * @param stage The stage to update and draw
+     */
     public void actStage(Stage stage) {
-        spriteBatch.end();
         stage.act();
+        queueUI(UICommand.STAGE).stage = stage;
+    }
+
+    /**
+     * Returns a free command at the end of the screen-space queue.
+     * <p>
+     * Commands are reused from frame to frame, so the queue only allocates when
+     * it grows past its largest size so far.
+     *
+     * @param kind The type of command
+     * @return a free command at the end of the screen-space queue.
+     */
+    private UICommand queueUI(int kind) {
+        if (uiCount == uiCommands.size) {
+            uiCommands.add(new UICommand());
+        }
+        UICommand command = uiCommands.get(uiCount++);
+        command.kind = kind;
+        return command;
+    }
+
+    /**
+     * Draws the screen-space queue in a single pass of the UI batch, and clears it.
+     * <p>
+     * This must be called outside of any other drawing pass.
+     */
+    private void flushUI() {
+        if (uiCount == 0) {
+            return;
+        }
         UIBatch.begin();
-        stage.draw();
+        for (int ii = 0; ii < uiCount; ii++) {
+            UICommand command = uiCommands.get(ii);
+            switch (command.kind) {
+                case UICommand.TEXTURE:
+                    TextureRegion texture = command.region;
+                    computeTransform(texture.getRegionWidth() / 2, texture.getRegionHeight() / 2,
+                            command.x, command.y, 0, command.scale, command.scale);
+                    UIBatch.draw(texture, texture.getRegionWidth(), texture.getRegionHeight(), local);
+                    break;
+                case UICommand.TEXT:
+                    font.getData().setScale(command.scale);
+                    font.draw(UIBatch, command.text, command.x, command.y);
+                    break;
+                case UICommand.SMALL_TEXT:
+                    selectorFont.draw(UIBatch, command.text, command.x, command.y);
+                    break;
+                case UICommand.BLACK_TEXT:
+                    font.setColor(Color.BLACK);
+                    font.draw(UIBatch, command.text, command.x, command.y);
+                    break;
+                case UICommand.STAGE:
+                    UIBatch.end();
+                    command.stage.draw();
+                    UIBatch.begin();
+                    break;
+            }
+            command.region = null;
+            command.text = null;
+            command.stage = null;
+        }
         UIBatch.end();
-        spriteBatch.begin();
-
+        uiCount = 0;
     }
 
 }
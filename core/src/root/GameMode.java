@@ -16,22 +16,32 @@ import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
 import com.badlogic.gdx.graphics.g2d.freetype.FreetypeFontLoader;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Contact;
 import com.badlogic.gdx.physics.box2d.Filter;
 import com.badlogic.gdx.physics.box2d.Joint;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.physics.box2d.joints.RevoluteJointDef;
 import com.badlogic.gdx.physics.box2d.joints.RopeJointDef;
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectIntMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.TimeUtils;
 import entities.*;
+import obstacle.ComplexObstacle;
 import obstacle.Obstacle;
 import util.*;
 
@@ -81,6 +91,10 @@ public class GameMode extends Mode implements Screen {
      * Number of position iterations for the constrain solvers
      */
     public static final int WORLD_POSIT = 2;
+    /**
+     * Default cap on the number of physics steps taken in a single frame
+     */
+    public static final int MAX_SUBSTEPS = 5;
     /**
      * Width of the game world in Box2d units
      */
@@ -94,8 +108,8 @@ public class GameMode extends Mode implements Screen {
     // wait time
     private final float period = 2f;
 
-    private Vector2 lastpos;
-    private Vector2 lastviewport;
+    private final Vector2 lastpos = new Vector2();
+    private final Vector2 lastviewport = new Vector2();
 
     boolean isZoomed = true;
 
@@ -205,6 +219,35 @@ public class GameMode extends Mode implements Screen {
      * File to texture for escape button
      */
     private static final String ESC_FILE = "ui/pause.png";
+    /**
+     * Texture atlases shared by every theme (made by the packTextures task, see desktop/build.gradle)
+     */
+    private static final String[] CORE_ATLASES = {"atlas/characters.atlas", "atlas/ui.atlas"};
+    /**
+     * Texture atlas of each theme, in theme order
+     */
+    private static final String[] THEME_ATLASES = {"atlas/city.atlas", "atlas/village.atlas",
+            "atlas/forest.atlas", "atlas/mountain.atlas"};
+    /**
+     * The city theme, played first
+     */
+    private static final int CITY = 0;
+    /**
+     * The village theme, played second
+     */
+    private static final int VILLAGE = 1;
+    /**
+     * The forest theme, played third
+     */
+    private static final int FOREST = 2;
+    /**
+     * The mountain theme, played last
+     */
+    private static final int MOUNTAIN = 3;
+    /**
+     * The number of level themes
+     */
+    private static final int THEME_COUNT = 4;
     /**
      * Retro font for displaying messages
      */
@@ -293,6 +336,70 @@ public class GameMode extends Mode implements Screen {
     private final ArrayList<TextureRegion> itemTexture = new ArrayList<>();
     private final ArrayList<TextureRegion> greyItemTexture = new ArrayList<>();
     private final ArrayList<String> itemNames = new ArrayList<>();
+    /**
+     * Width (in pixels) of a chunk of the static sprite cache
+     */
+    private static final float STATIC_CHUNK_WIDTH = 1024;
+    /**
+     * The chunks of the static sprite cache for the current level
+     */
+    private final IntArray staticChunks = new IntArray();
+    /**
+     * The static cache chunk that holds each baked object
+     */
+    private final ObjectIntMap<Obstacle> bakedChunks = new ObjectIntMap<>();
+    /**
+     * Width and height (in physics units) of a cell of the culling grid
+     */
+    private static final float CULL_CELL_SIZE = 4;
+    /**
+     * Padding (in physics units) around the view, for sprites larger than their bodies
+     */
+    private static final float CULL_MARGIN = 2;
+    /**
+     * Spatial index of every object in the scene, for culling against the view
+     */
+    private final SpatialGrid<Obstacle> grid = new SpatialGrid<>(CULL_CELL_SIZE);
+    /**
+     * The objects that must be refiled in the grid every frame (all non-static ones)
+     */
+    private final ObjectSet<Obstacle> movingObjects = new ObjectSet<>();
+    /**
+     * The objects that overlap the view this frame, in draw order
+     */
+    private final Array<Obstacle> visibleObjects = new Array<>();
+    /**
+     * The static cache chunks that overlap the view this frame
+     */
+    private final IntArray visibleChunks = new IntArray();
+    /**
+     * Cache for bounding boxes and the view when culling
+     */
+    private final Rectangle cullBounds = new Rectangle();
+    /**
+     * The atlases found on disk (a missing atlas falls back to separate textures)
+     */
+    private final Array<String> atlasFiles = new Array<>();
+    /**
+     * The texture files (without extension) packed into one of the atlases
+     */
+    private final ObjectSet<String> atlasRegions = new ObjectSet<>();
+    /**
+     * The texture files of each theme (its manifest, see buildThemeManifests)
+     */
+    private final Array<Array<String>> themeTextures = new Array<>();
+    /**
+     * The music files of each theme
+     */
+    private final Array<Array<String>> themeMusic = new Array<>();
+    /**
+     * The files queued for each theme (empty unless the theme is loading or loaded)
+     */
+    private final Array<Array<String>> themeAssets = new Array<>();
+    /**
+     * The loading state of each theme
+     */
+    private final AssetState[] themeStates = new AssetState[THEME_COUNT];
     private boolean[] collectedItems = {false, false, false};
     /**
      * List of item objects
@@ -326,6 +433,18 @@ public class GameMode extends Mode implements Screen {
      * Whether or not debug mode is active
      */
     private boolean debug;
+    /**
+     * The extra physics information drawn in debug mode (see GameCanvas)
+     */
+    private int debugOptions;
+    /**
+     * Cache for the joints drawn in debug mode
+     */
+    private final Array<Joint> debugJoints = new Array<>();
+    /**
+     * Frame phase timings, shown as an overlay when active
+     */
+    private final FrameProfiler profiler = new FrameProfiler();
     /**
      * Countdown active for winning or losing
      */
@@ -340,9 +459,6 @@ public class GameMode extends Mode implements Screen {
     private final String VILLAGE_MUSIC_FILE = "music/capstone.mp3";
     private final String FOREST_MUSIC_FILE = "music/harp.mp3";
     private final String MOUNTAIN_MUSIC_FILE = "music/mountain_theme.mp3";
-    private final String OPENING_CUTSCENE_FILE = "music/cutscene.mp3";
-    private final String ENDING_CUTSCENE_FILE = "music/youshoulddosomereflecting.mp3";
-    private final String TRANSITION_CUTSCENE_FILE = "music/goodnight.mp3";
     /**
      * Music object played in the game
      */
@@ -431,6 +547,26 @@ public class GameMode extends Mode implements Screen {
     final String[] LEVEL4_T = new String[]{"billboard/Level4-space.png", "billboard/Level4-shift.png", "billboard/Level4-extra.png"};
 
     private double physicsStepAccumulator = 0.0;
+    /**
+     * Maximum number of physics steps per frame (any further backlog is dropped)
+     */
+    private int maxSubsteps = MAX_SUBSTEPS;
+    /**
+     * Number of times the physics world has been stepped by this mode
+     */
+    private long physicsStepCount = 0;
+    /**
+     * Seed for the level's random choices (NPC types), reapplied on every reset
+     */
+    private long seed;
+    /**
+     * Whether the seed was set explicitly, rather than drawn fresh on every reset
+     */
+    private boolean fixedSeed = false;
+    /**
+     * Directory (local storage) for input recordings
+     */
+    private static final String RECORDING_DIR = "recordings/";
 
     /**
      * Creates a new game world
@@ -458,6 +594,203 @@ public class GameMode extends Mode implements Screen {
         countdown = -1;
         this.npcs = new HashMap<>();
         this.npcShock = new HashMap<>();
+        buildThemeManifests();
+    }
+
+    /**
+     * Builds the list of files that belong to each theme.
+     * <p>
+     * Everything that only one theme draws or plays lives here: tiles, spikes,
+     * doors, items, backgrounds, billboards, music and walking loops.  Files that
+     * are packed into the atlas of the theme are skipped when the theme is queued.
+     */
+    private void buildThemeManifests() {
+        for (int ii = 0; ii < THEME_COUNT; ii++) {
+            themeTextures.add(new Array<String>());
+            themeMusic.add(new Array<String>());
+            themeAssets.add(new Array<String>());
+            themeStates[ii] = AssetState.EMPTY;
+        }
+
+        Array<String> city = themeTextures.get(CITY);
+        city.addAll(CITY_TILE_FILE, SPIKE_FILE, SPIKE_VERT, GATE, BASKET_EMPTY, GREY_BASKET);
+        city.addAll(cityItems);
+        city.addAll(greyCityItems);
+        city.addAll(CITY_BKG_FILES_LAYER_A);
+        city.addAll(CITY_BKG_FILES_LAYER_B);
+        city.addAll(CITY_BKG_FILES_LAYER_C);
+        city.addAll(LEVEL1_T);
+        city.addAll(LEVEL2_T);
+        city.addAll(LEVEL3_T);
+        city.addAll(LEVEL4_T);
+        themeMusic.get(CITY).addAll(CITY_MUSIC_FILE, WALKING_CITY_FILE);
+
+        Array<String> village = themeTextures.get(VILLAGE);
+        village.addAll(VILLAGE_TILE_FILE, VILLAGE_SPIKES_FILE, VILLAGE_SPIKES_VERT_FILE, VILLAGE_GATE,
+                VILLAGE_LEFT, VILLAGE_RIGHT, VILLAGE_NPC);
+        village.addAll(villageItems);
+        village.addAll(greyVillageItems);
+        village.addAll(VILLAGE_BKG_FILES_LAYER_A);
+        village.addAll(VILLAGE_BKG_FILES_LAYER_B);
+        village.addAll(VILLAGE_BKG_FILES_LAYER_C);
+        themeMusic.get(VILLAGE).addAll(VILLAGE_MUSIC_FILE, WALKING_VILLAGE_FILE);
+
+        Array<String> forest = themeTextures.get(FOREST);
+        forest.addAll(FOREST_TILE_FILE, FOREST_SPIKES_FILE, FOREST_SPIKES_VERT_FILE, FOREST_GATE,
+                FOREST_MUSHROOM_FILE);
+        forest.addAll(forestItems);
+        forest.addAll(greyForestItems);
+        forest.addAll(FOREST_BKG_FILES_LAYER_A);
+        forest.addAll(FOREST_BKG_FILES_LAYER_B);
+        forest.addAll(FOREST_BKG_FILES_LAYER_C);
+        themeMusic.get(FOREST).addAll(FOREST_MUSIC_FILE, WALKING_FOREST_FILE);
+
+        Array<String> mountain = themeTextures.get(MOUNTAIN);
+        mountain.addAll(MOUNTAIN_TILE_FILE, MOUNTAIN_SPIKES_FILE, MOUNTAIN_SPIKES_VERT_FILE, MOUNTAIN_GATE);
+        mountain.addAll(mountainItems);
+        mountain.addAll(greyMountainItems);
+        mountain.addAll(MT_BKG_FILES_LAYER_A);
+        mountain.addAll(MT_BKG_FILES_LAYER_B);
+        mountain.addAll(MT_BKG_FILES_LAYER_C);
+        themeMusic.get(MOUNTAIN).addAll(MOUNTAIN_MUSIC_FILE, WALKING_MT_FILE);
+    }
+
+    /**
+     * Returns the theme of a level type.
+     * <p>
+     * Any type that is not one of the four themes is drawn like the city.
+     *
+     * @param type The level type
+     * @return the theme of a level type.
+     */
+    private static int themeOf(String type) {
+        switch (type) {
+            case "village":
+                return VILLAGE;
+            case "forest":
+                return FOREST;
+            case "mountain":
+                return MOUNTAIN;
+            default:
+                return CITY;
+        }
+    }
+
+    /**
+     * Queues the assets of the theme of the given level type, without waiting.
+     * <p>
+     * This is for prefetching the next theme while the current one is played.
+     * The assets stream in as the asset manager is updated.  Nothing happens if
+     * the theme is already loading or loaded.
+     *
+     * @param manager Reference to global asset manager.
+     * @param type    The level type
+     */
+    public void prefetchTheme(AssetManager manager, String type) {
+        queueTheme(manager, themeOf(type));
+    }
+
+    /**
+     * Queues the assets of a theme, unless they are already queued.
+     *
+     * @param manager Reference to global asset manager.
+     * @param theme   The theme to queue
+     */
+    private void queueTheme(AssetManager manager, int theme) {
+        if (themeStates[theme] != AssetState.EMPTY) {
+            return;
+        }
+        themeStates[theme] = AssetState.LOADING;
+        Array<String> files = themeAssets.get(theme);
+        if (atlasFiles.contains(THEME_ATLASES[theme], false)) {
+            queueThemeAsset(files, THEME_ATLASES[theme], TextureAtlas.class, manager);
+        }
+        for (String file : themeTextures.get(theme)) {
+            if (!atlasRegions.contains(regionName(file))) {
+                queueThemeAsset(files, file, Texture.class, manager);
+            }
+        }
+        for (String file : themeMusic.get(theme)) {
+            queueThemeAsset(files, file, Music.class, manager);
+        }
+    }
+
+    /**
+     * Queues a single file of a theme, unless the theme already holds it.
+     *
+     * @param files   The files held by the theme
+     * @param file    The file to queue
+     * @param type    The asset type
+     * @param manager Reference to global asset manager.
+     */
+    private void queueThemeAsset(Array<String> files, String file, Class<?> type, AssetManager manager) {
+        if (!files.contains(file, false)) {
+            manager.load(file, type);
+            files.add(file);
+        }
+    }
+
+    /**
+     * Makes the assets of a theme resident, and unloads the themes far from it.
+     * <p>
+     * If the theme was prefetched this usually returns at once; otherwise it
+     * blocks until the theme has loaded.  Afterwards, any theme two or more steps
+     * away from this one (in play order) is unloaded, so at most the previous,
+     * current and next themes are resident.
+     *
+     * @param manager Reference to global asset manager.
+     * @param theme   The theme to load
+     */
+    private void requireTheme(AssetManager manager, int theme) {
+        queueTheme(manager, theme);
+        if (themeStates[theme] == AssetState.LOADING) {
+            Array<String> files = themeAssets.get(theme);
+            for (int ii = 0; ii < files.size; ii++) {
+                manager.finishLoadingAsset(files.get(ii));
+            }
+            themeStates[theme] = AssetState.COMPLETE;
+        }
+        for (int ii = 0; ii < THEME_COUNT; ii++) {
+            if (Math.abs(ii - theme) >= 2) {
+                unloadTheme(manager, ii);
+            }
+        }
+    }
+
+    /**
+     * Unloads the assets for this game, including every theme.
+     *
+     * @param manager Reference to global asset manager.
+     */
+    @Override
+    public void unloadContent(AssetManager manager) {
+        super.unloadContent(manager);
+        for (int ii = 0; ii < THEME_COUNT; ii++) {
+            unloadTheme(manager, ii);
+        }
+    }
+
+    /**
+     * Unloads the assets of a theme, including any that are still queued.
+     * <p>
+     * Files shared with another loaded theme stay resident, as the asset manager
+     * counts references.
+     *
+     * @param manager Reference to global asset manager.
+     * @param theme   The theme to unload
+     */
+    private void unloadTheme(AssetManager manager, int theme) {
+        if (themeStates[theme] == AssetState.EMPTY) {
+            return;
+        }
+        Array<String> files = themeAssets.get(theme);
+        for (int ii = 0; ii < files.size; ii++) {
+            if (manager.contains(files.get(ii))) {
+                manager.unload(files.get(ii));
+            }
+        }
+        files.clear();
+        themeStates[theme] = AssetState.EMPTY;
     }
 
 
@@ -466,195 +799,38 @@ public class GameMode extends Mode implements Screen {
             return;
         }
         assetState = AssetState.LOADING;
-        manager.load(UI_GreyYarn, Texture.class);
-        assets.add(UI_GreyYarn);
-        manager.load(UI_RedYarn, Texture.class);
-        assets.add(UI_RedYarn);
-        manager.load(GATE, Texture.class);
-        assets.add(GATE);
-        manager.load(VILLAGE_GATE, Texture.class);
-        assets.add(VILLAGE_GATE);
-        manager.load(FOREST_GATE, Texture.class);
-        assets.add(FOREST_GATE);
-        manager.load(MOUNTAIN_GATE, Texture.class);
-        assets.add(MOUNTAIN_GATE);
-        manager.load(NEEDLE, Texture.class);
-        assets.add(NEEDLE);
-        manager.load(GREY_NEEDLE, Texture.class);
-        assets.add(GREY_NEEDLE);
-        manager.load(BUTTON, Texture.class);
-        assets.add(BUTTON);
-        manager.load(GREY_BUTTON, Texture.class);
-        assets.add(GREY_BUTTON);
-        manager.load(YARN, Texture.class);
-        assets.add(YARN);
-        manager.load(GREY_YARN, Texture.class);
-        assets.add(GREY_YARN);
-        manager.load(FABRIC_1, Texture.class);
-        assets.add(FABRIC_1);
-        manager.load(FABRIC_2, Texture.class);
-        assets.add(FABRIC_2);
-        manager.load(GREY_FABRIC, Texture.class);
-        assets.add(GREY_FABRIC);
-        manager.load(SPOOL, Texture.class);
-        assets.add(SPOOL);
-        manager.load(GREY_SPOOL, Texture.class);
-        assets.add(GREY_SPOOL);
-        manager.load(STUFFING, Texture.class);
-        assets.add(STUFFING);
-        manager.load(GREY_STUFFING, Texture.class);
-        assets.add(GREY_STUFFING);
-        manager.load(GREY_BASKET, Texture.class);
-        assets.add(GREY_BASKET);
-        manager.load(BASKET_EMPTY, Texture.class);
-        assets.add(BASKET_EMPTY);
-        manager.load(CITY_TILE_FILE, Texture.class);
-        assets.add(CITY_TILE_FILE);
-        manager.load(VILLAGE_TILE_FILE, Texture.class);
-        assets.add(VILLAGE_TILE_FILE);
-        manager.load(FOREST_TILE_FILE, Texture.class);
-        assets.add(FOREST_TILE_FILE);
-        manager.load(MOUNTAIN_TILE_FILE, Texture.class);
-        assets.add(MOUNTAIN_TILE_FILE);
-        manager.load(FOREST_SPIKES_FILE, Texture.class);
-        assets.add(FOREST_SPIKES_FILE);
-        manager.load(FOREST_SPIKES_VERT_FILE, Texture.class);
-        assets.add(FOREST_SPIKES_VERT_FILE);
-        manager.load(VILLAGE_SPIKES_FILE, Texture.class);
-        assets.add(VILLAGE_SPIKES_FILE);
-        manager.load(VILLAGE_SPIKES_VERT_FILE, Texture.class);
-        assets.add(VILLAGE_SPIKES_VERT_FILE);
-        manager.load(MOUNTAIN_SPIKES_FILE, Texture.class);
-        assets.add(MOUNTAIN_SPIKES_FILE);
-        manager.load(MOUNTAIN_SPIKES_VERT_FILE, Texture.class);
-        assets.add(MOUNTAIN_SPIKES_VERT_FILE);
-        manager.load(SPIKE_FILE, Texture.class);
-        assets.add(SPIKE_FILE);
-        manager.load(SPIKE_VERT, Texture.class);
-        assets.add(SPIKE_VERT);
-        manager.load(RESTART_FILE, Texture.class);
-        assets.add(RESTART_FILE);
-        manager.load(ESC_FILE, Texture.class);
-        assets.add(ESC_FILE);
-        manager.load(FOREST_MUSHROOM_FILE, Texture.class);
-        assets.add(FOREST_MUSHROOM_FILE);
-        manager.load(ZOOM_UI, Texture.class);
-        assets.add(ZOOM_UI);
-        manager.load(VILLAGE_LEFT, Texture.class);
-        assets.add(VILLAGE_LEFT);
-        manager.load(VILLAGE_RIGHT, Texture.class);
-        assets.add(VILLAGE_RIGHT);
-        manager.load(VILLAGE_NPC, Texture.class);
-        assets.add(VILLAGE_NPC);
-        for (String s : CITY_BKG_FILES_LAYER_A) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : CITY_BKG_FILES_LAYER_B) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : CITY_BKG_FILES_LAYER_C) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : LEVEL1_T) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : LEVEL2_T) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : LEVEL3_T) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : LEVEL4_T) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : VILLAGE_BKG_FILES_LAYER_A) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : VILLAGE_BKG_FILES_LAYER_B) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : VILLAGE_BKG_FILES_LAYER_C) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : FOREST_BKG_FILES_LAYER_A) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : FOREST_BKG_FILES_LAYER_B) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : FOREST_BKG_FILES_LAYER_C) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : MT_BKG_FILES_LAYER_A) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : MT_BKG_FILES_LAYER_B) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        for (String s : MT_BKG_FILES_LAYER_C) {
-            assets.add(s);
-            manager.load(s, Texture.class);
-        }
-        manager.load(CUT_INDICATOR_FILE, Texture.class);
-        assets.add(CUT_INDICATOR_FILE);
+        loadAtlases(manager);
+        loadTexture(UI_GreyYarn, manager);
+        loadTexture(UI_RedYarn, manager);
+        loadTexture(YARN, manager);
+        loadTexture(GREY_YARN, manager);
+        loadTexture(RESTART_FILE, manager);
+        loadTexture(ESC_FILE, manager);
+        loadTexture(ZOOM_UI, manager);
+        loadTexture(CUT_INDICATOR_FILE, manager);
         // Load Player Animations
-        manager.load(PLAYER_IDLE_ANIMATION, Texture.class);
-        assets.add(PLAYER_IDLE_ANIMATION);
-        manager.load(PLAYER_WALKING_ANIMATION_FILE, Texture.class);
-        assets.add(PLAYER_WALKING_ANIMATION_FILE);
-        manager.load(PLAYER_EXIT, Texture.class);
-        assets.add(PLAYER_EXIT);
-        manager.load(PLAYER_JUMP_UP, Texture.class);
-        assets.add(PLAYER_JUMP_UP);
-        manager.load(PLAYER_JUMP_DOWN, Texture.class);
-        assets.add(PLAYER_JUMP_DOWN);
-        manager.load(PLAYER_SWING_FORWARD, Texture.class);
-        assets.add(PLAYER_SWING_FORWARD);
-        manager.load(PLAYER_DEATH, Texture.class);
-        assets.add(PLAYER_DEATH);
+        loadTexture(PLAYER_IDLE_ANIMATION, manager);
+        loadTexture(PLAYER_WALKING_ANIMATION_FILE, manager);
+        loadTexture(PLAYER_EXIT, manager);
+        loadTexture(PLAYER_JUMP_UP, manager);
+        loadTexture(PLAYER_JUMP_DOWN, manager);
+        loadTexture(PLAYER_SWING_FORWARD, manager);
+        loadTexture(PLAYER_DEATH, manager);
 
         // Load NPC Animations
-        manager.load(NPC_CHEESE, Texture.class);
-        assets.add(NPC_CHEESE);
-        manager.load(NPC_CHEESE_SHOCK, Texture.class);
-        assets.add(NPC_CHEESE_SHOCK);
-        manager.load(NPC_COZY, Texture.class);
-        assets.add(NPC_COZY);
-        manager.load(NPC_COZY_SHOCK, Texture.class);
-        assets.add(NPC_COZY_SHOCK);
-        manager.load(NPC_NERVY, Texture.class);
-        assets.add(NPC_NERVY);
-        manager.load(NPC_NERVY_SHOCK, Texture.class);
-        assets.add(NPC_NERVY_SHOCK);
-        manager.load(NPC_SPIKY, Texture.class);
-        assets.add(NPC_SPIKY);
-        manager.load(NPC_SPIKY_SHOCK, Texture.class);
-        assets.add(NPC_SPIKY_SHOCK);
-        manager.load(NPC_HEYO, Texture.class);
-        assets.add(NPC_HEYO);
-        manager.load(NPC_HEYO_SHOCK, Texture.class);
-        assets.add(NPC_HEYO_SHOCK);
-        manager.load(NPC_WELCOME, Texture.class);
-        assets.add(NPC_WELCOME);
-        manager.load(NPC_WELCOME_SHOCK, Texture.class);
-        assets.add(NPC_WELCOME_SHOCK);
-        manager.load(TARGET, Texture.class);
-        assets.add(TARGET);
+        loadTexture(NPC_CHEESE, manager);
+        loadTexture(NPC_CHEESE_SHOCK, manager);
+        loadTexture(NPC_COZY, manager);
+        loadTexture(NPC_COZY_SHOCK, manager);
+        loadTexture(NPC_NERVY, manager);
+        loadTexture(NPC_NERVY_SHOCK, manager);
+        loadTexture(NPC_SPIKY, manager);
+        loadTexture(NPC_SPIKY_SHOCK, manager);
+        loadTexture(NPC_HEYO, manager);
+        loadTexture(NPC_HEYO_SHOCK, manager);
+        loadTexture(NPC_WELCOME, manager);
+        loadTexture(NPC_WELCOME_SHOCK, manager);
+        loadTexture(TARGET, manager);
 
         // Load Sound Assets
         loadAsset(JUMP_FILE, Sound.class, manager);
@@ -670,41 +846,28 @@ public class GameMode extends Mode implements Screen {
         loadAsset(HANG_FILE, Sound.class, manager);
 //        loadAsset(SWING_FILE, Music.class, manager);
 
-        // Load Music
-        manager.load(CITY_MUSIC_FILE, Music.class);
-        assets.add(CITY_MUSIC_FILE);
-        manager.load(VILLAGE_MUSIC_FILE, Music.class);
-        assets.add(VILLAGE_MUSIC_FILE);
-        manager.load(FOREST_MUSIC_FILE, Music.class);
-        assets.add(FOREST_MUSIC_FILE);
-        manager.load(MOUNTAIN_MUSIC_FILE, Music.class);
-        assets.add(MOUNTAIN_MUSIC_FILE);
-        manager.load(OPENING_CUTSCENE_FILE, Music.class);
-        assets.add(OPENING_CUTSCENE_FILE);
-        manager.load(ENDING_CUTSCENE_FILE, Music.class);
-        assets.add(ENDING_CUTSCENE_FILE);
-        manager.load(TRANSITION_CUTSCENE_FILE, Music.class);
-        assets.add(TRANSITION_CUTSCENE_FILE);
-        manager.load(WALKING_CITY_FILE, Music.class);
-        assets.add(WALKING_CITY_FILE);
-        manager.load(WALKING_VILLAGE_FILE, Music.class);
-        assets.add(WALKING_VILLAGE_FILE);
-        manager.load(WALKING_FOREST_FILE, Music.class);
-        assets.add(WALKING_FOREST_FILE);
-        manager.load(WALKING_MT_FILE, Music.class);
-        assets.add(WALKING_MT_FILE);
-
         // Load the font
         FreetypeFontLoader.FreeTypeFontLoaderParameter size2Params = new FreetypeFontLoader.FreeTypeFontLoaderParameter();
         size2Params.fontFileName = FONT_FILE;
         size2Params.fontParameters.size = FONT_SIZE;
         manager.load(FONT_FILE, BitmapFont.class, size2Params);
         assets.add(FONT_FILE);
+
+        // A new game starts in the first theme, so stream it in behind the core set
+        queueTheme(manager, CITY);
     }
 
     public void initializeContent(AssetManager manager) {
         billboards = new ArrayList<>();
         String type = level.getType();
+        // The music of the last level may belong to a theme that is about to be unloaded
+        if (music != null) {
+            music.stop();
+        }
+        if (walkingMusic != null) {
+            walkingMusic.stop();
+        }
+        requireTheme(manager, themeOf(type));
         stillBackgroundTextures.clear();
         slightMoveBackgroundTextures.clear();
         movingBackgroundTextures.clear();
@@ -740,15 +903,19 @@ public class GameMode extends Mode implements Screen {
             case "city":
                 music = manager.get(CITY_MUSIC_FILE, Music.class);
                 tileTexture = createTexture(manager, CITY_TILE_FILE, false);
+                city_door = createFilmStrip(manager, GATE, 1, 11, 11, false);
                 door = city_door;
+                spikeTile = createTexture(manager, SPIKE_FILE, false);
+                spikeVertTile = createTexture(manager, SPIKE_VERT, false);
+                basketEmptyTexture = createTexture(manager, BASKET_EMPTY, false);
                 for (String s : CITY_BKG_FILES_LAYER_A) {
-                    stillBackgroundTextures.add(createTexture(manager, s, false));
+                    stillBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : CITY_BKG_FILES_LAYER_B) {
-                    slightMoveBackgroundTextures.add(createTexture(manager, s, false));
+                    slightMoveBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : CITY_BKG_FILES_LAYER_C) {
-                    movingBackgroundTextures.add(createTexture(manager, s, false));
+                    movingBackgroundTextures.add(createBackground(manager, s));
                 }
                 if (level.getLevel() == 1) {
                     itemTexture.add(createTexture(manager, BASKET_EMPTY, false));
@@ -770,15 +937,21 @@ public class GameMode extends Mode implements Screen {
             case "village":
                 music = manager.get(VILLAGE_MUSIC_FILE, Music.class);
                 tileTexture = createTexture(manager, VILLAGE_TILE_FILE, false);
+                village_door = createFilmStrip(manager, VILLAGE_GATE, 1, 11, 11, false);
                 door = village_door;
+                villageSpikeTile = createTexture(manager, VILLAGE_SPIKES_FILE, false);
+                villageSpikeVertTile = createTexture(manager, VILLAGE_SPIKES_VERT_FILE, false);
+                villageLeftTexture = createTexture(manager, VILLAGE_LEFT, false);
+                villageRightTexture = createTexture(manager, VILLAGE_RIGHT, false);
+                villageNPCTexture = createTexture(manager, VILLAGE_NPC, false);
                 for (String s : VILLAGE_BKG_FILES_LAYER_A) {
-                    stillBackgroundTextures.add(createTexture(manager, s, false));
+                    stillBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : VILLAGE_BKG_FILES_LAYER_B) {
-                    slightMoveBackgroundTextures.add(createTexture(manager, s, false));
+                    slightMoveBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : VILLAGE_BKG_FILES_LAYER_C) {
-                    movingBackgroundTextures.add(createTexture(manager, s, false));
+                    movingBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : villageItems) {
                     itemTexture.add(createTexture(manager, s, false));
@@ -794,15 +967,19 @@ public class GameMode extends Mode implements Screen {
             case "forest":
                 music = manager.get(FOREST_MUSIC_FILE, Music.class);
                 tileTexture = createTexture(manager, FOREST_TILE_FILE, false);
+                forest_door = createFilmStrip(manager, FOREST_GATE, 1, 11, 11, false);
                 door = forest_door;
+                forestSpikeTile = createTexture(manager, FOREST_SPIKES_FILE, false);
+                forestSpikeVertTile = createTexture(manager, FOREST_SPIKES_VERT_FILE, false);
+                forestMushroom = createTexture(manager, FOREST_MUSHROOM_FILE, false);
                 for (String s : FOREST_BKG_FILES_LAYER_A) {
-                    stillBackgroundTextures.add(createTexture(manager, s, false));
+                    stillBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : FOREST_BKG_FILES_LAYER_B) {
-                    slightMoveBackgroundTextures.add(createTexture(manager, s, false));
+                    slightMoveBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : FOREST_BKG_FILES_LAYER_C) {
-                    movingBackgroundTextures.add(createTexture(manager, s, false));
+                    movingBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : forestItems) {
                     itemTexture.add(createTexture(manager, s, false));
@@ -818,15 +995,18 @@ public class GameMode extends Mode implements Screen {
             case "mountain":
                 music = manager.get(MOUNTAIN_MUSIC_FILE, Music.class);
                 tileTexture = createTexture(manager, MOUNTAIN_TILE_FILE, false);
+                mountain_door = createFilmStrip(manager, MOUNTAIN_GATE, 1, 11, 11, false);
                 door = mountain_door;
+                mountainSpikeTile = createTexture(manager, MOUNTAIN_SPIKES_FILE, false);
+                mountainSpikeVertTile = createTexture(manager, MOUNTAIN_SPIKES_VERT_FILE, false);
                 for (String s : MT_BKG_FILES_LAYER_A) {
-                    stillBackgroundTextures.add(createTexture(manager, s, false));
+                    stillBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : MT_BKG_FILES_LAYER_B) {
-                    slightMoveBackgroundTextures.add(createTexture(manager, s, false));
+                    slightMoveBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : MT_BKG_FILES_LAYER_C) {
-                    movingBackgroundTextures.add(createTexture(manager, s, false));
+                    movingBackgroundTextures.add(createBackground(manager, s));
                 }
                 for (String s : mountainItems) {
                     itemTexture.add(createTexture(manager, s, false));
@@ -901,16 +1081,7 @@ public class GameMode extends Mode implements Screen {
         npcShock.put("welcome", npcWelcomeShockTexture);
         yarnTexture = createTexture(manager, YARN, false);
         greyYarnTexture = createTexture(manager, GREY_YARN, false);
-        basketEmptyTexture = createTexture(manager, BASKET_EMPTY, false);
-//        door = createFilmStrip(manager, GATE, 1, 11, 11, false);
-        city_door = createFilmStrip(manager, GATE, 1, 11, 11, false);
-        village_door = createFilmStrip(manager, VILLAGE_GATE, 1, 11, 11, false);
-        forest_door = createFilmStrip(manager, FOREST_GATE, 1, 11, 11, false);
-        mountain_door = createFilmStrip(manager, MOUNTAIN_GATE, 1, 11, 11, false);
         cutIndicatorTexture = createTexture(manager, CUT_INDICATOR_FILE, false);
-        villageLeftTexture = createTexture(manager, VILLAGE_LEFT, false);
-        villageRightTexture = createTexture(manager, VILLAGE_RIGHT, false);
-        villageNPCTexture = createTexture(manager, VILLAGE_NPC, false);
         SoundController sounds = SoundController.getInstance();
         sounds.allocate(manager, JUMP_FILE);
         sounds.allocate(manager, LAND_FILE);
@@ -933,23 +1104,16 @@ public class GameMode extends Mode implements Screen {
         loseSound = manager.get(LOSE_FILE);
         clickSound = manager.get(CLICK_FILE);
         snipSound = manager.get(SNIP_FILE);
-        forestSpikeTile = createTexture(manager, FOREST_SPIKES_FILE, false);
-        forestMushroom = createTexture(manager, FOREST_MUSHROOM_FILE, false);
-        forestSpikeVertTile = createTexture(manager, FOREST_SPIKES_VERT_FILE, false);
-        villageSpikeTile = createTexture(manager, VILLAGE_SPIKES_FILE, false);
-        villageSpikeVertTile = createTexture(manager, VILLAGE_SPIKES_VERT_FILE, false);
-        mountainSpikeTile = createTexture(manager, MOUNTAIN_SPIKES_FILE, false);
-        mountainSpikeVertTile = createTexture(manager, MOUNTAIN_SPIKES_VERT_FILE, false);
-        spikeTile = createTexture(manager, SPIKE_FILE, false);
-        spikeVertTile = createTexture(manager, SPIKE_VERT, false);
         UI_restart = createTexture(manager, RESTART_FILE, false);
         UI_exit = createTexture(manager, ESC_FILE, false);
         Zoom_ui = createTexture(manager, ZOOM_UI, false);
         if (manager.isLoaded(FONT_FILE)) {
+            long start = Trace.begin();
             FreeTypeFontGenerator generator = new FreeTypeFontGenerator(Gdx.files.internal(FONT_FILE));
             FreeTypeFontGenerator.FreeTypeFontParameter parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
             parameter.size = 20;
             displayFont = generator.generateFont(parameter);
+            Trace.end("GameMode.displayFont", "font", start, FONT_FILE);
             //  displayFont = manager.get(FONT_FILE, BitmapFont.class);
         } else {
             displayFont = null;
@@ -985,6 +1149,30 @@ public class GameMode extends Mode implements Screen {
     private RevoluteJointDef revoluteJointDef;
 
     private PlayerRope playerRope;
+    /**
+     * The couples in the level, keyed by the id they share with their rope (and its blobs)
+     */
+    private final IntMap<Couple> couplesById = new IntMap<>();
+    /**
+     * The items in the level, keyed by item id
+     */
+    private final IntMap<Item> itemsById = new IntMap<>();
+    /**
+     * The rope object reused for every swing (null until the first swing)
+     */
+    private PlayerRope swingRope;
+    /**
+     * Collision filter for the swing rope (Box2D copies it into each fixture)
+     */
+    private final Filter playerRopeFilter = new Filter();
+    /**
+     * Cache vector for the swing joint anchors
+     */
+    private final Vector2 swingAnchor = new Vector2();
+    /**
+     * Text buffer for the item count in the UI (reused every frame)
+     */
+    private final StringBuilder itemCountText = new StringBuilder();
 
     private RopeQueryCallback ropeQueryCallback;
 
@@ -1004,6 +1192,8 @@ public class GameMode extends Mode implements Screen {
         setFailure(false);
         ropeJointDef = new RopeJointDef();
         revoluteJointDef = new RevoluteJointDef();
+        playerRopeFilter.categoryBits = CollisionFilterConstants.CATEGORY_PLAYER_ROPE.getID();
+        playerRopeFilter.maskBits = CollisionFilterConstants.MASK_NO_COLLISION.getID();
         ropeQueryCallback = new RopeQueryCallback();
         cuttingCallback = new CuttingCallback();
     }
@@ -1020,12 +1210,29 @@ public class GameMode extends Mode implements Screen {
         }
         objects.clear();
         addQueue.clear();
+        couplesById.clear();
+        itemsById.clear();
+        grid.clear();
+        movingObjects.clear();
+        visibleObjects.clear();
         collectedItems = new boolean[]{false, false, false};
         world.dispose();
         world = new World(gravity, false);
+        if (canvas != null) {
+            canvas.clearPhysicsOutlines();
+        }
         setComplete(false);
         setFailure(false);
+        if (!fixedSeed) {
+            seed = System.nanoTime();
+        }
+        rand.setSeed(seed);
+        physicsStepAccumulator = 0.0;
         populateLevel();
+        bakeStaticObjects();
+        if (GDXRoot.recordInput) {
+            startRecording();
+        }
         world.setContactListener(new CollisionController(player));
         ropeQueryCallback.setPlayer(player);
         ropeQueryCallback.reset();
@@ -1047,6 +1254,17 @@ public class GameMode extends Mode implements Screen {
         volume = GDXRoot.musicVol;
     }
 
+    /**
+     * Starts a new input recording for this attempt at the level.
+     * <p>
+     * The recording stores the level and seed, so a replay builds the same level.
+     * Any recording in progress is closed.
+     */
+    private void startRecording() {
+        String file = RECORDING_DIR + "level" + level.getLevel() + "-" + TimeUtils.millis() + ".nsai";
+        InputController.getInstance().setRecorder(new InputRecorder(Gdx.files.local(file), level.getLevel(), seed));
+    }
+
     /**
      * Lays out the game geography.
      */
@@ -1063,7 +1281,7 @@ public class GameMode extends Mode implements Screen {
         // Create main dude
         float dWidth = playerIdleAnimation.getRegionWidth() / 2.2f / scale.x;
         float dHeight = playerIdleAnimation.getRegionHeight() / scale.y;
-        player = new Person(playerPos.x, playerPos.y, dWidth, dHeight, "player", "playerSensor");
+        player = new Person(playerPos.x, playerPos.y, dWidth, dHeight, "player");
         Filter playerFilter = new Filter();
         playerFilter.categoryBits = CollisionFilterConstants.CATEGORY_PLAYER.getID();
         playerFilter.maskBits = CollisionFilterConstants.MASK_PLAYER.getID();
@@ -1074,13 +1292,12 @@ public class GameMode extends Mode implements Screen {
 
         float xpos = player.getX() * scale.x > 350 ? player.getX() * scale.x : 350;
         float ypos = player.getY() * scale.y > 240 ? player.getY() * scale.y : 240;
-        lastpos = new Vector2(xpos, ypos);
-        lastviewport = new Vector2(canvas.getWidth() * 0.6f, canvas.getHeight() * 0.6f);
+        lastpos.set(xpos, ypos);
+        lastviewport.set(canvas.getWidth() * 0.6f, canvas.getHeight() * 0.6f);
         canvas.moveCamera(lastpos.x, lastpos.y);
         canvas.changeViewport(lastviewport.x, lastviewport.y);
         isZoomed = true;
-        direction = null;
-        targetViewPort = null;
+        hasZoomTarget = false;
         // Create exit door
         createGate(points, level.getExitPos().x, level.getExitPos().y, door);
         //add player
@@ -1132,6 +1349,121 @@ public class GameMode extends Mode implements Screen {
 
     }
 
+    /**
+     * Records the objects that never move into the static sprite cache.
+     * <p>
+     * Static stones and spikes are drawn once, into a cache on the canvas, and
+     * marked as baked so that draw skips them.  The cache is split into chunks
+     * STATIC_CHUNK_WIDTH pixels wide (by the left edge of each object), and each
+     * chunk costs one draw call per texture.  Sliding and rotating stones stay
+     * dynamic.  This must be called after populateLevel, outside of any drawing
+     * pass.
+     */
+    private void bakeStaticObjects() {
+        staticChunks.clear();
+        bakedChunks.clear();
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        canvas.beginSpriteCount();
+        for (Obstacle obj : objects) {
+            if (obj instanceof Spikes || (obj instanceof Stone && ((Stone) obj).isStatic())) {
+                obj.setBaked(true);
+                obj.draw(canvas);
+                int chunk = getStaticChunk(obj);
+                first = Math.min(first, chunk);
+                last = Math.max(last, chunk);
+            }
+        }
+        int sprites = canvas.endSpriteCount();
+        canvas.createStaticCache(sprites);
+        if (sprites == 0) {
+            return;
+        }
+        for (int chunk = first; chunk <= last; chunk++) {
+            boolean empty = true;
+            for (Obstacle obj : objects) {
+                if (obj.isBaked() && getStaticChunk(obj) == chunk) {
+                    if (empty) {
+                        canvas.beginStaticChunk();
+                        empty = false;
+                    }
+                    obj.draw(canvas);
+                }
+            }
+            if (!empty) {
+                int id = canvas.endStaticChunk();
+                staticChunks.add(id);
+                for (Obstacle obj : objects) {
+                    if (obj.isBaked() && getStaticChunk(obj) == chunk) {
+                        bakedChunks.put(obj, id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the objects (and static cache chunks) that overlap the view.
+     * <p>
+     * The moving objects are refiled in the grid first; the static ones were
+     * filed when they were added.  The view is padded by CULL_MARGIN, since many
+     * sprites are drawn larger than their bodies.  The objects are stored in
+     * visibleObjects in draw order, and the chunks holding the visible baked
+     * objects are stored in visibleChunks in cache order.
+     */
+    private void cullObjects() {
+        for (Obstacle obj : movingObjects) {
+            grid.put(obj, obj.getBounds(cullBounds));
+        }
+        canvas.getViewBounds(cullBounds);
+        cullBounds.set(cullBounds.x / scale.x - CULL_MARGIN, cullBounds.y / scale.y - CULL_MARGIN,
+                cullBounds.width / scale.x + 2 * CULL_MARGIN, cullBounds.height / scale.y + 2 * CULL_MARGIN);
+        visibleObjects.clear();
+        grid.query(cullBounds, visibleObjects);
+
+        visibleChunks.clear();
+        for (int ii = 0; ii < visibleObjects.size; ii++) {
+            Obstacle obj = visibleObjects.get(ii);
+            if (obj.isBaked()) {
+                int id = bakedChunks.get(obj, -1);
+                if (id >= 0 && !visibleChunks.contains(id)) {
+                    visibleChunks.add(id);
+                }
+            }
+        }
+        visibleChunks.sort();
+    }
+
+    /**
+     * Returns the layer of the sorted drawing pass that an object belongs to.
+     * <p>
+     * The exit is behind everything, the platforms and hazards are in front of
+     * the npcs and items, and the player (with its rope) is in front of them all.
+     *
+     * @param obj The object to classify
+     * @return the layer of the sorted drawing pass that an object belongs to
+     */
+    private int getLayer(Obstacle obj) {
+        if (obj == player || obj instanceof PlayerRope) {
+            return GameCanvas.LAYER_PLAYER;
+        } else if (obj instanceof Stone || obj instanceof Spikes) {
+            return GameCanvas.LAYER_TERRAIN;
+        } else if (obj instanceof Gate) {
+            return GameCanvas.LAYER_SCENERY;
+        }
+        return GameCanvas.LAYER_ACTORS;
+    }
+
+    /**
+     * Returns the static cache chunk that holds an object.
+     *
+     * @param obj The object to locate
+     * @return the static cache chunk that holds an object.
+     */
+    private int getStaticChunk(Obstacle obj) {
+        return (int) Math.floor(obj.getX() * scale.x / STATIC_CHUNK_WIDTH);
+    }
+
     public Stone createTile(float[] points, float x, float y, float width, float height, String type, String name, float sc, TextureRegion texture) {
         Stone tile = new Stone(points, x, y, width, height, type, sc);
         if (type.equals("village")) {
@@ -1179,6 +1511,7 @@ public class GameMode extends Mode implements Screen {
         item.setTexture(tex);
         item.setDrawScale(scale);
         addObject(item);
+        itemsById.put(id, item);
     }
 
     /**
@@ -1224,6 +1557,51 @@ public class GameMode extends Mode implements Screen {
         }
         Couple couple = new Couple(x1, y1, x2, y2, randType1, randType2, randTex1, randTex2, scale, leftTile, rightTile, id);
         addObject(couple);
+        couplesById.put(id, couple);
+    }
+
+    /**
+     * Returns the couple with the given id, or null if there is none.
+     * <p>
+     * A couple shares its id with its rope, and so with every blob of the rope
+     * (even after it has been cut).  This is a constant time lookup.
+     *
+     * @param id The couple (or rope) id
+     * @return the couple with the given id, or null if there is none
+     */
+    public Couple getCouple(int id) {
+        return couplesById.get(id);
+    }
+
+    /**
+     * Returns the item with the given id, or null if there is none.
+     *
+     * @param id The item id
+     * @return the item with the given id, or null if there is none
+     */
+    public Item getItem(int id) {
+        return itemsById.get(id);
+    }
+
+    /**
+     * Removes a deleted object from the id registries, if it is in one.
+     *
+     * @param obj The object being removed from the level
+     */
+    private void unregister(Obstacle obj) {
+        grid.remove(obj);
+        movingObjects.remove(obj);
+        if (obj instanceof Couple) {
+            int id = ((Couple) obj).getId();
+            if (couplesById.get(id) == obj) {
+                couplesById.remove(id);
+            }
+        } else if (obj instanceof Item) {
+            int id = ((Item) obj).getId();
+            if (itemsById.get(id) == obj) {
+                itemsById.remove(id);
+            }
+        }
     }
 
     public Stone createRotatingTile(float[] points, float x, float y, float width, float height, String type, String name, float sc,
@@ -1280,64 +1658,78 @@ public class GameMode extends Mode implements Screen {
                 if (player.getY() * scale.y > canvas.getHeight() * 0.7f) {
                     y = canvas.getHeight();
                 }
-                direction = new Vector2(x, y);
-                targetViewPort = new Vector2(canvas.getWidth(), canvas.getHeight());
+                setZoomTarget(x, y, canvas.getWidth(), canvas.getHeight());
             }
             if (input.didDebug()) {
-                debug = !debug;
-            }// Handle resets
-            if (input.didReset()) {
+                // Cycle from outlines, to outlines with joints, boxes and contacts, to off
+                if (!debug) {
+                    debug = true;
+                    debugOptions = 0;
+                } else if (debugOptions == 0) {
+                    debugOptions = GameCanvas.DEBUG_JOINTS | GameCanvas.DEBUG_AABBS | GameCanvas.DEBUG_CONTACTS;
+                } else {
+                    debug = false;
+                }
+            }
+            if (input.didProfile()) {
+                profiler.setActive(!profiler.isActive());
+            }
+        }
+        // Resets, deaths and the countdown change the world, so a replay without a listener needs them too
+        if (input.didReset()) {
+            reset();
+        }// Now it is time to maybe switch screens.
+        if (listener != null && input.didExit()) {
+            listener.exitScreen(this, EXIT_QUIT);
+            result = false;
+        } else if (listener != null && input.didAdvance()) {
+            listener.exitScreen(this, EXIT_NEXT);
+            result = false;
+        } else if (listener != null && input.didRetreat()) {
+            listener.exitScreen(this, EXIT_PREV);
+            result = false;
+        } else if (!player.isAlive() || player.won()) {
+            if (player.isAttached() && playerRope != null) {
+                destroyPlayerRope();
+            }
+            if (player.won() && !didPlayWin) {
+                winSound.play(GDXRoot.soundVol);
+                didPlayWin = true;
+            }
+            if (!player.isAlive() && !didPlayLose) {
+                loseSound.play(GDXRoot.soundVol);
+                didPlayLose = true;
+            }
+            timeSeconds += dt;
+            if (player.won()) {
+                if (volume > 0.00f)
+                    volume -= timeSeconds * 0.005f;
+                else
+                    volume = 0.0f;
+                music.setVolume(Math.abs(volume));
+            }
+            if (timeSeconds > period) {
+                timeSeconds = 0;
+                if (!player.won())
+                    reset();
+                else if (listener != null)
+                    listener.exitScreen(this, LevelTransitionMode.INTO_TRANSITION);
+            }
+        } else if (countdown > 0) {
+            countdown--;
+        } else if (countdown == 0) {
+            if (failed) {
                 reset();
-            }// Now it is time to maybe switch screens.
-            if (input.didExit()) {
-                listener.exitScreen(this, EXIT_QUIT);
-                result = false;
-            } else if (input.didAdvance()) {
+            } else if (complete && listener != null) {
                 listener.exitScreen(this, EXIT_NEXT);
                 result = false;
-            } else if (input.didRetreat()) {
-                listener.exitScreen(this, EXIT_PREV);
-                result = false;
-            } else if (!player.isAlive() || player.won()) {
-                if (player.isAttached() && playerRope != null) {
-                    destroyPlayerRope();
-                }
-                if (player.won() && !didPlayWin) {
-                    winSound.play(GDXRoot.soundVol);
-                    didPlayWin = true;
-                }
-                if (!player.isAlive() && !didPlayLose) {
-                    loseSound.play(GDXRoot.soundVol);
-                    didPlayLose = true;
-                }
-                timeSeconds += Gdx.graphics.getRawDeltaTime();
-                if (player.won()) {
-                    if (volume > 0.00f)
-                        volume -= timeSeconds * 0.005f;
-                    else
-                        volume = 0.0f;
-                    music.setVolume(Math.abs(volume));
-                }
-                if (timeSeconds > period) {
-                    timeSeconds = 0;
-                    if (player.won())
-                        listener.exitScreen(this, LevelTransitionMode.INTO_TRANSITION);
-                    else
-                        reset();
-                }
-            } else if (countdown > 0) {
-                countdown--;
-            } else if (countdown == 0) {
-                if (failed) {
-                    reset();
-                } else if (complete) {
-                    listener.exitScreen(this, EXIT_NEXT);
-                    result = false;
-                }
             }
         }
 
 
+        // Recorded after any reset above, so the frame lands in the new recording
+        input.recordFrame(dt);
+
         if (!result) {
             return false;
         }
@@ -1373,32 +1765,27 @@ public class GameMode extends Mode implements Screen {
 
         if (Gdx.input.isKeyJustPressed(Input.Keys.Z) || Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)
                 || Gdx.input.isKeyJustPressed(Input.Keys.Q)) {
-            direction = new Vector2(xpos, ypos);
-            targetViewPort = new Vector2(canvas.getWidth() * 0.6f, canvas.getHeight() * 0.6f);
+            setZoomTarget(xpos, ypos, canvas.getWidth() * 0.6f, canvas.getHeight() * 0.6f);
             isZoomed = true;
         }
 
         if (Gdx.input.isKeyPressed(Input.Keys.RIGHT) && !isZoomed && lastpos.x < canvas.getWidth() / 2 + 500) {
-            direction = new Vector2(lastpos.x + 20, lastpos.y);
-            targetViewPort = new Vector2(canvas.getWidth(), canvas.getHeight());
+            setZoomTarget(lastpos.x + 20, lastpos.y, canvas.getWidth(), canvas.getHeight());
         }
 
         if (Gdx.input.isKeyPressed(Input.Keys.LEFT) && !isZoomed && lastpos.x > canvas.getWidth() / 2 - 300) {
-            direction = new Vector2(lastpos.x - 20, lastpos.y);
-            targetViewPort = new Vector2(canvas.getWidth(), canvas.getHeight());
+            setZoomTarget(lastpos.x - 20, lastpos.y, canvas.getWidth(), canvas.getHeight());
         }
         //    System.out.println((stillBackgroundTextures.get(0).getRegionHeight()/ stillBackgroundTextures.get(0).getRegionWidth())
         //    * canvas.getWidth());
         if (Gdx.input.isKeyPressed(Input.Keys.UP) && !isZoomed && lastpos.y <
                 (((float) stillBackgroundTextures.get(0).getRegionHeight() / (float) stillBackgroundTextures.get(0).getRegionWidth())
                         * canvas.getWidth() - canvas.getHeight() * 0.55f)) {
-            direction = new Vector2(lastpos.x, lastpos.y + 20);
-            targetViewPort = new Vector2(canvas.getWidth(), canvas.getHeight());
+            setZoomTarget(lastpos.x, lastpos.y + 20, canvas.getWidth(), canvas.getHeight());
         }
 
         if (Gdx.input.isKeyPressed(Input.Keys.DOWN) && !isZoomed && lastpos.y > canvas.getHeight() / 2 - 200) {
-            direction = new Vector2(lastpos.x, lastpos.y - 20);
-            targetViewPort = new Vector2(canvas.getWidth(), canvas.getHeight());
+            setZoomTarget(lastpos.x, lastpos.y - 20, canvas.getWidth(), canvas.getHeight());
         }
 
 
@@ -1406,7 +1793,7 @@ public class GameMode extends Mode implements Screen {
             reset();
         }
 
-        if (direction != null && targetViewPort != null) {
+        if (hasZoomTarget) {
             if (targetViewPort.x == lastviewport.x && targetViewPort.y == lastviewport.y
                     && direction.x == lastpos.x && lastpos.y == direction.y) {
                 if (isZoomed) gameState = GameState.PLAYING;
@@ -1454,8 +1841,8 @@ public class GameMode extends Mode implements Screen {
             canvas.moveCamera(xp, yp);
             canvas.changeViewport(xz, yz);
 
-            lastpos = new Vector2(xp, yp);
-            lastviewport = new Vector2(xz, yz);
+            lastpos.set(xp, yp);
+            lastviewport.set(xz, yz);
 
         }
     }
@@ -1559,14 +1946,13 @@ public class GameMode extends Mode implements Screen {
     public void update(float dt) {
 //        System.out.println(dt);
         // Process actions in object model
-        if ((Gdx.input.isTouched() && Gdx.input.getX() >= 800
-                && Gdx.input.getX() <= 950 && Gdx.input.getY() >= 48 && Gdx.input.getY() <= 132)
-                || (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE))) {
+        InputController input = InputController.getInstance();
+        if (input.didPause() && listener != null) {
             clickSound.play(GDXRoot.soundVol);
             listener.exitScreen(this, PauseMode.INTO_PAUSE);
         }
 
-        boolean isGodModeKeyPressed = Gdx.input.isKeyPressed(Input.Keys.G);
+        boolean isGodModeKeyPressed = input.didGodMode();
 
         if (player.isGodModeActivated() && isGodModeKeyPressed) {
             player.setGodMode(false);
@@ -1659,26 +2045,22 @@ public class GameMode extends Mode implements Screen {
 
             if (player.isCutting()) {
                 world.QueryAABB(cuttingCallback, playerPosition.x - player.getWidth() / 2, playerPosition.y - player.getHeight() / 2 - 0.05f, playerPosition.x + player.getWidth() / 2, playerPosition.y + player.getHeight() / 2 + 0.05f);
-                int id = cuttingCallback.getClosestBlobID();
-                if (id != -1) {
-                    for (Obstacle obs : objects) {
-                        if (obs.getName().equals("couples" + id)) {
-                            NpcRope r = ((Couple) obs).getRope();
-                            if (r != null) {
-                                NpcRope[] ropes = r.cut(player.getPosition(), world, player.getHeight());
-                                if (ropes != null) {
-                                    snipSound.play(GDXRoot.soundVol);
-                                    ((Couple) obs).breakBond(ropes[0], ropes[1]);
-                                    NpcPerson left = ((Couple) obs).getL();
-                                    setShockNpc(left, "cutrope");
-                                    NpcPerson right = ((Couple) obs).getR();
-                                    setShockNpc(right, "cutrope");
-                                }
-                            }
+                Couple couple = couplesById.get(cuttingCallback.getClosestBlobID());
+                if (couple != null) {
+                    NpcRope r = couple.getRope();
+                    if (r != null) {
+                        NpcRope[] ropes = r.cut(player.getPosition(), world, player.getHeight());
+                        if (ropes != null) {
+                            snipSound.play(GDXRoot.soundVol);
+                            couple.breakBond(ropes[0], ropes[1]);
+                            NpcPerson left = couple.getL();
+                            setShockNpc(left, "cutrope");
+                            NpcPerson right = couple.getR();
+                            setShockNpc(right, "cutrope");
                         }
                     }
-                    cuttingCallback.reset();
                 }
+                cuttingCallback.reset();
             }
 
             // Nearest NPC for exclamation
@@ -1691,19 +2073,15 @@ public class GameMode extends Mode implements Screen {
 
             if (!player.isAttached()) {
                 world.QueryAABB(cuttingCallback, playerPosition.x - player.getWidth() / 2, playerPosition.y - player.getHeight() / 2, playerPosition.x + player.getWidth() / 2, playerPosition.y + player.getHeight() / 2);
-                int id = cuttingCallback.getClosestBlobID();
-                if (id != -1) {
-                    for (Obstacle obs : objects) {
-                        if (obs.getName().equals("couples" + id)) {
-                            NpcRope r = ((Couple) obs).getRope();
-                            if (r != null) {
-                                player.setCanCut((Couple) obs);
-                                player.setCanJumpIndicator(player.getY() >= r.getY());
-                            } else {
-                                player.setCanCut(null);
-                                player.setCanJumpIndicator(false);
-                            }
-                        }
+                Couple couple = couplesById.get(cuttingCallback.getClosestBlobID());
+                if (couple != null) {
+                    NpcRope r = couple.getRope();
+                    if (r != null) {
+                        player.setCanCut(couple);
+                        player.setCanJumpIndicator(player.getY() >= r.getY());
+                    } else {
+                        player.setCanCut(null);
+                        player.setCanJumpIndicator(false);
                     }
                 } else {
                     player.setCanCut(null);
@@ -1735,14 +2113,17 @@ public class GameMode extends Mode implements Screen {
             // Swinging
             if (player.getTarget() != null && player.isShooting() && !player.isAttached()) {
                 float ancX = player.isFacingRight() ? player.getWidth() / 2f - 0.21f : -player.getWidth() / 2f + 0.21f;
-                Vector2 anchor = new Vector2(ancX, player.getWidth() / 2f + 0.1f);
+                Vector2 anchor = swingAnchor.set(ancX, player.getWidth() / 2f + 0.1f);
                 Vector2 playerPos = player.getPosition();
                 Vector2 targetPos = player.getTarget().getPosition();
-                playerRope = new PlayerRope(playerPos.x, playerPos.y, targetPos.x, targetPos.y, 4.5f);
+                // Reuse the last rope, unless it has not been removed from the world yet
+                if (swingRope == null || swingRope.isActive()) {
+                    swingRope = new PlayerRope(playerPos.x, playerPos.y, targetPos.x, targetPos.y, 4.5f);
+                } else {
+                    swingRope.reset(playerPos.x, playerPos.y, targetPos.x, targetPos.y);
+                }
+                playerRope = swingRope;
                 playerRope.setLinearVelocityAll(player.getLinearVelocity());
-                Filter playerRopeFilter = new Filter();
-                playerRopeFilter.categoryBits = CollisionFilterConstants.CATEGORY_PLAYER_ROPE.getID();
-                playerRopeFilter.maskBits = CollisionFilterConstants.MASK_NO_COLLISION.getID();
                 playerRope.setFilterDataAll(playerRopeFilter);
                 playerRope.setName("player_rope");
                 playerRope.setDrawScale(scale);
@@ -1809,7 +2190,9 @@ public class GameMode extends Mode implements Screen {
         }
 
         // If we use sound, we must remember this.
+        profiler.begin(FrameProfiler.SOUND);
         SoundController.getInstance().update();
+        profiler.end(FrameProfiler.SOUND);
     }
 
     public void drawPaused(float dt) {
@@ -1826,22 +2209,27 @@ public class GameMode extends Mode implements Screen {
     NpcPerson r;
 
     public void draw(float dt) {
+        profiler.begin(FrameProfiler.DRAW_BACKGROUND);
+        canvas.beginWorld();
         canvas.begin();
         float camera = player.getX() * scale.x;
         if (level.getType().equals("forest")) {
-            for (TextureRegion t : stillBackgroundTextures) {
-                canvas.drawMirrorred(t.getTexture(), 0f * camera, 0f, canvas.getWidth(),
-                        t.getRegionHeight() * (canvas.getWidth() / t.getRegionWidth()), t.getRegionWidth(), t.getRegionHeight(), 1f);
+            for (int ii = 0; ii < stillBackgroundTextures.size(); ii++) {
+                TextureRegion t = stillBackgroundTextures.get(ii);
+                canvas.drawParallax(t.getTexture(), 0f, 0f, canvas.getWidth(),
+                        t.getRegionHeight() * (canvas.getWidth() / t.getRegionWidth()));
             }
         } else {
-            for (TextureRegion t : stillBackgroundTextures) {
-                canvas.drawMirrorred(t.getTexture(), 0f * camera, 0f, canvas.getWidth() * 1.2f, canvas.getHeight() * 1.2f, t.getRegionWidth(), t.getRegionHeight(), 1.2f);
+            float width = canvas.getWidth() * 1.2f;
+            float height = canvas.getHeight() * 1.2f;
+            for (int ii = 0; ii < stillBackgroundTextures.size(); ii++) {
+                canvas.drawParallax(stillBackgroundTextures.get(ii).getTexture(), 0f, 0f, width, height);
             }
-            for (TextureRegion t : slightMoveBackgroundTextures) {
-                canvas.drawMirrorred(t.getTexture(), -.1f * camera, 0f, canvas.getWidth() * 1.2f, canvas.getHeight() * 1.2f, t.getRegionWidth(), t.getRegionHeight(), 1.2f);
+            for (int ii = 0; ii < slightMoveBackgroundTextures.size(); ii++) {
+                canvas.drawParallax(slightMoveBackgroundTextures.get(ii).getTexture(), -.1f * camera, 0f, width, height);
             }
-            for (TextureRegion t : movingBackgroundTextures) {
-                canvas.drawMirrorred(t.getTexture(), -.3f * camera, 0f, canvas.getWidth() * 1.2f, canvas.getHeight() * 1.2f, t.getRegionWidth(), t.getRegionHeight(), 1.2f);
+            for (int ii = 0; ii < movingBackgroundTextures.size(); ii++) {
+                canvas.drawParallax(movingBackgroundTextures.get(ii).getTexture(), -.3f * camera, 0f, width, height);
             }
         }
         if (billboards.size() >= level.getText().size()) {
@@ -1857,9 +2245,21 @@ public class GameMode extends Mode implements Screen {
         }
 
         canvas.end();
-        canvas.begin();
-        for (Obstacle obj : objects) {
-            if (obj.getName().equals("player_rope")) {
+        profiler.end(FrameProfiler.DRAW_BACKGROUND);
+        profiler.begin(FrameProfiler.DRAW_OBJECTS);
+        cullObjects();
+        canvas.beginSorted();
+        boolean drewStatic = false;
+        for (int ii = 0; ii < visibleObjects.size; ii++) {
+            Obstacle obj = visibleObjects.get(ii);
+            canvas.setLayer(getLayer(obj));
+            if (obj.isBaked()) {
+                // The baked objects are drawn together, in place of the first one
+                if (!drewStatic) {
+                    canvas.drawStaticChunks(visibleChunks);
+                    drewStatic = true;
+                }
+            } else if (obj.getName().equals("player_rope")) {
                 if (player.getTarget() != null && player.isAlive()) {
                     obj.draw(canvas);
                 }
@@ -1867,6 +2267,7 @@ public class GameMode extends Mode implements Screen {
                 obj.draw(canvas);
             }
         }
+        canvas.setLayer(GameCanvas.LAYER_EFFECTS);
         target = player.getCanSwingTo();
         if (target != null) {
             canvas.draw(targetTexture, Color.WHITE, target.getX() * scale.x - 40,
@@ -1880,6 +2281,9 @@ public class GameMode extends Mode implements Screen {
             canvas.draw(cutIndicatorTexture, Color.WHITE, (l.getX() + r.getX()) / 2 * scale.x - 5, (r.getY() + l.getY()) / 2 * scale.y - 20, cutIndicatorTexture.getRegionWidth() * 15f / scale.x, cutIndicatorTexture.getRegionHeight() * 15f / scale.y);
         }
 
+        profiler.end(FrameProfiler.DRAW_OBJECTS);
+
+        profiler.begin(FrameProfiler.DRAW_UI);
         canvas.drawUI(UI_restart, canvas.getWidth() - UI_restart.getRegionWidth(),
                 canvas.getHeight() - UI_restart.getRegionHeight(), 1f);
         canvas.drawUI(UI_exit, canvas.getWidth() - UI_restart.getRegionWidth() - UI_exit.getRegionWidth(),
@@ -1898,30 +2302,50 @@ public class GameMode extends Mode implements Screen {
             }
             UIX += greyYarnTexture.getRegionWidth() * 0.2f + 10;
         }
-        String text = player.getInventory().size() + " / " + items.size();
-        canvas.drawItemCount(text, (int) UIX - 20, (int) UIY + 5);
+        itemCountText.setLength(0);
+        itemCountText.append(player.getInventory().size()).append(" / ").append(items.size());
+        canvas.drawItemCount(itemCountText, (int) UIX - 20, (int) UIY + 5);
 
         if (gameState == GameState.ZOOM) {
             canvas.drawUI(Zoom_ui, canvas.getWidth() * 0.8f, canvas.getHeight() * 0.2f, 1f);
         }
 
         canvas.end();
+        canvas.endWorld();
+        profiler.end(FrameProfiler.DRAW_UI);
 
         if (isDebug()) {
+            canvas.setDebugOptions(debugOptions);
             canvas.beginDebug();
-            for (Obstacle obj : objects) {
-                obj.drawDebug(canvas);
+            for (int ii = 0; ii < visibleObjects.size; ii++) {
+                visibleObjects.get(ii).drawDebug(canvas);
+            }
+            if ((debugOptions & GameCanvas.DEBUG_JOINTS) != 0) {
+                world.getJoints(debugJoints);
+                for (int ii = 0; ii < debugJoints.size; ii++) {
+                    canvas.drawPhysics(debugJoints.get(ii), scale.x, scale.y);
+                }
+                debugJoints.clear();
+            }
+            if ((debugOptions & GameCanvas.DEBUG_CONTACTS) != 0) {
+                Array<Contact> contacts = world.getContactList();
+                for (int ii = 0; ii < contacts.size; ii++) {
+                    canvas.drawPhysics(contacts.get(ii), scale.x, scale.y);
+                }
             }
             canvas.endDebug();
 
         }
+        profiler.draw(canvas);
     }
 
     /**
      * Returns a newly loaded texture region for the given file.
      * <p>
      * This helper methods is used to set texture settings (such as scaling, and
-     * whether or not the texture should repeat) after loading.
+     * whether or not the texture should repeat) after loading.  If the file was
+     * packed into an atlas, the result is a copy of its atlas region.  A repeating
+     * texture cannot wrap inside an atlas page, so it is never looked up there.
      *
      * @param manager Reference to global asset manager.
      * @param file    The texture (region) file
@@ -1929,6 +2353,12 @@ public class GameMode extends Mode implements Screen {
      * @return a newly loaded texture region for the given file.
      */
     protected TextureRegion createTexture(AssetManager manager, String file, boolean repeat) {
+        if (!repeat) {
+            TextureAtlas.AtlasRegion packed = findRegion(manager, file);
+            if (packed != null) {
+                return new TextureAtlas.AtlasRegion(packed);
+            }
+        }
         if (manager.isLoaded(file)) {
             TextureRegion region = new TextureRegion(manager.get(file, Texture.class));
             region.getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
@@ -1940,11 +2370,31 @@ public class GameMode extends Mode implements Screen {
         return null;
     }
 
+    /**
+     * Returns a newly loaded background layer for the given file.
+     * <p>
+     * Background layers are drawn with drawParallax, which tiles the texture by
+     * wrapping it, so the texture is given a MirroredRepeat wrap.  Backgrounds
+     * are never packed into an atlas.
+     *
+     * @param manager Reference to global asset manager.
+     * @param file    The texture file
+     * @return a newly loaded background layer for the given file.
+     */
+    protected TextureRegion createBackground(AssetManager manager, String file) {
+        TextureRegion region = createTexture(manager, file, false);
+        if (region != null) {
+            region.getTexture().setWrap(Texture.TextureWrap.MirroredRepeat, Texture.TextureWrap.MirroredRepeat);
+        }
+        return region;
+    }
+
     /**
      * Returns a newly loaded filmstrip for the given file.
      * <p>
      * This helper methods is used to set texture settings (such as scaling, and
-     * the number of animation frames) after loading.
+     * the number of animation frames) after loading.  If the file was packed into
+     * an atlas, the filmstrip steps through the packed frames instead.
      *
      * @param manager Reference to global asset manager.
      * @param file    The texture (region) file
@@ -1954,6 +2404,14 @@ public class GameMode extends Mode implements Screen {
      * @return a newly loaded texture region for the given file.
      */
     protected FilmStrip createFilmStrip(AssetManager manager, String file, int rows, int cols, int size, boolean loop) {
+        Array<TextureAtlas.AtlasRegion> frames = findFrames(manager, file);
+        if (frames != null) {
+            if (frames.size != size) {
+                Gdx.app.error("game.GameMode", "Wrong frame count in atlas for " + file,
+                        new IllegalArgumentException());
+            }
+            return new FilmStrip(frames, loop);
+        }
         if (manager.isLoaded(file)) {
             FilmStrip strip = new FilmStrip(manager.get(file, Texture.class), rows, cols, size, loop);
             strip.getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
@@ -1962,6 +2420,130 @@ public class GameMode extends Mode implements Screen {
         return null;
     }
 
+    /**
+     * Queues the shared atlases, and records which texture files every atlas holds.
+     * <p>
+     * Only the atlas descriptions are read here; the pages are loaded by the asset
+     * manager like any other asset.  A texture file recorded here is not loaded on
+     * its own (see loadTexture), and is drawn from its atlas page instead.  The
+     * atlas of a theme is queued with the rest of the theme (see queueTheme).
+     *
+     * @param manager Reference to global asset manager.
+     */
+    private void loadAtlases(AssetManager manager) {
+        atlasFiles.clear();
+        atlasRegions.clear();
+        for (String file : THEME_ATLASES) {
+            readAtlas(file);
+        }
+        for (String file : CORE_ATLASES) {
+            if (readAtlas(file)) {
+                loadAsset(file, TextureAtlas.class, manager);
+            }
+        }
+    }
+
+    /**
+     * Records the texture files held by an atlas, if the atlas exists.
+     *
+     * @param file The atlas file
+     * @return true if the atlas exists
+     */
+    private boolean readAtlas(String file) {
+        FileHandle handle = Gdx.files.internal(file);
+        if (!handle.exists()) {
+            return false;
+        }
+        TextureAtlas.TextureAtlasData data = new TextureAtlas.TextureAtlasData(handle, handle.parent(), false);
+        for (TextureAtlas.TextureAtlasData.Region region : data.getRegions()) {
+            atlasRegions.add(region.name);
+            if (region.index >= 0) {
+                atlasRegions.add(region.name + "_" + region.index);
+            }
+        }
+        atlasFiles.add(file);
+        return true;
+    }
+
+    /**
+     * Queues a texture file, unless it has been packed into an atlas.
+     *
+     * @param file    The texture file
+     * @param manager Reference to global asset manager.
+     */
+    private void loadTexture(String file, AssetManager manager) {
+        if (!atlasRegions.contains(regionName(file))) {
+            loadAsset(file, Texture.class, manager);
+        }
+    }
+
+    /**
+     * Returns the atlas region name of a texture file.
+     * <p>
+     * The packer names a region by its path relative to the assets directory,
+     * without the extension.
+     *
+     * @param file The texture file
+     * @return the atlas region name of a texture file.
+     */
+    private static String regionName(String file) {
+        int dot = file.lastIndexOf('.');
+        return dot < 0 ? file : file.substring(0, dot);
+    }
+
+    /**
+     * Returns the atlas region for a texture file, or null if it was not packed.
+     * <p>
+     * The packer reads a trailing _N in a file name as a frame index, so such a
+     * file is looked up by base name and index.
+     *
+     * @param manager Reference to global asset manager.
+     * @param file    The texture file
+     * @return the atlas region for a texture file, or null if it was not packed.
+     */
+    private TextureAtlas.AtlasRegion findRegion(AssetManager manager, String file) {
+        String name = regionName(file);
+        String base = name;
+        int index = -1;
+        int split = name.lastIndexOf('_');
+        if (split > 0 && name.substring(split + 1).matches("\\d+")) {
+            base = name.substring(0, split);
+            index = Integer.parseInt(name.substring(split + 1));
+        }
+        for (String atlasFile : atlasFiles) {
+            if (manager.isLoaded(atlasFile)) {
+                TextureAtlas atlas = manager.get(atlasFile, TextureAtlas.class);
+                TextureAtlas.AtlasRegion region = index < 0 ? atlas.findRegion(name) : atlas.findRegion(base, index);
+                if (region != null) {
+                    return region;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the animation frames for a filmstrip file, or null if it was not packed.
+     * <p>
+     * The packer stores a filmstrip as one indexed region per frame.
+     *
+     * @param manager Reference to global asset manager.
+     * @param file    The filmstrip file
+     * @return the animation frames, in order, or null if it was not packed.
+     */
+    private Array<TextureAtlas.AtlasRegion> findFrames(AssetManager manager, String file) {
+        String name = regionName(file);
+        for (String atlasFile : atlasFiles) {
+            if (manager.isLoaded(atlasFile)) {
+                Array<TextureAtlas.AtlasRegion> frames = manager.get(atlasFile, TextureAtlas.class).findRegions(name);
+                if (frames.size > 0) {
+                    return frames;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns true if debug mode is active.
      * <p>
@@ -1973,6 +2555,84 @@ public class GameMode extends Mode implements Screen {
         return debug;
     }
 
+    /**
+     * Returns the seed used for the random choices in the current level.
+     *
+     * @return the seed used for the random choices in the current level.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Fixes the seed used for the random choices (such as NPC types) in a level.
+     * <p>
+     * By default every reset draws a fresh seed.  Once this is called, every reset
+     * uses the given seed instead, so the level is built the same way each time.
+     *
+     * @param seed the seed used for the random choices in a level
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+        fixedSeed = true;
+    }
+
+    /**
+     * Returns the Box2D world for the current level.
+     * <p>
+     * The world is replaced on every reset, so do not hold on to this reference
+     * across levels.
+     *
+     * @return the Box2D world for the current level.
+     */
+    public World getWorld() {
+        return world;
+    }
+
+    /**
+     * Returns the number of fixed physics steps taken by this mode.
+     * <p>
+     * The count is never reset, so callers should compare two readings.
+     *
+     * @return the number of fixed physics steps taken by this mode.
+     */
+    public long getPhysicsStepCount() {
+        return physicsStepCount;
+    }
+
+    /**
+     * Returns the frame profiler for this mode.
+     * <p>
+     * The profiler is toggled in game with F3.
+     *
+     * @return the frame profiler for this mode.
+     */
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * Returns the maximum number of physics steps taken in a single frame.
+     *
+     * @return the maximum number of physics steps taken in a single frame.
+     */
+    public int getMaxSubsteps() {
+        return maxSubsteps;
+    }
+
+    /**
+     * Sets the maximum number of physics steps taken in a single frame.
+     * <p>
+     * When a frame takes longer than this many steps, the rest of the time is
+     * dropped and the game slows down instead of trying to catch up.  Otherwise a
+     * slow frame leads to more steps, which leads to a slower frame, and so on.
+     *
+     * @param value the maximum number of physics steps per frame (at least 1)
+     */
+    public void setMaxSubsteps(int value) {
+        maxSubsteps = Math.max(1, value);
+    }
+
     public boolean levelComplete() {
         return player.won();
     }
@@ -1988,6 +2648,27 @@ public class GameMode extends Mode implements Screen {
         debug = value;
     }
 
+    /**
+     * Returns the extra physics information drawn in debug mode.
+     *
+     * @return the extra physics information drawn in debug mode
+     */
+    public int getDebugOptions() {
+        return debugOptions;
+    }
+
+    /**
+     * Sets the extra physics information drawn in debug mode.
+     * <p>
+     * The value is a combination of GameCanvas.DEBUG_JOINTS, DEBUG_AABBS and
+     * DEBUG_CONTACTS.
+     *
+     * @param options the extra physics information drawn in debug mode
+     */
+    public void setDebugOptions(int options) {
+        debugOptions = options;
+    }
+
     /**
      * Returns true if the level is completed.
      * <p>
@@ -2067,11 +2748,23 @@ public class GameMode extends Mode implements Screen {
      * Dispose of all (non-static) resources allocated to this mode.
      */
     public void dispose() {
+        InputController.getInstance().setRecorder(null);
         for (Obstacle obj : objects) {
             obj.deactivatePhysics(world);
         }
         objects.clear();
         addQueue.clear();
+        couplesById.clear();
+        itemsById.clear();
+        grid.clear();
+        movingObjects.clear();
+        visibleObjects.clear();
+        staticChunks.clear();
+        bakedChunks.clear();
+        if (canvas != null) {
+            canvas.clearStaticCache();
+            canvas.clearPhysicsOutlines();
+        }
         world.dispose();
         if (music != null)
             music.dispose();
@@ -2119,6 +2812,10 @@ public class GameMode extends Mode implements Screen {
         assert inBounds(obj) : "Object is not in bounds";
         objects.add(obj);
         obj.activatePhysics(world);
+        grid.put(obj, obj.getBounds(cullBounds));
+        if (obj instanceof ComplexObstacle || obj.getBodyType() != BodyDef.BodyType.StaticBody) {
+            movingObjects.add(obj);
+        }
     }
 
     /**
@@ -2136,8 +2833,32 @@ public class GameMode extends Mode implements Screen {
     }
 
 
-    private Vector2 direction = null;
-    private Vector2 targetViewPort = null;
+    /**
+     * The camera position the zoom is moving towards
+     */
+    private final Vector2 direction = new Vector2();
+    /**
+     * The viewport size the zoom is moving towards
+     */
+    private final Vector2 targetViewPort = new Vector2();
+    /**
+     * Whether direction and targetViewPort hold a zoom target
+     */
+    private boolean hasZoomTarget = false;
+
+    /**
+     * Sets the camera position and viewport size that the zoom moves towards.
+     *
+     * @param x      The x-coordinate of the camera target
+     * @param y      The y-coordinate of the camera target
+     * @param width  The target viewport width
+     * @param height The target viewport height
+     */
+    private void setZoomTarget(float x, float y, float width, float height) {
+        direction.set(x, y);
+        targetViewPort.set(width, height);
+        hasZoomTarget = true;
+    }
 
     /**
      * Processes physics
@@ -2154,36 +2875,55 @@ public class GameMode extends Mode implements Screen {
             addObject(addQueue.poll());
         }
         physicsStepAccumulator += dt;
+        int substeps = 0;
         while (physicsStepAccumulator > WORLD_STEP) {
+            if (substeps == maxSubsteps) {
+                // Too far behind; drop the backlog but keep the partial step
+                physicsStepAccumulator %= WORLD_STEP;
+                break;
+            }
+            for (Obstacle obj : objects) {
+                obj.saveTransform();
+            }
             // Turn the physics engine crank.
+            profiler.begin(FrameProfiler.WORLD_STEP);
             world.step(WORLD_STEP, WORLD_VELOC, WORLD_POSIT);
+            profiler.end(FrameProfiler.WORLD_STEP);
             physicsStepAccumulator -= WORLD_STEP;
+            physicsStepCount++;
+            substeps++;
         }
+        // Draw the objects this far between the last two physics states
+        float alpha = (float) (physicsStepAccumulator / WORLD_STEP);
 
 
         // Garbage collect the deleted objects.
         // Note how we use the linked list nodes to delete O(1) in place.
         // This is O(n) without copying.
+        profiler.begin(FrameProfiler.OBJECT_PASS);
         Iterator<PooledList<Obstacle>.Entry> iterator = objects.entryIterator();
         while (iterator.hasNext()) {
             PooledList<Obstacle>.Entry entry = iterator.next();
             Obstacle obj = entry.getValue();
             if (obj.isRemoved()) {
                 obj.deactivatePhysics(world);
+                unregister(obj);
                 entry.remove();
             } else {
                 // Note that update is called last!
                 obj.update(dt);
+                obj.setDrawAlpha(alpha);
             }
         }
+        profiler.end(FrameProfiler.OBJECT_PASS);
 
-        float xpos = player.getX() * scale.x > 350 ? player.getX() * scale.x : 350;
-        float ypos = player.getY() * scale.y > 240 ? player.getY() * scale.y : 240;
+        float xpos = player.getDrawX() * scale.x > 350 ? player.getDrawX() * scale.x : 350;
+        float ypos = player.getDrawY() * scale.y > 240 ? player.getDrawY() * scale.y : 240;
 
 
         if (isZoomed) {
             canvas.moveCamera(xpos, ypos);
-            lastpos = new Vector2(xpos, ypos);
+            lastpos.set(xpos, ypos);
         } else {
             gameState = GameState.ZOOM;
         }
@@ -2198,6 +2938,7 @@ public class GameMode extends Mode implements Screen {
             Obstacle obj = entry.getValue();
             if (obj.isRemoved()) {
                 obj.deactivatePhysics(world);
+                unregister(obj);
                 entry.remove();
             }
         }
@@ -2234,8 +2975,13 @@ public class GameMode extends Mode implements Screen {
     public void render(float delta) {
         switch (gameState) {
             case PLAYING:
-                if (preUpdate(delta)) {
+                profiler.begin(FrameProfiler.PRE_UPDATE);
+                boolean active = preUpdate(delta);
+                profiler.end(FrameProfiler.PRE_UPDATE);
+                if (active) {
+                    profiler.begin(FrameProfiler.UPDATE);
                     update(delta); // This is the one that must be defined.
+                    profiler.end(FrameProfiler.UPDATE);
                     postUpdate(delta);
                 }
                 draw(delta);
@@ -0,0 +1,229 @@
+package root;/*
+ * game.HeadlessCanvas.java
+ *
+ * A drawing context that draws nothing.  The simulation half of GameMode
+ * (preUpdate, update and postUpdate) still asks the canvas for its size and
+ * moves the camera, so it cannot run with a null canvas.  This class keeps
+ * those calls working without an OpenGL context, which lets us step levels
+ * on the headless backend.
+ */
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A game.GameCanvas with a fixed size and no graphics resources.
+ * <p>
+ * The camera is still tracked (so moveCamera and getMouseCoordinates behave as
+ * usual), but every begin/end pair and every screen-space helper is a no-op.
+ * So are the texture draws that GameMode.draw and the obstacles use, which lets
+ * us time the CPU side of a draw pass.  Other draw methods are never reached.
+ */
+public class HeadlessCanvas extends GameCanvas {
+
+    /**
+     * Creates a new headless canvas of the given size.
+     *
+     * @param width  the virtual canvas width
+     * @param height the virtual canvas height
+     */
+    public HeadlessCanvas(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Returns a GL20 implementation where every call does nothing.
+     * <p>
+     * The headless backend leaves Gdx.gl unset, which breaks texture and font
+     * loading.  Install this before the application is created.  Methods return
+     * zero, false or null as appropriate for their type.
+     *
+     * @return a GL20 implementation where every call does nothing
+     */
+    public static GL20 createNoopGL() {
+        return (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[]{GL20.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        Class<?> type = method.getReturnType();
+                        if (type == boolean.class) {
+                            return false;
+                        } else if (type == int.class) {
+                            return 0;
+                        } else if (type == float.class) {
+                            return 0f;
+                        } else if (type == long.class) {
+                            return 0L;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public void resize() {
+    }
+
+    @Override
+    public void begin(Affine2 affine) {
+    }
+
+    @Override
+    public void begin(float sx, float sy) {
+    }
+
+    @Override
+    public void begin() {
+    }
+
+    @Override
+    public void beginSorted() {
+    }
+
+    @Override
+    public void end() {
+    }
+
+    @Override
+    public void beginWorld() {
+    }
+
+    @Override
+    public void endWorld() {
+    }
+
+    @Override
+    public void beginDebug(Affine2 affine) {
+    }
+
+    @Override
+    public void beginDebug(float sx, float sy) {
+    }
+
+    @Override
+    public void beginDebug() {
+    }
+
+    @Override
+    public void endDebug() {
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y) {
+    }
+
+    @Override
+    public void draw(TextureRegion region, Color tint, float x, float y, float width, float height) {
+    }
+
+    @Override
+    public void draw(TextureRegion region, Color tint, float ox, float oy,
+                     float x, float y, float angle, float sx, float sy) {
+    }
+
+    @Override
+    public void drawWrapped(TextureRegion image, float x, float y, float width, float height) {
+    }
+
+    @Override
+    public void drawParallax(Texture image, float x, float y, float width, float height) {
+    }
+
+    @Override
+    public int getRenderCalls() {
+        return 0;
+    }
+
+    @Override
+    public void resetRenderCalls() {
+    }
+
+    @Override
+    public void beginOverlay() {
+    }
+
+    @Override
+    public void drawOverlayRect(float x, float y, float width, float height, Color color) {
+    }
+
+    @Override
+    public void drawOverlayText(CharSequence text, float x, float y, Color color) {
+    }
+
+    @Override
+    public void endOverlay() {
+    }
+
+    @Override
+    public void drawRope(Vector2[] points, int first, int count, Color tint) {
+    }
+
+    @Override
+    public void createStaticCache(int sprites) {
+    }
+
+    @Override
+    public void beginStaticChunk() {
+    }
+
+    @Override
+    public int endStaticChunk() {
+        return 0;
+    }
+
+    @Override
+    public void drawStaticChunks(IntArray chunks) {
+    }
+
+    @Override
+    public void flushRopes() {
+    }
+
+    @Override
+    public void drawUI(TextureRegion texture, float x, float y, float sc) {
+    }
+
+    @Override
+    public void drawUIText(String text, int x, int y, float size) {
+    }
+
+    @Override
+    public void drawItemCount(CharSequence text, int x, int y) {
+    }
+
+    @Override
+    public void drawUITextPause(String text, int x, int y) {
+    }
+
+    @Override
+    public void actStage(Stage stage) {
+    }
+}
@@ -89,11 +89,26 @@ public class InputController {
      */
     private boolean debugPressed;
     private boolean debugPrevious;
+    /**
+     * Whether the profiler overlay toggle was pressed.
+     */
+    private boolean profilePressed;
+    private boolean profilePrevious;
     /**
      * Whether the exit button was pressed.
      */
     private boolean exitPressed;
     private boolean exitPrevious;
+    /**
+     * Whether the pause button (or its on-screen button) was pressed.
+     */
+    private boolean pausePressed;
+    private boolean pausePrevious;
+    /**
+     * Whether the god mode toggle was pressed.
+     */
+    private boolean godPressed;
+    private boolean godPrevious;
     private boolean cameraPrevious;
     private boolean cameraZoom;
 
@@ -118,6 +133,15 @@ public class InputController {
      */
     private float momentum;
 
+    /**
+     * Destination for recorded input (null if not recording)
+     */
+    private InputRecorder recorder;
+    /**
+     * Source of replayed input, used in place of the devices (null if not replaying)
+     */
+    private InputReplay replay;
+
 
     private int LEFT = GDXRoot.useArrow ? Input.Keys.LEFT : Input.Keys.A;
     private int RIGHT = GDXRoot.useArrow ? Input.Keys.RIGHT : Input.Keys.D;
@@ -244,6 +268,15 @@ public class InputController {
         return debugPressed && !debugPrevious;
     }
 
+    /**
+     * Returns true if the player wants to go toggle the profiler overlay.
+     *
+     * @return true if the player wants to go toggle the profiler overlay.
+     */
+    public boolean didProfile() {
+        return profilePressed && !profilePrevious;
+    }
+
     /**
      * Returns true if the exit button was pressed.
      *
@@ -253,6 +286,24 @@ public class InputController {
         return exitPressed && !exitPrevious;
     }
 
+    /**
+     * Returns true if the player wants to pause the game.
+     *
+     * @return true if the player wants to pause the game.
+     */
+    public boolean didPause() {
+        return pausePressed && !pausePrevious;
+    }
+
+    /**
+     * Returns true if the player wants to toggle god mode.
+     *
+     * @return true if the player wants to toggle god mode.
+     */
+    public boolean didGodMode() {
+        return godPressed && !godPrevious;
+    }
+
     /**
      * Creates a new input controller
      * <p>
@@ -289,12 +340,21 @@ public class InputController {
         secondPrevious = secondPressed;
         resetPrevious = resetPressed;
         debugPrevious = debugPressed;
+        profilePrevious = profilePressed;
         exitPrevious = exitPressed;
+        pausePrevious = pausePressed;
+        godPrevious = godPressed;
         nextPrevious = nextPressed;
         prevPrevious = prevPressed;
         shiftPrevious = shiftPressed;
         cameraPrevious = cameraZoom;
 
+        // A replay takes the place of every device
+        if (replay != null) {
+            readReplay();
+            return;
+        }
+
         // Check to see if a GamePad is connected
         if (xbox.isConnected()) {
             readGamepad(bounds, scale);
@@ -304,6 +364,95 @@ public class InputController {
         }
     }
 
+    /**
+     * Sets the button and axis state from the current frame of the replay.
+     * <p>
+     * Only the recorded buttons are restored.  The debug, profiler, exit and
+     * world navigation buttons are never pressed during a replay.
+     */
+    private void readReplay() {
+        int buttons = replay.getButtons();
+        primePressed = (buttons & InputRecorder.FLAG_PRIMARY) != 0;
+        secondPressed = (buttons & InputRecorder.FLAG_SECONDARY) != 0;
+        tertiaryPressed = (buttons & InputRecorder.FLAG_TERTIARY) != 0;
+        resetPressed = (buttons & InputRecorder.FLAG_RESET) != 0;
+        cameraZoom = (buttons & InputRecorder.FLAG_ZOOM) != 0;
+        pausePressed = (buttons & InputRecorder.FLAG_PAUSE) != 0;
+        godPressed = (buttons & InputRecorder.FLAG_GOD) != 0;
+        shiftPressed = tertiaryPressed;
+        debugPressed = false;
+        profilePressed = false;
+        exitPressed = false;
+        nextPressed = false;
+        prevPressed = false;
+        horizontal = replay.getHorizontal();
+        vertical = replay.getVertical();
+    }
+
+    /**
+     * Writes the state read by the last call to readInput to the recorder.
+     * <p>
+     * This does nothing if there is no recorder.  It is separate from readInput
+     * so that GameMode can record the frame after it has handled a reset (which
+     * starts a new recording).
+     *
+     * @param dt Number of seconds since last animation frame
+     */
+    public void recordFrame(float dt) {
+        if (recorder == null) {
+            return;
+        }
+        int buttons = 0;
+        buttons |= primePressed ? InputRecorder.FLAG_PRIMARY : 0;
+        buttons |= secondPressed ? InputRecorder.FLAG_SECONDARY : 0;
+        buttons |= tertiaryPressed ? InputRecorder.FLAG_TERTIARY : 0;
+        buttons |= resetPressed ? InputRecorder.FLAG_RESET : 0;
+        buttons |= cameraZoom ? InputRecorder.FLAG_ZOOM : 0;
+        buttons |= pausePressed ? InputRecorder.FLAG_PAUSE : 0;
+        buttons |= godPressed ? InputRecorder.FLAG_GOD : 0;
+        recorder.record(dt, buttons, horizontal, vertical);
+    }
+
+    /**
+     * Sets the recorder for player input.
+     * <p>
+     * Any previous recorder is closed.  Pass null to stop recording.
+     *
+     * @param recorder the recorder for player input
+     */
+    public void setRecorder(InputRecorder recorder) {
+        if (this.recorder != null && this.recorder != recorder) {
+            this.recorder.close();
+        }
+        this.recorder = recorder;
+    }
+
+    /**
+     * Sets a replay to use in place of the input devices.
+     * <p>
+     * Pass null to return to the devices.  The replay is not closed here.  All
+     * buttons are released, so that the first replayed frame sees the same edges
+     * every time.
+     *
+     * @param replay the replay to use in place of the input devices
+     */
+    public void setReplay(InputReplay replay) {
+        this.replay = replay;
+        primePressed = secondPressed = tertiaryPressed = resetPressed = cameraZoom = false;
+        pausePressed = godPressed = false;
+        shiftPressed = debugPressed = profilePressed = exitPressed = nextPressed = prevPressed = false;
+        horizontal = vertical = 0;
+    }
+
+    /**
+     * Returns true if input is coming from a replay rather than the devices.
+     *
+     * @return true if input is coming from a replay rather than the devices
+     */
+    public boolean isReplaying() {
+        return replay != null;
+    }
+
     /**
      * Reads input from an X-Box controller connected to this computer.
      * <p>
@@ -321,6 +470,9 @@ public class InputController {
         prevPressed = xbox.getLB();
         primePressed = xbox.getA();
         debugPressed = xbox.getY();
+        profilePressed = false;
+        pausePressed = false;
+        godPressed = false;
 
         // Increase animation frame, but only if trying to move
         horizontal = xbox.getLeftX();
@@ -355,12 +507,17 @@ public class InputController {
         // Give priority to gamepad results
         resetPressed = (secondary && resetPressed) || (Gdx.input.isKeyPressed(Input.Keys.R));
         debugPressed = (secondary && debugPressed) || (Gdx.input.isKeyPressed(Input.Keys.M));
+        profilePressed = (secondary && profilePressed) || (Gdx.input.isKeyPressed(Input.Keys.F3));
         primePressed = (secondary && primePressed) || (Gdx.input.isKeyPressed(UP));
         secondPressed = (secondary && secondPressed) || (Gdx.input.isKeyPressed(Input.Keys.SPACE));
         prevPressed = (secondary && prevPressed) || (Gdx.input.isKeyPressed(Input.Keys.P));
         nextPressed = (secondary && nextPressed) || (Gdx.input.isKeyPressed(Input.Keys.N));
         exitPressed = (secondary && exitPressed);
         cameraZoom = (Gdx.input.isKeyJustPressed(Input.Keys.Z));
+        godPressed = (secondary && godPressed) || (Gdx.input.isKeyPressed(Input.Keys.G));
+        pausePressed = (secondary && pausePressed) || Gdx.input.isKeyPressed(Input.Keys.ESCAPE)
+                || (Gdx.input.isTouched() && Gdx.input.getX() >= 800 && Gdx.input.getX() <= 950
+                && Gdx.input.getY() >= 48 && Gdx.input.getY() <= 132);
 
         // Directional controls
         horizontal = (secondary ? horizontal : 0.0f);
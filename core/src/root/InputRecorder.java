@@ -0,0 +1,150 @@
+package root;/*
+ * game.InputRecorder.java
+ *
+ * Writes the per-frame player input to a compact binary stream, so that a
+ * play session can be replayed exactly (see InputReplay).  A recording covers
+ * a single attempt at a level: it starts at GameMode.reset() and stores the
+ * seed used to pick the NPC types, so the replayed level is identical.
+ *
+ * Stream layout (big-endian, as written by DataOutputStream):
+ *
+ *   header:  int MAGIC, byte VERSION, int level id, long seed
+ *   frame:   byte flags, float dt, [float horizontal, float vertical]
+ *
+ * The two axis values are only present when FLAG_AXES is set, which happens
+ * whenever they differ from the previous frame.  Most frames are 5 bytes.
+ */
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary writer for recorded player input.
+ */
+public class InputRecorder {
+    /**
+     * Identifies an input recording ("NSAI")
+     */
+    static final int MAGIC = 0x4E534149;
+    /**
+     * Version of the stream layout
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Primary (jump) button is down
+     */
+    static final int FLAG_PRIMARY = 1;
+    /**
+     * Secondary (cut) button is down
+     */
+    static final int FLAG_SECONDARY = 1 << 1;
+    /**
+     * Tertiary (swing) button is down
+     */
+    static final int FLAG_TERTIARY = 1 << 2;
+    /**
+     * Reset button is down
+     */
+    static final int FLAG_RESET = 1 << 3;
+    /**
+     * Camera zoom was requested this frame
+     */
+    static final int FLAG_ZOOM = 1 << 4;
+    /**
+     * Pause button is down
+     */
+    static final int FLAG_PAUSE = 1 << 5;
+    /**
+     * God mode toggle is down
+     */
+    static final int FLAG_GOD = 1 << 6;
+    /**
+     * The axis values follow the frame delta
+     */
+    static final int FLAG_AXES = 1 << 7;
+
+    /**
+     * The output stream
+     */
+    private final DataOutputStream out;
+    /**
+     * The horizontal axis value in the last written frame
+     */
+    private float lastHorizontal;
+    /**
+     * The vertical axis value in the last written frame
+     */
+    private float lastVertical;
+    /**
+     * Number of frames written so far
+     */
+    private int frames;
+
+    /**
+     * Creates a new recording, overwriting the given file.
+     *
+     * @param file  The file to write to
+     * @param level The level id being played
+     * @param seed  The seed GameMode used when building the level
+     */
+    public InputRecorder(FileHandle file, int level, long seed) {
+        out = new DataOutputStream(new BufferedOutputStream(file.write(false)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(level);
+            out.writeLong(seed);
+        } catch (IOException e) {
+            StreamUtils.closeQuietly(out);
+            throw new GdxRuntimeException("Cannot write input recording " + file, e);
+        }
+        frames = 0;
+    }
+
+    /**
+     * Appends one frame of input.
+     *
+     * @param dt         Number of seconds since last animation frame
+     * @param buttons    The button state (FLAG_* bits)
+     * @param horizontal The horizontal axis value
+     * @param vertical   The vertical axis value
+     */
+    public void record(float dt, int buttons, float horizontal, float vertical) {
+        boolean axes = frames == 0 || horizontal != lastHorizontal || vertical != lastVertical;
+        try {
+            out.writeByte(axes ? buttons | FLAG_AXES : buttons);
+            out.writeFloat(dt);
+            if (axes) {
+                out.writeFloat(horizontal);
+                out.writeFloat(vertical);
+                lastHorizontal = horizontal;
+                lastVertical = vertical;
+            }
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Cannot write input recording", e);
+        }
+        frames++;
+    }
+
+    /**
+     * Returns the number of frames written so far.
+     *
+     * @return the number of frames written so far
+     */
+    public int getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * Flushes and closes the recording.
+     */
+    public void close() {
+        StreamUtils.closeQuietly(out);
+    }
+}
@@ -0,0 +1,158 @@
+package root;/*
+ * game.InputReplay.java
+ *
+ * Reads back a stream written by InputRecorder.  While a replay is attached
+ * to the InputController, readInput ignores the devices and reports the
+ * recorded frame instead, so GameMode sees exactly the same input (and, with
+ * the recorded seed, builds exactly the same level) as the original session.
+ */
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Binary reader for recorded player input.
+ * <p>
+ * Call nextFrame() once per frame, before GameMode.preUpdate.  The frame delta is
+ * available from getDelta(), and the button and axis values are applied by the
+ * InputController.
+ */
+public class InputReplay {
+    /**
+     * The input stream
+     */
+    private final DataInputStream in;
+    /**
+     * The level id that was recorded
+     */
+    private final int level;
+    /**
+     * The seed GameMode used when building the level
+     */
+    private final long seed;
+
+    /**
+     * The button state (InputRecorder.FLAG_* bits) of the current frame
+     */
+    private int buttons;
+    /**
+     * The frame delta of the current frame
+     */
+    private float delta;
+    /**
+     * The horizontal axis value of the current frame
+     */
+    private float horizontal;
+    /**
+     * The vertical axis value of the current frame
+     */
+    private float vertical;
+
+    /**
+     * Opens a recording and reads its header.
+     *
+     * @param file The recording to read
+     */
+    public InputReplay(FileHandle file) {
+        in = new DataInputStream(new BufferedInputStream(file.read()));
+        try {
+            if (in.readInt() != InputRecorder.MAGIC || in.readByte() != InputRecorder.VERSION) {
+                throw new GdxRuntimeException("Not an input recording: " + file);
+            }
+            level = in.readInt();
+            seed = in.readLong();
+        } catch (IOException e) {
+            StreamUtils.closeQuietly(in);
+            throw new GdxRuntimeException("Cannot read input recording " + file, e);
+        }
+    }
+
+    /**
+     * Returns the level id that was recorded.
+     *
+     * @return the level id that was recorded
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns the seed GameMode used when building the level.
+     *
+     * @return the seed GameMode used when building the level
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Advances to the next recorded frame.
+     *
+     * @return false if the recording has ended
+     */
+    public boolean nextFrame() {
+        try {
+            int flags = in.readUnsignedByte();
+            delta = in.readFloat();
+            if ((flags & InputRecorder.FLAG_AXES) != 0) {
+                horizontal = in.readFloat();
+                vertical = in.readFloat();
+            }
+            buttons = flags & ~InputRecorder.FLAG_AXES;
+            return true;
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Cannot read input recording", e);
+        }
+    }
+
+    /**
+     * Returns the recorded frame delta of the current frame.
+     *
+     * @return the recorded frame delta of the current frame
+     */
+    public float getDelta() {
+        return delta;
+    }
+
+    /**
+     * Returns the button state (InputRecorder.FLAG_* bits) of the current frame.
+     *
+     * @return the button state of the current frame
+     */
+    public int getButtons() {
+        return buttons;
+    }
+
+    /**
+     * Returns the horizontal axis value of the current frame.
+     *
+     * @return the horizontal axis value of the current frame
+     */
+    public float getHorizontal() {
+        return horizontal;
+    }
+
+    /**
+     * Returns the vertical axis value of the current frame.
+     *
+     * @return the vertical axis value of the current frame
+     */
+    public float getVertical() {
+        return vertical;
+    }
+
+    /**
+     * Closes the recording.
+     */
+    public void close() {
+        StreamUtils.closeQuietly(in);
+    }
+}
@@ -9,6 +9,7 @@ import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Json;
 import entities.LevelMetadata;
+import util.Trace;
 
 
 /**
@@ -30,7 +31,9 @@ public class LevelLoader extends AsynchronousAssetLoader<LevelMetadata, LevelLoa
 
     @Override
     public void loadAsync(AssetManager manager, String fileName, FileHandle file, LevelLoaderParameters parameter) {
+        long start = Trace.begin();
         levelData = json.fromJson(LevelMetadata.class, file);
+        Trace.end("LevelLoader.parse", "level", start, fileName);
     }
 
     @Override
@@ -26,6 +26,7 @@ import com.badlogic.gdx.utils.Array;
 import entities.Level;
 import entities.LevelMetadata;
 import util.ScreenListener;
+import util.Trace;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -57,6 +58,10 @@ public class LevelSelectorMode extends Mode implements Screen {
     private static final String ARROWDOWN = "ui/arrow-down.png";
     private static final String ARROWRIGHT = "ui/arrow-right.png";
     private static final String ARROWLEFT = "ui/arrow-left.png";
+    /**
+     * How many levels on either side of the selection to parse ahead of time
+     */
+    private static final int PREFETCH_RANGE = 1;
     public static int curLevel = 1;
     int lastLevel = 0;
     Table container;
@@ -111,6 +116,10 @@ public class LevelSelectorMode extends Mode implements Screen {
     private final ArrayList<Vector2> buttonPos = new ArrayList<>();
     private AssetState selectorAssetState = AssetState.EMPTY;
     private LevelMetadata levelMetadata;
+    /**
+     * The selection whose neighbours were last prefetched
+     */
+    private int prefetchedLevel = -1;
 
     private final int NONE = 0, CITY = 1, VILLAGE = 2, FOREST = 3, MOUNTAIN = 4;
     public static boolean[] themeUnlocked = new boolean[5];
@@ -170,10 +179,12 @@ public class LevelSelectorMode extends Mode implements Screen {
         levelMetadata = manager.get(LEVEL_METADATA, LevelMetadata.class);
         clickSound = manager.get(MENU_CLICK_FILE, Sound.class);
         hoverSound = manager.get(HOVER_FILE, Sound.class);
+        long start = Trace.begin();
         FreeTypeFontGenerator generator = new FreeTypeFontGenerator(Gdx.files.internal("ui/BalooThambi.ttf"));
         FreeTypeFontGenerator.FreeTypeFontParameter parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
         parameter.size = 30;
         selectorFont = generator.generateFont(parameter);
+        Trace.end("LevelSelectorMode.selectorFont", "font", start, "ui/BalooThambi.ttf");
         selectorAssetState = AssetState.COMPLETE;
         citycard = createTexture(manager, CITY_CARD, false);
         villagecard = createTexture(manager, VILLAGE_CARD, false);
@@ -205,10 +216,10 @@ public class LevelSelectorMode extends Mode implements Screen {
     }
 
     public void unlockLevel(int index) {
-        if (getLevel(index) != null) {
+        LevelMetadata.Entry entry = levelMetadata.getEntry(index);
+        if (entry != null) {
             levelMetadata.unlockLevel(index);
-            String type = levelMetadata.getLevel(index).getType();
-            themeUnlocked[themeFromType(type)] = true;
+            themeUnlocked[themeFromType(entry.type)] = true;
         }
     }
 
@@ -315,6 +326,13 @@ public class LevelSelectorMode extends Mode implements Screen {
     }
 
     private void update(float dt) {
+        // Parse the levels around the selection before the player picks one
+        if (curLevel != prefetchedLevel) {
+            prefetchedLevel = curLevel;
+            for (int ii = -PREFETCH_RANGE; ii <= PREFETCH_RANGE; ii++) {
+                levelMetadata.prefetch(curLevel + ii);
+            }
+        }
         if (Gdx.input.isKeyJustPressed(Input.Keys.ENTER)) {
             listener.exitScreen(this, GameMode.EXIT_INTO_GAME);
             clickSound.play(GDXRoot.soundVol);
@@ -421,7 +439,6 @@ public class LevelSelectorMode extends Mode implements Screen {
         } else {
             for (int i = 9; i < 13; i++) {
                 Vector2 button = buttonPos.get(i);
-                Level l = (levelMetadata.getLevel(i + 1));
                 if (levelMetadata.getLevelCount() >= (i + 1) && levelMetadata.isLevelUnlocked(i + 1)) {
                     selectorFont.setColor(Color.WHITE);
                 } else {
@@ -439,7 +456,6 @@ public class LevelSelectorMode extends Mode implements Screen {
 
             for (int i = 13; i < 20; i++) {
                 Vector2 button = buttonPos.get(i);
-                Level l = (levelMetadata.getLevel(i + 1));
                 if (levelMetadata.getLevelCount() >= (i + 1) && levelMetadata.isLevelUnlocked(i + 1)) {
                     selectorFont.setColor(Color.WHITE);
                 } else {
@@ -470,10 +486,32 @@ public class LevelSelectorMode extends Mode implements Screen {
 
         if (level > levelMetadata.getLevelCount() + 1 || level == -1) return null;
         Level l = levelMetadata.getLevel(level);
-        l.setLevel(level);
+        if (l != null) {
+            l.setLevel(level);
+        }
         return l;
     }
 
+    /**
+     * Returns the type of a level, without parsing the level.
+     *
+     * @param level The level id
+     * @return the type of a level, or null if there is no such level
+     */
+    public String getLevelType(int level) {
+        LevelMetadata.Entry entry = levelMetadata.getEntry(level);
+        return entry == null ? null : entry.type;
+    }
+
+    /**
+     * Returns the level index, or null if it has not been loaded yet.
+     *
+     * @return the level index, or null if it has not been loaded yet
+     */
+    public LevelMetadata getLevelMetadata() {
+        return levelMetadata;
+    }
+
     public Level getCurrentLevel() {
 
         if (curLevel > levelMetadata.getLevelCount() + 1 || curLevel == -1) return null;
@@ -525,11 +563,11 @@ public class LevelSelectorMode extends Mode implements Screen {
         levelTable.pad(600 - 175);
         for (int i = 0; i < levelMetadata.getLevelCount(); i++) {
             ImageTextButton Button = null;
-            Level l = levelMetadata.getLevel(i + 1);
+            String type = levelMetadata.getEntry(i + 1).type;
             ImageTextButton.ImageTextButtonStyle style = new ImageTextButton.ImageTextButtonStyle();
             style.font = selectorFont;
             if (levelMetadata.isLevelUnlocked(i + 1)) {
-                switch (l.getType()) {
+                switch (type) {
                     case "city":
                         style.up = new TextureRegionDrawable(citycard);
                         Button = new ImageTextButton("The City: \nLEVEL " + (i + 1), style);
@@ -15,6 +15,10 @@ package root;/*
  * This player mode provides a basic loading screen.  While you could adapt it for
  * between level loading, it is currently designed for loading all assets at the
  * start of the game.
+ *
+ * The assets are loaded in tiers.  The modes that the menu buttons lead to come
+ * first, and the buttons appear as soon as those are resident; the rest of the
+ * game streams in behind the menu, one tier at a time.
  */
 
 import com.badlogic.gdx.*;
@@ -29,8 +33,11 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
 import util.FilmStrip;
 import util.ScreenListener;
+import util.Trace;
 
 /**
  * Class that provides a loading screen for the state of the game.
@@ -129,6 +136,26 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
      * Default budget for asset loader (do nothing but load 60 fps)
      */
     private static final int DEFAULT_BUDGET = 15;
+    /**
+     * The length of a frame at 60 fps, in milliseconds
+     */
+    private static final float TARGET_FRAME_MILLIS = 1000f / 60f;
+    /**
+     * Time left over each frame for presenting it, in milliseconds
+     */
+    private static final float FRAME_MARGIN = 2.0f;
+    /**
+     * A frame this much longer than the target means loading overran
+     */
+    private static final float SLOW_FRAME_RATIO = 1.2f;
+    /**
+     * The smallest budget, so that loading always makes progress
+     */
+    private static final int MIN_BUDGET = 1;
+    /**
+     * How quickly the estimate of the time to update and draw follows new frames
+     */
+    private static final float WORK_SMOOTHING = 0.1f;
     /**
      * Standard window size (for scaling)
      */
@@ -236,9 +263,33 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
 
     private MouseState selectState;
     /**
-     * The amount of time to devote to loading assets (as opposed to on screen hints, etc.)
+     * The most time to devote to loading assets (as opposed to on screen hints, etc.)
      */
     private int budget;
+    /**
+     * The time to devote to loading assets this frame, adapted to the frame time
+     */
+    private int frameBudget;
+    /**
+     * The smoothed time to update and draw a frame, not counting loading, in milliseconds
+     */
+    private float workMillis;
+    /**
+     * The time spent loading assets this frame, in milliseconds
+     */
+    private float loadMillis;
+    /**
+     * The modes whose assets are loaded by this screen, in groups, most urgent first
+     */
+    private final Array<Array<Mode>> tiers;
+    /**
+     * The number of tiers (at the front) that the menu buttons lead to
+     */
+    private int menuTiers;
+    /**
+     * The number of tiers whose assets have been queued
+     */
+    private int queuedTiers;
     /**
      * Support for the X-Box start button in place of play button
      */
@@ -259,10 +310,13 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
     /**
      * Returns the budget for the asset loader.
      * <p>
-     * The budget is the number of milliseconds to spend loading assets each animation
+     * The budget is the most milliseconds to spend loading assets each animation
      * frame.  This allows you to do something other than load assets.  An animation
      * frame is ~16 milliseconds. So if the budget is 10, you have 6 milliseconds to
      * do something else.  This is how game companies animate their loading screens.
+     * <p>
+     * The time actually spent each frame is less if updating and drawing the menu
+     * leaves less room, or if the last frame ran long.
      *
      * @return the budget in milliseconds
      */
@@ -273,7 +327,7 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
     /**
      * Sets the budget for the asset loader.
      * <p>
-     * The budget is the number of milliseconds to spend loading assets each animation
+     * The budget is the most milliseconds to spend loading assets each animation
      * frame.  This allows you to do something other than load assets.  An animation
      * frame is ~16 milliseconds. So if the budget is 10, you have 6 milliseconds to
      * do something else.  This is how game companies animate their loading screens.
@@ -282,6 +336,94 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
      */
     public void setBudget(int millis) {
         budget = millis;
+        frameBudget = Math.min(frameBudget, millis);
+    }
+
+    /**
+     * Adds a group of modes that the menu buttons lead to.
+     * <p>
+     * The assets of these modes are queued at once, in the order the tiers were
+     * added, and ahead of every tier added with addTier.  The menu buttons unlock
+     * as soon as these assets are resident.  This must be called before the
+     * first frame of this screen.
+     *
+     * @param modes The modes to load
+     */
+    public void addMenuTier(Mode... modes) {
+        tiers.insert(menuTiers, new Array<>(modes));
+        preloadTier(menuTiers);
+        menuTiers++;
+        queuedTiers++;
+    }
+
+    /**
+     * Adds a group of modes to load in the background.
+     * <p>
+     * The assets of a tier are only queued once everything ahead of it has loaded,
+     * so a tier never slows down the ones before it.  Whatever has not been queued
+     * when this screen is hidden is queued then.
+     *
+     * @param modes The modes to load
+     */
+    public void addTier(Mode... modes) {
+        tiers.add(new Array<>(modes));
+    }
+
+    /**
+     * Returns true if the assets that the menu buttons lead to are resident.
+     *
+     * @return true if the assets that the menu buttons lead to are resident
+     */
+    public boolean isMenuResident() {
+        for (int ii = 0; ii < menuTiers; ii++) {
+            Array<Mode> modes = tiers.get(ii);
+            for (int jj = 0; jj < modes.size; jj++) {
+                if (!modes.get(jj).isResident(manager)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queues the assets of every tier not yet queued.
+     */
+    public void queueTiers() {
+        while (queuedTiers < tiers.size) {
+            preloadTier(queuedTiers++);
+        }
+    }
+
+    /**
+     * Blocks until the assets of every tier are resident.
+     * <p>
+     * This is for leaving the menu before the background tiers are done.  It
+     * returns at once if they are already resident.
+     */
+    public void finishLoading() {
+        queueTiers();
+        for (int ii = 0; ii < tiers.size; ii++) {
+            Array<Mode> modes = tiers.get(ii);
+            for (int jj = 0; jj < modes.size; jj++) {
+                modes.get(jj).finishLoading(manager);
+            }
+        }
+    }
+
+    /**
+     * Queues the assets of the modes in a tier.
+     *
+     * @param tier The index of the tier
+     */
+    private void preloadTier(int tier) {
+        Array<Mode> modes = tiers.get(tier);
+        for (int ii = 0; ii < modes.size; ii++) {
+            Mode mode = modes.get(ii);
+            long start = Trace.begin();
+            mode.preloadContent(manager);
+            Trace.end(mode.getClass().getSimpleName() + ".preloadContent", "mode", start);
+        }
     }
 
     /**
@@ -317,6 +459,8 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
         this.manager = manager;
         this.canvas = canvas;
         budget = millis;
+        frameBudget = MIN_BUDGET;
+        tiers = new Array<>();
 
         manager.load(CHAR_ANIMATION_FILE, Texture.class);
         // assets.add(CHAR_ANIMATION_FILE);
@@ -427,66 +571,80 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
         }
 
 
-        if (loadGameButtonEnabled == null) {
-            manager.update(budget);
-            this.progress = manager.getProgress();
-            if (progress >= 1.0f) {
-                this.progress = 1.0f;
-                loadGameButtonEnabled = new Texture(LOAD_GAME_ENABLED);
-                loadGameButtonEnabled.setFilter(TextureFilter.Linear, TextureFilter.Linear);
-                buttonX4 = buttonX + loadGameButtonEnabled.getWidth() / 2 * scale * BUTTON_SCALE - 80f;
-            }
+        stream();
+        progress = Math.min(1.0f, manager.getProgress());
+        if (startGameButton == null && isMenuResident()) {
+            createButtons();
         }
-
-        if (loadGameButtonDisabled == null) {
-            manager.update(budget);
-            this.progress = manager.getProgress();
-            if (progress >= 1.0f) {
-                this.progress = 1.0f;
-                loadGameButtonDisabled = new Texture(LOAD_GAME_DISABLED);
-                loadGameButtonDisabled.setFilter(TextureFilter.Linear, TextureFilter.Linear);
-                buttonX4 = buttonX + loadGameButtonDisabled.getWidth() / 2 * scale * BUTTON_SCALE - 80f;
-            }
+        if (animatedBkg == null) {
+            animatedBkg = createFilmStrip(manager, CHAR_ANIMATION_FILE, 1, 4, 4);
         }
 
-        if (startGameButton == null) {
-            manager.update(budget);
-            this.progress = manager.getProgress();
-            if (progress >= 1.0f) {
-                this.progress = 1.0f;
-                startGameButton = new Texture(START_FILE);
-                startGameButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
-
-                buttonX1 = buttonX + startGameButton.getWidth() / 2 * scale * BUTTON_SCALE - 70f;
-            }
-        }
-        if (settingsButton == null) {
-            manager.update(budget);
-            this.progress = manager.getProgress();
-            if (progress >= 1.0f) {
-                this.progress = 1.0f;
-                settingsButton = new Texture(SETTINGS_FILE);
-                settingsButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
-
-                buttonX2 = buttonX + settingsButton.getWidth() / 2 * BUTTON_SCALE * scale - 70f;
-            }
+
+    }
+
+    /**
+     * Spends this frame's budget loading assets.
+     * <p>
+     * Once the queue runs dry, the next tier is queued.  As the asset manager loads
+     * in the order assets were queued, tiers load strictly in priority order.
+     */
+    private void stream() {
+        if (manager.isFinished() && queuedTiers < tiers.size) {
+            preloadTier(queuedTiers++);
         }
-        if (quitButton == null) {
-            manager.update(budget);
-            this.progress = manager.getProgress();
-            if (progress >= 1.0f) {
-                this.progress = 1.0f;
-                quitButton = new Texture(QUIT_FILE);
-                quitButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
-
-                buttonX3 = buttonX + quitButton.getWidth() / 2 * BUTTON_SCALE * scale - 70f;
-            }
+        if (manager.isFinished()) {
+            loadMillis = 0;
+            return;
         }
-        if (animatedBkg == null) {
-            animatedBkg = createFilmStrip(manager, CHAR_ANIMATION_FILE, 1, 4, 4);
+        long start = TimeUtils.nanoTime();
+        manager.update(frameBudget);
+        loadMillis = TimeUtils.timeSinceNanos(start) / 1.0e6f;
+    }
+
+    /**
+     * Adapts the loading budget to the time taken by the last frame.
+     * <p>
+     * The budget is whatever remains of a 60 fps frame once the menu has been
+     * updated and drawn.  A single asset can take longer than the budget to load,
+     * so if a frame runs long the budget is halved, and it then grows back by a
+     * millisecond a frame.
+     *
+     * @param delta       Number of seconds since last animation frame
+     * @param frameMillis The time taken to update and draw this frame, in milliseconds
+     */
+    private void adaptBudget(float delta, float frameMillis) {
+        workMillis += (frameMillis - loadMillis - workMillis) * WORK_SMOOTHING;
+        if (delta * 1000 > TARGET_FRAME_MILLIS * SLOW_FRAME_RATIO) {
+            frameBudget /= 2;
+        } else {
+            frameBudget++;
         }
+        int room = (int) (TARGET_FRAME_MILLIS - FRAME_MARGIN - workMillis);
+        frameBudget = Math.max(MIN_BUDGET, Math.min(frameBudget, Math.min(budget, room)));
+    }
+
+    /**
+     * Creates the menu buttons, once the assets they lead to are resident.
+     */
+    private void createButtons() {
+        loadGameButtonEnabled = new Texture(LOAD_GAME_ENABLED);
+        loadGameButtonEnabled.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        loadGameButtonDisabled = new Texture(LOAD_GAME_DISABLED);
+        loadGameButtonDisabled.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        buttonX4 = buttonX + loadGameButtonDisabled.getWidth() / 2 * scale * BUTTON_SCALE - 80f;
+
+        startGameButton = new Texture(START_FILE);
+        startGameButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        buttonX1 = buttonX + startGameButton.getWidth() / 2 * scale * BUTTON_SCALE - 70f;
 
+        settingsButton = new Texture(SETTINGS_FILE);
+        settingsButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        buttonX2 = buttonX + settingsButton.getWidth() / 2 * BUTTON_SCALE * scale - 70f;
 
+        quitButton = new Texture(QUIT_FILE);
+        quitButton.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        buttonX3 = buttonX + quitButton.getWidth() / 2 * BUTTON_SCALE * scale - 70f;
     }
 
     /**
@@ -614,8 +772,10 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
      */
     public void render(float delta) {
         if (active) {
+            long start = TimeUtils.nanoTime();
             update(delta);
             draw();
+            adaptBudget(delta, TimeUtils.timeSinceNanos(start) / 1.0e6f);
 
             // We are are ready, notify our listener
             if (listener != null && pressState == MouseState.QUIT) {
@@ -701,6 +861,8 @@ public class LoadingMode implements Screen, InputProcessor, ControllerListener {
     public void hide() {
         // Useless if called in outside animation loop
         active = false;
+        // The root streams whatever is left once the menu is gone
+        queueTiers();
         music.dispose();
         pressState = MouseState.NONE;
     }
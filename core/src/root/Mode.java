@@ -40,6 +40,40 @@ public abstract class Mode {
         assets.add(filepath);
     }
 
+    /**
+     * Returns true if every asset queued by preloadContent is loaded.
+     * <p>
+     * This is false before preloadContent is called, as nothing has been queued.
+     *
+     * @param manager Reference to global asset manager.
+     * @return true if every asset queued by preloadContent is loaded
+     */
+    public boolean isResident(AssetManager manager) {
+        if (assets.size == 0) {
+            return false;
+        }
+        for (int ii = 0; ii < assets.size; ii++) {
+            if (!manager.isLoaded(assets.get(ii))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Blocks until every asset queued by preloadContent is loaded.
+     * <p>
+     * The asset manager loads in the order assets were queued, so this also
+     * finishes anything queued ahead of these assets.
+     *
+     * @param manager Reference to global asset manager.
+     */
+    public void finishLoading(AssetManager manager) {
+        for (int ii = 0; ii < assets.size; ii++) {
+            manager.finishLoadingAsset(assets.get(ii));
+        }
+    }
+
     /**
      * Unloads the assets for this game.
      * <p>
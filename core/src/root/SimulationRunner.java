@@ -0,0 +1,559 @@
+package root;/*
+ * game.SimulationRunner.java
+ *
+ * Steps every shipped level without a window.  GameMode normally only
+ * simulates inside render(), which needs a live sprite batch.  This class
+ * loads the same assets and level metadata as GDXRoot, but swaps in a
+ * HeadlessCanvas and calls preUpdate/update/postUpdate directly, as fast as
+ * the CPU allows.  The result is a steps/sec figure for each level, which
+ * we use to measure physics throughput and to catch regressions.
+ *
+ * It can also replay input recordings (see InputRecorder), which reproduces
+ * a play session exactly at many times real speed, and run synthetic stress
+ * levels (see LevelGenerator) to show how the frame phases scale.
+ *
+ * Finally, it can check that a steady-state frame allocates nothing.  GC
+ * pauses are the main cause of dropped frames on slow machines, so once a
+ * level is running, a frame (update, physics and draw) should not create any
+ * garbage.  The check uses the per-thread allocation counter of the JVM.
+ */
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.assets.loaders.resolvers.InternalFileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGeneratorLoader;
+import com.badlogic.gdx.graphics.g2d.freetype.FreetypeFontLoader;
+import com.badlogic.gdx.utils.Json;
+import entities.Level;
+import entities.LevelMetadata;
+import util.LevelGenerator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Headless driver for the simulation half of GameMode.
+ * <p>
+ * This is an ApplicationListener so that it can be handed to any backend, but it
+ * is meant for the headless one (see desktop.HeadlessLauncher).  All of the work
+ * happens in create(); the application exits as soon as every level has run.
+ */
+public class SimulationRunner extends ApplicationAdapter {
+    /**
+     * The level manifest (same file that LevelSelectorMode loads)
+     */
+    private static final String LEVEL_METADATA = "levels/levels.json";
+    /**
+     * Default number of frames to simulate per level
+     */
+    public static final int DEFAULT_FRAMES = 10000;
+    /**
+     * Virtual canvas width (matches the desktop window, so the drawing scale agrees)
+     */
+    private static final int CANVAS_WIDTH = 1200;
+    /**
+     * Virtual canvas height (matches the desktop window, so the drawing scale agrees)
+     */
+    private static final int CANVAS_HEIGHT = 800;
+    /**
+     * Where the generated stress levels are written (local files)
+     */
+    private static final String STRESS_DIR = "stress/";
+    /**
+     * Frames to run before measuring allocation (so the JIT has compiled the hot loop)
+     */
+    private static final int ALLOCATION_WARMUP = 2000;
+    /**
+     * Most bytes a steady-state frame may allocate, on average, and pass the check
+     */
+    public static final long ALLOCATION_LIMIT = 0;
+
+    /**
+     * Number of frames to simulate per level
+     */
+    private final int frames;
+    /**
+     * The level ids to run, or an empty array for every level
+     */
+    private final int[] levels;
+    /**
+     * Input recordings to replay instead of the levels (null to run the levels)
+     */
+    private final String[] replays;
+    /**
+     * Fixed frame delta for replays, or 0 to use the recorded deltas
+     */
+    private final float fixedDelta;
+    /**
+     * Couple counts for generated stress levels (null to run the levels)
+     */
+    private int[] stressSizes;
+    /**
+     * Whether to measure steady-state allocation instead of throughput
+     */
+    private boolean allocationCheck;
+
+    /**
+     * Creates a runner that simulates every level for the default number of frames.
+     */
+    public SimulationRunner() {
+        this(DEFAULT_FRAMES, new int[0]);
+    }
+
+    /**
+     * Creates a runner that simulates the given levels.
+     *
+     * @param frames The number of frames to simulate per level
+     * @param levels The level ids to run, or an empty array for every level
+     */
+    public SimulationRunner(int frames, int[] levels) {
+        this.frames = frames;
+        this.levels = levels;
+        this.replays = null;
+        this.fixedDelta = 0;
+    }
+
+    /**
+     * Creates a runner that replays the given input recordings.
+     * <p>
+     * Each recording is replayed from the start of its level, with the recorded
+     * seed, as fast as possible.  The frame deltas come from the recording unless
+     * a fixed delta is given.
+     *
+     * @param replays    The recordings (local files) to replay
+     * @param fixedDelta The frame delta to use, or 0 to use the recorded deltas
+     */
+    public SimulationRunner(String[] replays, float fixedDelta) {
+        this.frames = 0;
+        this.levels = new int[0];
+        this.replays = replays;
+        this.fixedDelta = fixedDelta;
+    }
+
+    /**
+     * Runs generated stress levels instead of the shipped levels.
+     * <p>
+     * For each size, a level with that many couples (and proportional numbers of
+     * platforms, moving stones and spikes) is generated, written to the stress
+     * directory, and simulated for the requested number of frames.
+     *
+     * @param couples The number of couples in each stress level
+     */
+    public void setStressSizes(int[] couples) {
+        stressSizes = couples;
+    }
+
+    /**
+     * Sets whether to measure steady-state allocation instead of throughput.
+     * <p>
+     * Each level (or replay) is warmed up, and then the bytes allocated by the
+     * remaining frames are counted.  Any level that allocates more than
+     * ALLOCATION_LIMIT bytes per frame fails the check, and the application exits
+     * with a non-zero status.  The levels are played without input, so they
+     * measure the idle frame; replay a recording to measure walking and swinging.
+     *
+     * @param value whether to measure steady-state allocation
+     */
+    public void setAllocationCheck(boolean value) {
+        allocationCheck = value;
+    }
+
+    /**
+     * Loads all assets, runs every requested level and exits.
+     */
+    @Override
+    public void create() {
+        AssetManager manager = createAssetManager();
+        GameMode gameMode = loadGameMode(manager);
+        LevelMetadata metadata = manager.get(LEVEL_METADATA, LevelMetadata.class);
+
+        if (allocationCheck) {
+            runAllocationCheck(gameMode, manager, metadata);
+            return;
+        }
+        if (replays != null) {
+            System.out.printf("%-32s %-6s %8s %10s %10s %9s%n",
+                    "recording", "level", "frames", "game sec", "wall sec", "speed");
+            for (String file : replays) {
+                runReplay(gameMode, manager, Gdx.files.local(file));
+            }
+            gameMode.dispose();
+            manager.dispose();
+            Gdx.app.exit();
+            return;
+        }
+        if (stressSizes != null) {
+            System.out.printf("%-7s %8s %7s %7s %11s %11s %11s%n",
+                    "couples", "objects", "bodies", "joints", "update ms", "physics ms", "draw ms");
+            for (int couples : stressSizes) {
+                runStress(gameMode, manager, couples);
+            }
+            gameMode.dispose();
+            manager.dispose();
+            Gdx.app.exit();
+            return;
+        }
+
+        System.out.printf("%-6s %-9s %8s %7s %7s %8s %10s%n",
+                "level", "theme", "objects", "bodies", "joints", "steps", "steps/sec");
+        long totalSteps = 0;
+        long totalNanos = 0;
+        if (levels.length == 0) {
+            for (int id = 1; id <= metadata.getLevelCount(); id++) {
+                long[] result = runLevel(gameMode, manager, id);
+                totalSteps += result[0];
+                totalNanos += result[1];
+            }
+        } else {
+            for (int id : levels) {
+                long[] result = runLevel(gameMode, manager, id);
+                totalSteps += result[0];
+                totalNanos += result[1];
+            }
+        }
+        System.out.printf("%-6s %-9s %8s %7s %7s %8d %10.0f%n",
+                "total", "", "", "", "", totalSteps, stepsPerSecond(totalSteps, totalNanos));
+
+        gameMode.dispose();
+        manager.dispose();
+        Gdx.app.exit();
+    }
+
+    /**
+     * Returns an asset manager with the same loaders as GDXRoot.
+     *
+     * @return an asset manager with the same loaders as GDXRoot
+     */
+    public static AssetManager createAssetManager() {
+        AssetManager manager = new AssetManager();
+        FileHandleResolver resolver = new InternalFileHandleResolver();
+        manager.setLoader(FreeTypeFontGenerator.class, new FreeTypeFontGeneratorLoader(resolver));
+        manager.setLoader(BitmapFont.class, ".ttf", new FreetypeFontLoader(resolver));
+        manager.setLoader(LevelMetadata.class, ".json", new LevelLoader(resolver));
+        return manager;
+    }
+
+    /**
+     * Returns a game mode with all of its content (and the level manifest) loaded.
+     * <p>
+     * This blocks until the asset manager has finished.  The game mode is attached
+     * to a HeadlessCanvas, so it can be simulated but not drawn.
+     *
+     * @param manager The asset manager to load with
+     * @return a game mode with all of its content loaded
+     */
+    public static GameMode loadGameMode(AssetManager manager) {
+        GameMode gameMode = new GameMode();
+        gameMode.preloadContent(manager);
+        manager.load(LEVEL_METADATA, LevelMetadata.class);
+        manager.finishLoading();
+        gameMode.loadContent(manager);
+        gameMode.setCanvas(new HeadlessCanvas(CANVAS_WIDTH, CANVAS_HEIGHT));
+        return gameMode;
+    }
+
+    /**
+     * Builds the given level in the game mode, exactly as GDXRoot does on level select.
+     *
+     * @param gameMode The game mode from loadGameMode
+     * @param manager  The asset manager holding the loaded content
+     * @param id       The level id
+     * @return the level, or null if there is no level with that id
+     */
+    public static Level startLevel(GameMode gameMode, AssetManager manager, int id) {
+        LevelMetadata metadata = manager.get(LEVEL_METADATA, LevelMetadata.class);
+        Level level = metadata.getLevel(id);
+        if (level == null) {
+            return null;
+        }
+        level.setLevel(id);
+        startLevel(gameMode, manager, level);
+        return level;
+    }
+
+    /**
+     * Builds the given level in the game mode, exactly as GDXRoot does on level select.
+     * <p>
+     * The level does not need to be in the level manifest.  Its id should already
+     * be set (use 0 for a level that is not in the manifest).
+     *
+     * @param gameMode The game mode from loadGameMode
+     * @param manager  The asset manager holding the loaded content
+     * @param level    The level to build
+     */
+    public static void startLevel(GameMode gameMode, AssetManager manager, Level level) {
+        gameMode.setLevel(level);
+        gameMode.initializeContent(manager);
+        gameMode.reset();
+    }
+
+    /**
+     * Returns the number of levels in the level manifest.
+     *
+     * @param manager The asset manager holding the loaded content
+     * @return the number of levels in the level manifest
+     */
+    public static int getLevelCount(AssetManager manager) {
+        return manager.get(LEVEL_METADATA, LevelMetadata.class).getLevelCount();
+    }
+
+    /**
+     * Simulates a single level and prints its row of the report.
+     * <p>
+     * Each frame is a full preUpdate/update/postUpdate cycle with a fixed dt of
+     * one physics step.  If the player falls out of the level it is reset at
+     * once, rather than after the countdown in preUpdate.
+     *
+     * @param gameMode The game mode to drive
+     * @param manager  The asset manager holding the loaded content
+     * @param id       The level id
+     * @return the number of physics steps taken and the elapsed nanoseconds
+     */
+    private long[] runLevel(GameMode gameMode, AssetManager manager, int id) {
+        Level level = startLevel(gameMode, manager, id);
+        if (level == null) {
+            Gdx.app.error("game.SimulationRunner", "No level with id " + id, new IllegalArgumentException());
+            return new long[]{0, 0};
+        }
+
+        int objects = gameMode.objects.size();
+        int bodies = gameMode.getWorld().getBodyCount();
+        int joints = gameMode.getWorld().getJointCount();
+
+        float dt = GameMode.WORLD_STEP;
+        long steps = gameMode.getPhysicsStepCount();
+        long start = System.nanoTime();
+        for (int ii = 0; ii < frames; ii++) {
+            if (gameMode.preUpdate(dt)) {
+                gameMode.update(dt);
+                gameMode.postUpdate(dt);
+            } else if (gameMode.isFailure()) {
+                gameMode.reset();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        steps = gameMode.getPhysicsStepCount() - steps;
+
+        System.out.printf("%-6d %-9s %8d %7d %7d %8d %10.0f%n",
+                id, level.getType(), objects, bodies, joints, steps, stepsPerSecond(steps, elapsed));
+        return new long[]{steps, elapsed};
+    }
+
+    /**
+     * Replays a single input recording and prints its row of the report.
+     * <p>
+     * The level is rebuilt with the recorded seed, and the InputController reads
+     * from the recording instead of the devices until it runs out of frames.
+     * Unlike the other loops, a failure is not reset here: preUpdate applies the
+     * recorded resets, deaths and countdown just as in the recorded session, timed
+     * by the replayed frame deltas.
+     *
+     * @param gameMode The game mode to drive
+     * @param manager  The asset manager holding the loaded content
+     * @param file     The recording to replay
+     */
+    private void runReplay(GameMode gameMode, AssetManager manager, FileHandle file) {
+        InputReplay replay = new InputReplay(file);
+        gameMode.setSeed(replay.getSeed());
+        if (startLevel(gameMode, manager, replay.getLevel()) == null) {
+            Gdx.app.error("game.SimulationRunner", "No level with id " + replay.getLevel(), new IllegalArgumentException());
+            replay.close();
+            return;
+        }
+
+        InputController input = InputController.getInstance();
+        input.setReplay(replay);
+        int count = 0;
+        double simulated = 0;
+        long start = System.nanoTime();
+        while (replay.nextFrame()) {
+            float dt = fixedDelta > 0 ? fixedDelta : replay.getDelta();
+            if (gameMode.preUpdate(dt)) {
+                gameMode.update(dt);
+                gameMode.postUpdate(dt);
+            }
+            simulated += dt;
+            count++;
+        }
+        double elapsed = (System.nanoTime() - start) / 1.0e9;
+        input.setReplay(null);
+        replay.close();
+
+        System.out.printf("%-32s %-6d %8d %10.2f %10.3f %8.0fx%n",
+                file.name(), replay.getLevel(), count, simulated, elapsed, elapsed == 0 ? 0 : simulated / elapsed);
+    }
+
+    /**
+     * Generates and simulates a single stress level, and prints its row of the report.
+     * <p>
+     * Each frame is timed in three phases: preUpdate and update, postUpdate (which
+     * steps the physics), and draw.  The headless canvas draws nothing, so the draw
+     * time is the cost of walking the scene, not of the GPU.
+     *
+     * @param gameMode The game mode to drive
+     * @param manager  The asset manager holding the loaded content
+     * @param couples  The number of couples in the level
+     */
+    private void runStress(GameMode gameMode, AssetManager manager, int couples) {
+        LevelGenerator generator = new LevelGenerator(couples);
+        generator.setCouples(couples);
+        generator.setMovingCouples(couples / 4);
+        generator.setTiles(couples);
+        generator.setSlidingTiles(couples / 4);
+        generator.setSpikes(couples / 2);
+        generator.setItems(LevelGenerator.MAX_ITEMS);
+        FileHandle file = Gdx.files.local(STRESS_DIR + "couples-" + couples + ".json");
+        generator.write(file);
+
+        Level level = new Json().fromJson(Level.class, file);
+        level.setLevel(0);
+        startLevel(gameMode, manager, level);
+
+        int objects = gameMode.objects.size();
+        int bodies = gameMode.getWorld().getBodyCount();
+        int joints = gameMode.getWorld().getJointCount();
+
+        float dt = GameMode.WORLD_STEP;
+        long update = 0;
+        long physics = 0;
+        long draw = 0;
+        for (int ii = 0; ii < frames; ii++) {
+            long start = System.nanoTime();
+            boolean active = gameMode.preUpdate(dt);
+            if (active) {
+                gameMode.update(dt);
+            }
+            long mid = System.nanoTime();
+            if (active) {
+                gameMode.postUpdate(dt);
+            } else if (gameMode.isFailure()) {
+                gameMode.reset();
+            }
+            long end = System.nanoTime();
+            gameMode.draw(dt);
+            update += mid - start;
+            physics += end - mid;
+            draw += System.nanoTime() - end;
+        }
+
+        double scale = frames == 0 ? 0 : 1.0e-6 / frames;
+        System.out.printf("%-7d %8d %7d %7d %11.3f %11.3f %11.3f%n",
+                couples, objects, bodies, joints, update * scale, physics * scale, draw * scale);
+    }
+
+    /**
+     * Measures the steady-state allocation of each level or replay and exits.
+     * <p>
+     * This prints one row per level (or recording), with the average bytes
+     * allocated per frame after the warmup.  If any row is over the limit, or the
+     * JVM cannot count allocated bytes, the application exits with status 1, so
+     * the check can gate a build.
+     *
+     * @param gameMode The game mode to drive
+     * @param manager  The asset manager holding the loaded content
+     * @param metadata The level manifest
+     */
+    private void runAllocationCheck(GameMode gameMode, AssetManager manager, LevelMetadata metadata) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            Gdx.app.error("game.SimulationRunner", "This JVM cannot count allocated bytes");
+            gameMode.dispose();
+            manager.dispose();
+            // Nothing was measured, so a build gated on this check must not pass
+            System.exit(1);
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        System.out.printf("%-32s %8s %12s %8s%n", "level", "frames", "bytes/frame", "result");
+        int failures = 0;
+        if (replays != null) {
+            for (String file : replays) {
+                InputReplay replay = new InputReplay(Gdx.files.local(file));
+                gameMode.setSeed(replay.getSeed());
+                if (startLevel(gameMode, manager, replay.getLevel()) == null) {
+                    replay.close();
+                    continue;
+                }
+                InputController.getInstance().setReplay(replay);
+                failures += measureAllocation(gameMode, threads, file, replay) ? 0 : 1;
+                InputController.getInstance().setReplay(null);
+                replay.close();
+            }
+        } else {
+            int count = levels.length == 0 ? metadata.getLevelCount() : levels.length;
+            for (int ii = 0; ii < count; ii++) {
+                int id = levels.length == 0 ? ii + 1 : levels[ii];
+                if (startLevel(gameMode, manager, id) != null) {
+                    failures += measureAllocation(gameMode, threads, "level " + id, null) ? 0 : 1;
+                }
+            }
+        }
+
+        gameMode.dispose();
+        manager.dispose();
+        if (failures > 0) {
+            System.out.println(failures + " level(s) allocate in the steady state");
+            System.exit(1);
+        }
+        Gdx.app.exit();
+    }
+
+    /**
+     * Runs a started level and prints its row of the allocation report.
+     * <p>
+     * A full frame (preUpdate, update, postUpdate and draw) is run each time.  If
+     * a replay is given, it supplies the input and deltas until it runs out;
+     * otherwise the level runs for the requested number of frames at the fixed
+     * physics step.  Only the frames after the warmup are measured.
+     *
+     * @param gameMode The game mode to drive
+     * @param threads  The thread bean with allocation counting enabled
+     * @param name     The label for the report
+     * @param replay   The recording supplying the input, or null for no input
+     * @return true if the level allocates no more than the limit per frame
+     */
+    private boolean measureAllocation(GameMode gameMode, com.sun.management.ThreadMXBean threads,
+                                      String name, InputReplay replay) {
+        long thread = Thread.currentThread().getId();
+        long start = 0;
+        int measured = 0;
+        for (int ii = 0; replay != null ? replay.nextFrame() : ii < ALLOCATION_WARMUP + frames; ii++) {
+            if (ii == ALLOCATION_WARMUP) {
+                start = threads.getThreadAllocatedBytes(thread);
+            }
+            float dt = replay != null ? replay.getDelta() : GameMode.WORLD_STEP;
+            if (gameMode.preUpdate(dt)) {
+                gameMode.update(dt);
+                gameMode.postUpdate(dt);
+            } else if (replay == null && gameMode.isFailure()) {
+                gameMode.reset();
+            }
+            gameMode.draw(dt);
+            if (ii >= ALLOCATION_WARMUP) {
+                measured++;
+            }
+        }
+        long bytes = measured == 0 ? 0 : (threads.getThreadAllocatedBytes(thread) - start) / measured;
+        boolean passed = measured > 0 && bytes <= ALLOCATION_LIMIT;
+        System.out.printf("%-32s %8d %12d %8s%n", name, measured, bytes, passed ? "ok" : "FAIL");
+        return passed;
+    }
+
+    /**
+     * Returns the throughput for the given number of steps.
+     *
+     * @param steps The number of physics steps
+     * @param nanos The elapsed time in nanoseconds
+     * @return the throughput in steps per second
+     */
+    private static double stepsPerSecond(long steps, long nanos) {
+        return nanos == 0 ? 0 : steps * 1.0e9 / nanos;
+    }
+}
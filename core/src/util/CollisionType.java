@@ -0,0 +1,83 @@
+/*
+ * CollisionType.java
+ *
+ * Compact tags for the things that the collision listener cares about.  An
+ * obstacle carries the tag of its body, and a sensor fixture carries its own
+ * tag as user data.  The listener turns the two fixtures of a contact into a
+ * pair of tags, and looks up what to do in a table indexed by that pair, so a
+ * contact never needs to compare names or cast blindly.
+ */
+package util;
+
+/**
+ * Collision tags for bodies and sensor fixtures.
+ * <p>
+ * Every sensor tag belongs to exactly one body tag (see getBody).  A rule that
+ * asks "is this the player" accepts both the player body and its foot sensor.
+ */
+public enum CollisionType {
+    /**
+     * Anything the listener ignores (platforms, rope planks, the gate body)
+     */
+    NONE,
+    /**
+     * The player body
+     */
+    PLAYER,
+    /**
+     * The foot sensor of the player
+     */
+    PLAYER_SENSOR,
+    /**
+     * The body of an npc
+     */
+    NPC,
+    /**
+     * The foot sensor of an npc
+     */
+    NPC_SENSOR,
+    /**
+     * A blob of an npc rope (a trampoline)
+     */
+    BLOB,
+    /**
+     * An item body
+     */
+    ITEM,
+    /**
+     * The pickup sensor of an item
+     */
+    ITEM_SENSOR,
+    /**
+     * The sensor along the sharp edge of a spike strip
+     */
+    SPIKES_SENSOR,
+    /**
+     * The sensor in the exit door
+     */
+    GATE_SENSOR;
+
+    /**
+     * Returns the tag of the body that owns this tag.
+     * <p>
+     * Body tags return themselves.  Sensors on bodies that the listener ignores
+     * return NONE.
+     *
+     * @return the tag of the body that owns this tag
+     */
+    public CollisionType getBody() {
+        switch (this) {
+            case PLAYER_SENSOR:
+                return PLAYER;
+            case NPC_SENSOR:
+                return NPC;
+            case ITEM_SENSOR:
+                return ITEM;
+            case SPIKES_SENSOR:
+            case GATE_SENSOR:
+                return NONE;
+            default:
+                return this;
+        }
+    }
+}
@@ -11,6 +11,10 @@
  * by the number of rows.  If the frames are not equally sized, this class
  * will not animate properly.
  *
+ * A filmstrip can also be built from a list of separate frame regions, such
+ * as the indexed regions of a texture atlas.  The frames may then live
+ * anywhere in the atlas (even on different pages).
+ *
  * Author: Walker M. White
  * Based on original GameX Ship Demo by Rama C. Hoetzlein, 2002
  * LibGDX version, 1/16/2015
@@ -20,6 +24,7 @@ package util;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
 
 /**
  * Texture class providing flipbook animation.
@@ -60,6 +65,11 @@ public class FilmStrip extends TextureRegion {
      */
     private int frame;
 
+    /**
+     * The separate frame regions (null if the frames are a grid in one texture)
+     */
+    private Array<? extends TextureRegion> frames;
+
     public boolean isReversed() {
         return reversed;
     }
@@ -140,6 +150,29 @@ public class FilmStrip extends TextureRegion {
         reversed = false;
     }
 
+    /**
+     * Creates a new filmstrip from a list of frame regions.
+     * <p>
+     * The frames are shown in list order.  They must all be the same size, but
+     * need not be adjacent or even share a texture.
+     *
+     * @param frames The frame regions, in animation order
+     * @param l      Whether the animation loops
+     */
+    public FilmStrip(Array<? extends TextureRegion> frames, boolean l) {
+        super(frames.first());
+        this.frames = frames;
+        this.cols = frames.size;
+        this.size = frames.size;
+        rWidth = frames.first().getRegionWidth();
+        rheight = frames.first().getRegionHeight();
+        setFrame(0);
+        frameDuration = 0f;
+        loop = l;
+        elapsedTime = 0f;
+        reversed = false;
+    }
+
     public void refresh() {
         refreshed = true;
         setFrame(reversed ? frame : 0);
@@ -177,9 +210,7 @@ public class FilmStrip extends TextureRegion {
             return;
         }
         this.frame = frame;
-        int x = (frame % cols) * rWidth;
-        int y = (frame / cols) * rheight;
-        setRegion(x, y, rWidth, rheight);
+        showFrame();
     }
 
     public void setNextFrame() {
@@ -194,6 +225,17 @@ public class FilmStrip extends TextureRegion {
             }
             frame = frame == 0 ? size - 1 : frame - 1;
         }
+        showFrame();
+    }
+
+    /**
+     * Moves the region to the active frame.
+     */
+    private void showFrame() {
+        if (frames != null) {
+            setRegion(frames.get(frame));
+            return;
+        }
         int x = (frame % cols) * rWidth;
         int y = (frame / cols) * rheight;
         setRegion(x, y, rWidth, rheight);
@@ -0,0 +1,271 @@
+/*
+ * FrameProfiler.java
+ *
+ * Times the phases of a frame and shows them as an overlay.  When a player
+ * reports a hitch, the first question is which part of the frame was slow.
+ * This class answers it without an external profiler: each phase writes its
+ * duration (from System.nanoTime) into a ring buffer, and the overlay draws a
+ * rolling histogram of every buffer, one row per phase.
+ *
+ * Everything is allocated up front.  Timing a phase, and drawing the overlay,
+ * allocate nothing, so the profiler does not cause the hitches it measures.
+ */
+package util;
+
+import com.badlogic.gdx.graphics.Color;
+import root.GameCanvas;
+
+/**
+ * Per-phase frame timer with a histogram overlay.
+ * <p>
+ * Call begin(phase) and end(phase) around each phase.  Phases may nest, but a
+ * phase may not nest inside itself.  A phase that runs several times in a
+ * frame (such as a physics step) records one sample per run.  Nothing is
+ * recorded while the profiler is inactive.
+ */
+public class FrameProfiler {
+    /**
+     * GameMode.preUpdate (input, screen changes)
+     */
+    public static final int PRE_UPDATE = 0;
+    /**
+     * GameMode.update (game logic, including SOUND)
+     */
+    public static final int UPDATE = 1;
+    /**
+     * A single call to World.step
+     */
+    public static final int WORLD_STEP = 2;
+    /**
+     * The removal/update pass over the objects in GameMode.postUpdate
+     */
+    public static final int OBJECT_PASS = 3;
+    /**
+     * Drawing the background layers and billboards
+     */
+    public static final int DRAW_BACKGROUND = 4;
+    /**
+     * Drawing the objects
+     */
+    public static final int DRAW_OBJECTS = 5;
+    /**
+     * Drawing the user interface
+     */
+    public static final int DRAW_UI = 6;
+    /**
+     * SoundController.update
+     */
+    public static final int SOUND = 7;
+    /**
+     * The number of phases
+     */
+    public static final int PHASES = 8;
+
+    /**
+     * The label for each phase in the overlay
+     */
+    private static final String[] NAMES = {
+            "preUpdate", "update", "world.step", "objects", "background", "draw objs", "draw UI", "sound"
+    };
+    /**
+     * The bar color for each phase in the overlay
+     */
+    private static final Color[] COLORS = {
+            Color.SKY, Color.GREEN, Color.ORANGE, Color.YELLOW, Color.VIOLET, Color.CORAL, Color.CYAN, Color.LIME
+    };
+
+    /**
+     * Number of samples kept per phase
+     */
+    public static final int HISTORY = 120;
+    /**
+     * Height of one histogram row in pixels
+     */
+    private static final float ROW_HEIGHT = 30;
+    /**
+     * Width of one histogram bar in pixels
+     */
+    private static final float BAR_WIDTH = 2;
+    /**
+     * Width of the label column in pixels
+     */
+    private static final float LABEL_WIDTH = 170;
+    /**
+     * Duration (in nanoseconds) that fills a row; longer samples are clipped
+     */
+    private static final long ROW_SCALE = 8000000L;
+
+    /**
+     * Background color of the overlay
+     */
+    private final Color shade = new Color(0, 0, 0, 0.6f);
+
+    /**
+     * The ring buffers of durations in nanoseconds, one per phase
+     */
+    private final long[][] samples;
+    /**
+     * The next slot to write in each ring buffer
+     */
+    private final int[] heads;
+    /**
+     * The number of valid samples in each ring buffer
+     */
+    private final int[] counts;
+    /**
+     * The start time of each phase currently being timed
+     */
+    private final long[] starts;
+    /**
+     * Text buffer for the overlay labels (reused every frame)
+     */
+    private final StringBuilder label;
+    /**
+     * Whether we are recording and drawing
+     */
+    private boolean active;
+
+    /**
+     * Creates a new, inactive profiler.
+     */
+    public FrameProfiler() {
+        samples = new long[PHASES][HISTORY];
+        heads = new int[PHASES];
+        counts = new int[PHASES];
+        starts = new long[PHASES];
+        label = new StringBuilder(64);
+        active = false;
+    }
+
+    /**
+     * Returns true if the profiler is recording and drawing.
+     *
+     * @return true if the profiler is recording and drawing
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Sets whether the profiler is recording and drawing.
+     * <p>
+     * Turning the profiler on clears the old samples.
+     *
+     * @param value whether the profiler is recording and drawing
+     */
+    public void setActive(boolean value) {
+        if (value && !active) {
+            for (int ii = 0; ii < PHASES; ii++) {
+                heads[ii] = 0;
+                counts[ii] = 0;
+            }
+        }
+        active = value;
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param phase The phase (one of the constants in this class)
+     */
+    public void begin(int phase) {
+        if (active) {
+            starts[phase] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Stops timing a phase and records its duration.
+     *
+     * @param phase The phase (one of the constants in this class)
+     */
+    public void end(int phase) {
+        if (active) {
+            record(phase, System.nanoTime() - starts[phase]);
+        }
+    }
+
+    /**
+     * Records a duration for a phase, overwriting the oldest sample if full.
+     *
+     * @param phase The phase (one of the constants in this class)
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(int phase, long nanos) {
+        samples[phase][heads[phase]] = nanos;
+        heads[phase] = (heads[phase] + 1) % HISTORY;
+        if (counts[phase] < HISTORY) {
+            counts[phase]++;
+        }
+    }
+
+    /**
+     * Returns the mean duration of the recorded samples of a phase.
+     *
+     * @param phase The phase (one of the constants in this class)
+     * @return the mean duration in nanoseconds (0 if there are no samples)
+     */
+    public long getAverage(int phase) {
+        if (counts[phase] == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int ii = 0; ii < counts[phase]; ii++) {
+            total += samples[phase][ii];
+        }
+        return total / counts[phase];
+    }
+
+    /**
+     * Returns the longest recorded duration of a phase.
+     *
+     * @param phase The phase (one of the constants in this class)
+     * @return the longest duration in nanoseconds (0 if there are no samples)
+     */
+    public long getMaximum(int phase) {
+        long most = 0;
+        for (int ii = 0; ii < counts[phase]; ii++) {
+            most = Math.max(most, samples[phase][ii]);
+        }
+        return most;
+    }
+
+    /**
+     * Draws the overlay in the top left corner of the screen.
+     * <p>
+     * Each phase gets a row with its label, the mean and worst time (in
+     * microseconds), and one bar per sample, oldest on the left.  A full-height
+     * bar is 8 ms, about half of a frame at 60 fps.  This must be called outside
+     * of any other drawing pass.
+     *
+     * @param canvas Drawing context
+     */
+    public void draw(GameCanvas canvas) {
+        if (!active) {
+            return;
+        }
+        float top = canvas.getHeight() - 10;
+        float width = LABEL_WIDTH + HISTORY * BAR_WIDTH + 10;
+        canvas.beginOverlay();
+        canvas.drawOverlayRect(0, top - PHASES * ROW_HEIGHT - 5, width, PHASES * ROW_HEIGHT + 15, shade);
+        for (int phase = 0; phase < PHASES; phase++) {
+            float y = top - (phase + 1) * ROW_HEIGHT;
+            int count = counts[phase];
+            int start = (heads[phase] - count + HISTORY) % HISTORY;
+            for (int ii = 0; ii < count; ii++) {
+                long nanos = Math.min(samples[phase][(start + ii) % HISTORY], ROW_SCALE);
+                float height = (ROW_HEIGHT - 4) * nanos / ROW_SCALE;
+                canvas.drawOverlayRect(LABEL_WIDTH + ii * BAR_WIDTH, y, BAR_WIDTH, Math.max(height, 1), COLORS[phase]);
+            }
+        }
+        for (int phase = 0; phase < PHASES; phase++) {
+            float y = top - phase * ROW_HEIGHT - 8;
+            label.setLength(0);
+            label.append(NAMES[phase]).append(' ');
+            label.append((int) (getAverage(phase) / 1000)).append('/');
+            label.append((int) (getMaximum(phase) / 1000)).append("us");
+            canvas.drawOverlayText(label, 5, y, COLORS[phase]);
+        }
+        canvas.endOverlay();
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * LevelGenerator.java
+ *
+ * Builds synthetic levels for scaling tests.  The shipped levels top out at a
+ * few hundred bodies, which is not enough to see where the per-frame loops in
+ * GameMode stop being linear.  This class writes level JSON in exactly the
+ * schema that Level.read expects (tiles, spikes, npc pairs, items and text),
+ * with as many couples, moving stones and spikes as we ask for.
+ *
+ * The level is a grid of cells, four rows high and as wide as it needs to be.
+ * Each couple, platform or spike strip gets its own cell, so nothing overlaps
+ * and the level is stable when it is first stepped.  The player starts on a
+ * platform to the left of the grid, and the exit is to the right of it.
+ */
+package util;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+/**
+ * Generator for large, synthetic levels in the levels/*.json format.
+ * <p>
+ * Set the entity counts, then call generate() or write().  The same seed and
+ * counts always produce the same level.
+ */
+public class LevelGenerator {
+    /**
+     * Width of a grid cell in world units
+     */
+    public static final float CELL_WIDTH = 8.0f;
+    /**
+     * Height of a grid row in world units
+     */
+    public static final float ROW_HEIGHT = 4.0f;
+    /**
+     * Number of rows in the grid (the camera shows about 18 units of height)
+     */
+    public static final int ROWS = 4;
+    /**
+     * Most items a level can have (GameMode has three item textures per theme)
+     */
+    public static final int MAX_ITEMS = 3;
+
+    /**
+     * Horizontal distance between the two people in a couple
+     */
+    private static final float COUPLE_SPAN = 4.5f;
+    /**
+     * Distance a sliding stone travels from its start position
+     */
+    private static final float SLIDE_DISTANCE = 2.0f;
+    /**
+     * Angle (in degrees) that a rotating stone sweeps through
+     */
+    private static final float ROTATE_DEGREES = 30.0f;
+
+    /**
+     * Random generator for the small variations between cells
+     */
+    private final Random random;
+    /**
+     * The seed, so that generate() can be called more than once
+     */
+    private final long seed;
+    /**
+     * The level theme ("city", "village", "forest" or "mountain")
+     */
+    private String type = "city";
+    /**
+     * Number of couples (npc pairs joined by a rope)
+     */
+    private int couples;
+    /**
+     * Number of couples standing on a sliding or rotating stone
+     */
+    private int movingCouples;
+    /**
+     * Number of static platforms
+     */
+    private int tiles;
+    /**
+     * Number of sliding platforms
+     */
+    private int slidingTiles;
+    /**
+     * Number of spike strips
+     */
+    private int spikes;
+    /**
+     * Number of items to collect
+     */
+    private int items;
+
+    /**
+     * Creates a generator with the given seed and no entities.
+     *
+     * @param seed The seed for the small variations between cells
+     */
+    public LevelGenerator(long seed) {
+        this.seed = seed;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Sets the level theme.
+     *
+     * @param type the level theme ("city", "village", "forest" or "mountain")
+     */
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Sets the number of couples.
+     *
+     * @param value the number of couples
+     */
+    public void setCouples(int value) {
+        couples = value;
+    }
+
+    /**
+     * Sets how many of the couples stand on a moving stone.
+     * <p>
+     * Moving couples alternate between a sliding and a rotating stone.  The value
+     * is clamped to the number of couples when the level is generated.
+     *
+     * @param value the number of couples standing on a moving stone
+     */
+    public void setMovingCouples(int value) {
+        movingCouples = value;
+    }
+
+    /**
+     * Sets the number of static platforms.
+     *
+     * @param value the number of static platforms
+     */
+    public void setTiles(int value) {
+        tiles = value;
+    }
+
+    /**
+     * Sets the number of sliding platforms.
+     *
+     * @param value the number of sliding platforms
+     */
+    public void setSlidingTiles(int value) {
+        slidingTiles = value;
+    }
+
+    /**
+     * Sets the number of spike strips.
+     *
+     * @param value the number of spike strips
+     */
+    public void setSpikes(int value) {
+        spikes = value;
+    }
+
+    /**
+     * Sets the number of items to collect (at most MAX_ITEMS).
+     *
+     * @param value the number of items to collect
+     */
+    public void setItems(int value) {
+        items = Math.min(value, MAX_ITEMS);
+    }
+
+    /**
+     * Returns the level JSON for the current settings.
+     *
+     * @return the level JSON for the current settings
+     */
+    public String generate() {
+        random.setSeed(seed);
+        StringWriter buffer = new StringWriter();
+        JsonWriter json = new JsonWriter(buffer);
+        json.setOutputType(JsonWriter.OutputType.json);
+
+        int cells = couples + tiles + slidingTiles + spikes;
+        int columns = (cells + ROWS - 1) / ROWS;
+        float exitX = CELL_WIDTH * (columns + 1) + 2;
+        try {
+            json.object();
+            json.set("type", type);
+            json.set("tutorial", false);
+            json.object("player").set("x", 2f).set("y", 3f).pop();
+            json.object("exit").set("x", exitX).set("y", 2.5f).pop();
+
+            // Lay out the cells column by column, so each kind is spread across the rows
+            json.array("tiles");
+            writeTile(json, "normal", 0, 1, 6, 1, null);
+            writeTile(json, "normal", exitX - 2, 1, 6, 1, null);
+            int cell = 0;
+            for (int ii = 0; ii < tiles; ii++, cell++) {
+                writeTile(json, "normal", cellX(cell), cellY(cell) - 1, 3, 1, null);
+            }
+            for (int ii = 0; ii < slidingTiles; ii++, cell++) {
+                float x = cellX(cell);
+                float y = cellY(cell) - 1;
+                writeTile(json, "normal", x, y, 2, 0.5f, new float[]{x, y, x + SLIDE_DISTANCE, y});
+            }
+            for (int ii = 0; ii < spikes; ii++, cell++) {
+                writeTile(json, "spikes", cellX(cell), cellY(cell) - 1, 2, 0.5f, null);
+            }
+            json.pop();
+
+            json.array("npc");
+            int moving = Math.min(movingCouples, couples);
+            for (int ii = 0; ii < couples; ii++, cell++) {
+                float x = cellX(cell);
+                float y = cellY(cell);
+                float y2 = y + random.nextFloat() * 0.5f;
+                if (ii >= moving) {
+                    writeNpc(json, x, y, 0, 0, 0);
+                } else if (ii % 2 == 0) {
+                    writeNpc(json, x, y, 1, 0, 0);
+                } else {
+                    writeNpc(json, x, y, 2, x + COUPLE_SPAN, y2);
+                }
+                writeNpc(json, x + COUPLE_SPAN, y2, 0, 0, 0);
+            }
+            json.pop();
+
+            json.array("items");
+            for (int ii = 0; ii < items; ii++) {
+                int at = cells == 0 ? 0 : (ii + 1) * cells / (items + 1);
+                json.object().set("id", ii).set("x", cellX(at) + 1).set("y", cellY(at) + 2).pop();
+            }
+            json.pop();
+
+            json.array("text");
+            json.object().set("text", "stress").set("x", 3f).set("y", 4f).pop();
+            json.pop();
+
+            json.pop();
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Cannot generate level", e);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Writes the level JSON for the current settings to a file.
+     *
+     * @param file The file to write (it is overwritten)
+     */
+    public void write(FileHandle file) {
+        file.writeString(generate(), false);
+    }
+
+    /**
+     * Returns the x-coordinate of the left edge of a grid cell.
+     *
+     * @param cell The cell index
+     * @return the x-coordinate of the left edge of a grid cell
+     */
+    private float cellX(int cell) {
+        return CELL_WIDTH * (cell / ROWS + 1);
+    }
+
+    /**
+     * Returns the y-coordinate of the floor of a grid cell.
+     *
+     * @param cell The cell index
+     * @return the y-coordinate of the floor of a grid cell
+     */
+    private float cellY(int cell) {
+        return ROW_HEIGHT * (cell % ROWS) + 2;
+    }
+
+    /**
+     * Writes a single tile (platform or spike strip) in the format Tile.read expects.
+     *
+     * @param json   The JSON writer
+     * @param type   The tile type ("normal" or "spikes")
+     * @param x      The x-coordinate of the bottom left corner
+     * @param y      The y-coordinate of the bottom left corner
+     * @param width  The tile width
+     * @param height The tile height
+     * @param slide  The left and right slide positions {lx, ly, rx, ry}, or null
+     */
+    private void writeTile(JsonWriter json, String type, float x, float y, float width, float height,
+                           float[] slide) throws IOException {
+        json.object();
+        json.set("type", type).set("direction", "up");
+        json.set("x", x).set("y", y).set("width", width).set("height", height);
+        json.set("isSliding", slide != null);
+        if (slide != null) {
+            json.object("leftPos").set("x", slide[0]).set("y", slide[1]).pop();
+            json.object("rightPos").set("x", slide[2]).set("y", slide[3]).pop();
+        }
+        json.pop();
+    }
+
+    /**
+     * Writes a single person of a couple in the format NpcData.read expects.
+     * <p>
+     * The stone under a person is created by GameMode, 0.1 to the right of and
+     * 0.65 below the person.  A sliding stone moves right from there, and a
+     * rotating stone swings around the given center (the other person).
+     *
+     * @param json   The JSON writer
+     * @param x      The x-coordinate of the person
+     * @param y      The y-coordinate of the person
+     * @param motion 0 for a static stone, 1 for sliding, 2 for rotating
+     * @param cx     The x-coordinate of the rotation center
+     * @param cy     The y-coordinate of the rotation center
+     */
+    private void writeNpc(JsonWriter json, float x, float y, int motion, float cx, float cy) throws IOException {
+        json.object();
+        json.set("x", x).set("y", y);
+        json.set("isSliding", motion == 1);
+        json.set("isRotating", motion == 2);
+        if (motion == 1) {
+            float sx = x + 0.1f;
+            float sy = y - 0.65f;
+            json.object("leftPos").set("x", sx).set("y", sy).pop();
+            json.object("rightPos").set("x", sx + SLIDE_DISTANCE).set("y", sy).pop();
+        } else if (motion == 2) {
+            json.object("center").set("x", cx).set("y", cy).pop();
+            json.set("degree", ROTATE_DEGREES);
+        }
+        json.pop();
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * MetricsSink.java
+ *
+ * Writes one record per frame to a local file, so that two runs (or two
+ * builds) can be compared offline without attaching a profiler.  Each record
+ * holds the frame time, the physics step count, the world and scene sizes,
+ * the draw call counts and the JVM heap and GC counters.
+ *
+ * The game thread must never wait on the disk.  Records are preallocated and
+ * handed to a writer thread through a pair of array-backed queues.  If the
+ * writer falls behind and runs out of free records, the frame is dropped and
+ * counted rather than blocking.  The writer formats the records (as JSON lines
+ * or CSV), buffers them, and rotates to a new file once the current one is
+ * large enough, keeping a fixed number of old files.
+ */
+package util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.StreamUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous, rotating per-frame metrics file.
+ */
+public class MetricsSink {
+    /**
+     * Output file formats
+     */
+    public enum Format {
+        /**
+         * One JSON object per line
+         */
+        JSONL,
+        /**
+         * Comma separated values with a header line
+         */
+        CSV
+    }
+
+    /**
+     * Number of records that can be waiting for the writer
+     */
+    private static final int CAPACITY = 1024;
+    /**
+     * Size at which the current file is rotated out
+     */
+    private static final long MAX_FILE_BYTES = 8L * 1024 * 1024;
+    /**
+     * Number of rotated files kept next to the current one
+     */
+    private static final int MAX_OLD_FILES = 4;
+    /**
+     * The CSV header (also the order of the fields in both formats)
+     */
+    private static final String CSV_HEADER = "frame,dt_ms,cpu_ms,steps,bodies,joints,objects,"
+            + "batch_calls,draw_calls,texture_binds,heap_bytes,gc_count,gc_ms";
+
+    /**
+     * The values of a single frame
+     */
+    private static class Record {
+        long frame;
+        float deltaMillis;
+        float cpuMillis;
+        int steps;
+        int bodies;
+        int joints;
+        int objects;
+        int batchCalls;
+        int drawCalls;
+        int textureBinds;
+        long heapBytes;
+        long gcCount;
+        long gcMillis;
+    }
+
+    /**
+     * Records available to the game thread
+     */
+    private final ArrayBlockingQueue<Record> free;
+    /**
+     * Records waiting for the writer thread
+     */
+    private final ArrayBlockingQueue<Record> full;
+    /**
+     * The output format
+     */
+    private final Format format;
+    /**
+     * The current output file
+     */
+    private final FileHandle file;
+    /**
+     * The thread that formats and writes the records
+     */
+    private final Thread thread;
+    /**
+     * Formatting buffer (only used by the writer thread)
+     */
+    private final StringBuilder line;
+    /**
+     * The output stream for the current file (only used by the writer thread)
+     */
+    private Writer out;
+    /**
+     * Characters written to the current file (only used by the writer thread)
+     */
+    private long written;
+    /**
+     * Number of frames dropped because the writer fell behind
+     */
+    private volatile int dropped;
+    /**
+     * Whether the sink has been disposed
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a sink and starts its writer thread.
+     * <p>
+     * The extension (.jsonl or .csv) is added to the given path.  Rotated files
+     * are numbered, with .1 the most recent.  An existing file is rotated out
+     * rather than overwritten.
+     *
+     * @param path   The output file, without an extension
+     * @param format The output format
+     */
+    public MetricsSink(FileHandle path, Format format) {
+        this.format = format;
+        this.file = path.sibling(path.name() + (format == Format.CSV ? ".csv" : ".jsonl"));
+        free = new ArrayBlockingQueue<>(CAPACITY);
+        full = new ArrayBlockingQueue<>(CAPACITY);
+        for (int ii = 0; ii < CAPACITY; ii++) {
+            free.add(new Record());
+        }
+        line = new StringBuilder(256);
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        }, "MetricsSink");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Queues the values of a single frame.
+     * <p>
+     * This never blocks and never allocates.  If the writer has fallen behind, the
+     * frame is dropped (see getDropped).
+     *
+     * @param frame        The frame number
+     * @param deltaMillis  The frame delta (time since the previous frame)
+     * @param cpuMillis    The time spent rendering this frame
+     * @param steps        The number of physics steps taken this frame
+     * @param bodies       The number of bodies in the world
+     * @param joints       The number of joints in the world
+     * @param objects      The number of obstacles in the scene
+     * @param batchCalls   The number of sprite batch flushes this frame
+     * @param drawCalls    The number of OpenGL draw calls this frame
+     * @param textureBinds The number of texture binds this frame
+     * @param heapBytes    The heap in use
+     * @param gcCount      The total number of garbage collections
+     * @param gcMillis     The total time spent in garbage collection
+     */
+    public void record(long frame, float deltaMillis, float cpuMillis, int steps, int bodies, int joints,
+                       int objects, int batchCalls, int drawCalls, int textureBinds,
+                       long heapBytes, long gcCount, long gcMillis) {
+        if (closed) {
+            return;
+        }
+        Record rec = free.poll();
+        if (rec == null) {
+            dropped++;
+            return;
+        }
+        rec.frame = frame;
+        rec.deltaMillis = deltaMillis;
+        rec.cpuMillis = cpuMillis;
+        rec.steps = steps;
+        rec.bodies = bodies;
+        rec.joints = joints;
+        rec.objects = objects;
+        rec.batchCalls = batchCalls;
+        rec.drawCalls = drawCalls;
+        rec.textureBinds = textureBinds;
+        rec.heapBytes = heapBytes;
+        rec.gcCount = gcCount;
+        rec.gcMillis = gcMillis;
+        full.offer(rec);
+    }
+
+    /**
+     * Returns the number of frames dropped because the writer fell behind.
+     *
+     * @return the number of frames dropped because the writer fell behind
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Writes any queued records, closes the file and stops the writer thread.
+     */
+    public void dispose() {
+        closed = true;
+        try {
+            thread.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The body of the writer thread.
+     * <p>
+     * Records are written as they arrive, and the stream is flushed whenever the
+     * queue runs dry.  The loop ends once the sink is closed and the queue empty.
+     */
+    private void drain() {
+        try {
+            open();
+            while (!closed || !full.isEmpty()) {
+                Record rec = full.poll(100, TimeUnit.MILLISECONDS);
+                if (rec == null) {
+                    out.flush();
+                    continue;
+                }
+                format(rec);
+                free.offer(rec);
+                out.append(line);
+                written += line.length();
+                if (written >= MAX_FILE_BYTES) {
+                    StreamUtils.closeQuietly(out);
+                    open();
+                }
+            }
+        } catch (IOException e) {
+            Gdx.app.error("util.MetricsSink", "Cannot write " + file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            StreamUtils.closeQuietly(out);
+            closed = true;
+        }
+    }
+
+    /**
+     * Rotates out the current file (if any) and opens a fresh one.
+     */
+    private void open() throws IOException {
+        if (file.exists()) {
+            String name = file.nameWithoutExtension();
+            String ext = "." + file.extension();
+            file.sibling(name + "." + MAX_OLD_FILES + ext).delete();
+            for (int ii = MAX_OLD_FILES - 1; ii >= 1; ii--) {
+                FileHandle old = file.sibling(name + "." + ii + ext);
+                if (old.exists()) {
+                    old.moveTo(file.sibling(name + "." + (ii + 1) + ext));
+                }
+            }
+            file.moveTo(file.sibling(name + ".1" + ext));
+        }
+        out = new BufferedWriter(file.writer(false, "UTF-8"), 64 * 1024);
+        written = 0;
+        if (format == Format.CSV) {
+            out.append(CSV_HEADER).append('\n');
+            written = CSV_HEADER.length() + 1;
+        }
+    }
+
+    /**
+     * Formats a record into the line buffer.
+     *
+     * @param rec The record to format
+     */
+    private void format(Record rec) {
+        line.setLength(0);
+        if (format == Format.CSV) {
+            line.append(rec.frame).append(',').append(rec.deltaMillis).append(',').append(rec.cpuMillis);
+            line.append(',').append(rec.steps).append(',').append(rec.bodies).append(',').append(rec.joints);
+            line.append(',').append(rec.objects).append(',').append(rec.batchCalls);
+            line.append(',').append(rec.drawCalls).append(',').append(rec.textureBinds);
+            line.append(',').append(rec.heapBytes).append(',').append(rec.gcCount).append(',').append(rec.gcMillis);
+        } else {
+            line.append("{\"frame\":").append(rec.frame);
+            line.append(",\"dt_ms\":").append(rec.deltaMillis);
+            line.append(",\"cpu_ms\":").append(rec.cpuMillis);
+            line.append(",\"steps\":").append(rec.steps);
+            line.append(",\"bodies\":").append(rec.bodies);
+            line.append(",\"joints\":").append(rec.joints);
+            line.append(",\"objects\":").append(rec.objects);
+            line.append(",\"batch_calls\":").append(rec.batchCalls);
+            line.append(",\"draw_calls\":").append(rec.drawCalls);
+            line.append(",\"texture_binds\":").append(rec.textureBinds);
+            line.append(",\"heap_bytes\":").append(rec.heapBytes);
+            line.append(",\"gc_count\":").append(rec.gcCount);
+            line.append(",\"gc_ms\":").append(rec.gcMillis).append('}');
+        }
+        line.append('\n');
+    }
+}
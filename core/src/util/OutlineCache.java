@@ -0,0 +1,188 @@
+/*
+ * OutlineCache.java
+ *
+ * The debug view draws the outline of every fixture, every frame.  Asking
+ * Box2D for the vertices of a shape goes through JNI one vertex at a time, and
+ * a circle has no vertices at all, so this cache does that work once per
+ * fixture.  Each outline is stored in the local space of its body, so it stays
+ * valid as the body moves; drawing it only needs the body transform.
+ *
+ * Box2D recycles fixture objects once they are destroyed.  A recycled fixture
+ * hands out a fresh shape object, so an outline remembers the shape it was
+ * built from and is rebuilt if that changes.
+ */
+package util;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.*;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+
+/**
+ * Body-local outlines of fixtures, built on first use.
+ */
+public class OutlineCache {
+    /**
+     * The number of segments in the outline of a circle
+     */
+    private static final int CIRCLE_SEGMENTS = 12;
+
+    /**
+     * The outline of a single fixture
+     */
+    public static class Outline {
+        /**
+         * The vertices in body coordinates, as x,y pairs
+         */
+        public float[] vertices = new float[0];
+        /**
+         * The number of floats in use in vertices (twice the vertex count)
+         */
+        public int count;
+        /**
+         * Whether the last vertex joins back to the first
+         */
+        public boolean closed;
+        /**
+         * The shape this outline was built from
+         */
+        Shape shape;
+    }
+
+    /**
+     * The outline of each fixture seen so far
+     */
+    private final ObjectMap<Fixture, Outline> outlines;
+    /**
+     * Outlines that are no longer in use
+     */
+    private final Array<Outline> free;
+    /**
+     * Cache for reading shape vertices
+     */
+    private final Vector2 vertex;
+
+    /**
+     * Creates an empty outline cache.
+     */
+    public OutlineCache() {
+        outlines = new ObjectMap<>();
+        free = new Array<>();
+        vertex = new Vector2();
+    }
+
+    /**
+     * Returns the outline of a fixture, building it if necessary.
+     *
+     * @param fixture The fixture to outline
+     * @return the outline of a fixture
+     */
+    public Outline get(Fixture fixture) {
+        Shape shape = fixture.getShape();
+        Outline outline = outlines.get(fixture);
+        if (outline == null) {
+            outline = free.size > 0 ? free.pop() : new Outline();
+            outlines.put(fixture, outline);
+        } else if (outline.shape == shape) {
+            return outline;
+        }
+        build(outline, shape);
+        return outline;
+    }
+
+    /**
+     * Forgets every outline.
+     * <p>
+     * This should be called whenever the world is destroyed, as the fixtures of
+     * the old world are no longer valid.
+     */
+    public void clear() {
+        for (Outline outline : outlines.values()) {
+            outline.shape = null;
+            free.add(outline);
+        }
+        outlines.clear();
+    }
+
+    /**
+     * Fills an outline with the vertices of a shape.
+     *
+     * @param outline The outline to fill
+     * @param shape   The shape to outline
+     */
+    private void build(Outline outline, Shape shape) {
+        outline.shape = shape;
+        outline.count = 0;
+        switch (shape.getType()) {
+            case Circle: {
+                CircleShape circle = (CircleShape) shape;
+                Vector2 center = circle.getPosition();
+                float radius = circle.getRadius();
+                ensure(outline, CIRCLE_SEGMENTS);
+                for (int ii = 0; ii < CIRCLE_SEGMENTS; ii++) {
+                    float angle = MathUtils.PI2 * ii / CIRCLE_SEGMENTS;
+                    add(outline, center.x + radius * MathUtils.cos(angle), center.y + radius * MathUtils.sin(angle));
+                }
+                outline.closed = true;
+                break;
+            }
+            case Polygon: {
+                PolygonShape polygon = (PolygonShape) shape;
+                int size = polygon.getVertexCount();
+                ensure(outline, size);
+                for (int ii = 0; ii < size; ii++) {
+                    polygon.getVertex(ii, vertex);
+                    add(outline, vertex.x, vertex.y);
+                }
+                outline.closed = true;
+                break;
+            }
+            case Edge: {
+                EdgeShape edge = (EdgeShape) shape;
+                ensure(outline, 2);
+                edge.getVertex1(vertex);
+                add(outline, vertex.x, vertex.y);
+                edge.getVertex2(vertex);
+                add(outline, vertex.x, vertex.y);
+                outline.closed = false;
+                break;
+            }
+            case Chain: {
+                ChainShape chain = (ChainShape) shape;
+                int size = chain.getVertexCount();
+                ensure(outline, size);
+                for (int ii = 0; ii < size; ii++) {
+                    chain.getVertex(ii, vertex);
+                    add(outline, vertex.x, vertex.y);
+                }
+                outline.closed = chain.isLooped();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Makes room for the given number of vertices in an outline.
+     *
+     * @param outline The outline to grow
+     * @param size    The number of vertices
+     */
+    private static void ensure(Outline outline, int size) {
+        if (outline.vertices.length < 2 * size) {
+            outline.vertices = new float[2 * size];
+        }
+    }
+
+    /**
+     * Appends a vertex to an outline.
+     *
+     * @param outline The outline to extend
+     * @param x       The x-coordinate of the vertex
+     * @param y       The y-coordinate of the vertex
+     */
+    private static void add(Outline outline, float x, float y) {
+        outline.vertices[outline.count++] = x;
+        outline.vertices[outline.count++] = y;
+    }
+}
@@ -22,6 +22,8 @@ import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.IdentityMap;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.Pool;
 
 /**
  * A singleton class for controlling sound effects in LibGDX
@@ -87,6 +89,17 @@ public class SoundController {
          * @param b Is the sound looping (so no garbage collection)
          */
         public ActiveSound(Sound s, long n, boolean b) {
+            set(s, n, b);
+        }
+
+        /**
+         * Reinitializes this active sound with the given values
+         *
+         * @param s Reference to the sound resource
+         * @param n The id number representing the sound instance
+         * @param b Is the sound looping (so no garbage collection)
+         */
+        public void set(Sound s, long n, boolean b) {
             sound = s;
             id = n;
             loop = b;
@@ -124,6 +137,10 @@ public class SoundController {
      * Support class for garbage collection
      */
     private Array<String> collection;
+    /**
+     * Recycled active sounds, so that playing a sound does not allocate
+     */
+    private Pool<ActiveSound> activePool;
 
 
     /**
@@ -150,6 +167,12 @@ public class SoundController {
         soundbank = new IdentityMap<>();
         actives = new IdentityMap<>();
         collection = new Array<>();
+        activePool = new Pool<ActiveSound>() {
+            @Override
+            protected ActiveSound newObject() {
+                return new ActiveSound(null, -1, false);
+            }
+        };
         cooldown = DEFAULT_COOL;
         timeLimit = DEFAULT_LIMIT;
         frameLimit = DEFAULT_FRAME;
@@ -344,7 +367,12 @@ public class SoundController {
             sound.setLooping(id, true);
         }
 
-        actives.put(key, new ActiveSound(sound, id, loop));
+        ActiveSound active = activePool.obtain();
+        active.set(sound, id, loop);
+        ActiveSound old = actives.put(key, active);
+        if (old != null) {
+            activePool.free(old);
+        }
         current++;
         return true;
     }
@@ -372,6 +400,7 @@ public class SoundController {
         snd.sound.setLooping(snd.id, false); // Will eventually garbage collect
         snd.sound.setVolume(snd.id, 0.0f);
         actives.remove(key);
+        activePool.free(snd);
     }
 
     /**
@@ -390,19 +419,22 @@ public class SoundController {
      * This method serves two purposes.  First, it allows us to limit the number
      * of sounds per animation frame.  In addition it allows us some primitive
      * garbage collection.
+     * <p>
+     * This is called every frame, so it must not allocate.  We walk the entries
+     * (rather than looking up each key) and recycle the expired sounds.
      */
     public void update() {
-        for (String key : actives.keys()) {
-            ActiveSound snd = actives.get(key);
+        for (ObjectMap.Entry<String, ActiveSound> entry : actives.entries()) {
+            ActiveSound snd = entry.value;
             snd.lifespan++;
             if (snd.lifespan > timeLimit) {
-                collection.add(key);
+                collection.add(entry.key);
                 snd.sound.setLooping(snd.id, false); // Will eventually garbage collect
                 snd.sound.setVolume(snd.id, 0.0f);
             }
         }
-        for (String key : collection) {
-            actives.remove(key);
+        for (int ii = 0; ii < collection.size; ii++) {
+            activePool.free(actives.remove(collection.get(ii)));
         }
         collection.clear();
         current = 0;
@@ -0,0 +1,327 @@
+/*
+ * SpatialGrid.java
+ *
+ * A uniform grid over the plane, used to find the objects that overlap a
+ * rectangle (such as the view of the camera) without looking at every object
+ * in the level.  Each object is filed under every cell that its bounding box
+ * touches.  An object that never moves is filed once; an object that moves is
+ * filed again whenever its box changes, which only touches the cell lists when
+ * the box crosses into a different set of cells.
+ *
+ * The grid is sparse, so it does not need to know the size of the level in
+ * advance.  Cells are created the first time they are used and kept (empty)
+ * after that, so that a scene that has settled allocates nothing.
+ */
+package util;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.util.Comparator;
+
+/**
+ * Sparse uniform grid of axis-aligned boxes.
+ * <p>
+ * Queries return the objects in the order that they were first added, so a
+ * caller that adds objects in draw order gets them back in draw order.
+ *
+ * @param <T> The type of the objects in the grid
+ */
+public class SpatialGrid<T> {
+    /**
+     * The largest cell coordinate (in either direction) that fits in a cell key
+     */
+    private static final int MAX_CELL = Short.MAX_VALUE;
+
+    /**
+     * An object in the grid, with its box and the cells that it is filed under
+     */
+    private static class Entry<T> {
+        T item;
+        /**
+         * The order in which the object was first added
+         */
+        int order;
+        /**
+         * The last query that found this entry
+         */
+        int stamp;
+        float left;
+        float bottom;
+        float right;
+        float top;
+        int cellLeft;
+        int cellBottom;
+        int cellRight;
+        int cellTop;
+    }
+
+    /**
+     * Sorts entries by the order in which they were first added
+     */
+    private static final Comparator<Entry<?>> ORDER = new Comparator<Entry<?>>() {
+        @Override
+        public int compare(Entry<?> a, Entry<?> b) {
+            return a.order - b.order;
+        }
+    };
+
+    /**
+     * The width and height of a cell
+     */
+    private final float cellSize;
+    /**
+     * The entries filed under each cell, by cell key
+     */
+    private final IntMap<Array<Entry<T>>> cells;
+    /**
+     * The entry for each object in the grid
+     */
+    private final ObjectMap<T, Entry<T>> entries;
+    /**
+     * Entries that are no longer in use
+     */
+    private final Array<Entry<T>> free;
+    /**
+     * The entries found by the current query
+     */
+    private final Array<Entry<T>> found;
+    /**
+     * The order assigned to the next new object
+     */
+    private int nextOrder;
+    /**
+     * The number of the current query
+     */
+    private int stamp;
+
+    /**
+     * Creates an empty grid with the given cell size.
+     * <p>
+     * A good cell size is a few times the size of a typical object, and a small
+     * fraction of the size of a typical query.
+     *
+     * @param cellSize The width and height of a cell
+     */
+    public SpatialGrid(float cellSize) {
+        this.cellSize = cellSize;
+        cells = new IntMap<>();
+        entries = new ObjectMap<>();
+        free = new Array<>();
+        found = new Array<>();
+    }
+
+    /**
+     * Returns the number of objects in the grid.
+     *
+     * @return the number of objects in the grid
+     */
+    public int size() {
+        return entries.size;
+    }
+
+    /**
+     * Returns true if the object is in the grid.
+     *
+     * @param item The object to check
+     * @return true if the object is in the grid
+     */
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    /**
+     * Adds an object to the grid, or moves it if it is already there.
+     * <p>
+     * An object that is already in the grid keeps its original order.
+     *
+     * @param item   The object to add or move
+     * @param bounds The bounding box of the object
+     */
+    public void put(T item, Rectangle bounds) {
+        Entry<T> entry = entries.get(item);
+        if (entry == null) {
+            entry = free.size > 0 ? free.pop() : new Entry<T>();
+            entry.item = item;
+            entry.order = nextOrder++;
+            entry.stamp = stamp;
+            setBox(entry, bounds);
+            entry.cellLeft = toCell(entry.left);
+            entry.cellBottom = toCell(entry.bottom);
+            entry.cellRight = toCell(entry.right);
+            entry.cellTop = toCell(entry.top);
+            entries.put(item, entry);
+            file(entry);
+            return;
+        }
+
+        setBox(entry, bounds);
+        int left = toCell(entry.left);
+        int bottom = toCell(entry.bottom);
+        int right = toCell(entry.right);
+        int top = toCell(entry.top);
+        if (left != entry.cellLeft || bottom != entry.cellBottom ||
+                right != entry.cellRight || top != entry.cellTop) {
+            unfile(entry);
+            entry.cellLeft = left;
+            entry.cellBottom = bottom;
+            entry.cellRight = right;
+            entry.cellTop = top;
+            file(entry);
+        }
+    }
+
+    /**
+     * Removes an object from the grid.
+     * <p>
+     * Nothing happens if the object is not in the grid.
+     *
+     * @param item The object to remove
+     */
+    public void remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return;
+        }
+        unfile(entry);
+        entry.item = null;
+        free.add(entry);
+    }
+
+    /**
+     * Removes every object from the grid.
+     * <p>
+     * The cells are kept, so refilling the grid for a similar scene does not
+     * allocate them again.
+     */
+    public void clear() {
+        for (Array<Entry<T>> cell : cells.values()) {
+            cell.clear();
+        }
+        for (Entry<T> entry : entries.values()) {
+            entry.item = null;
+            free.add(entry);
+        }
+        entries.clear();
+        nextOrder = 0;
+    }
+
+    /**
+     * Finds the objects whose boxes overlap the given area.
+     * <p>
+     * The objects are appended to out in the order that they were first added.
+     * The array is not cleared first.
+     *
+     * @param area The area to search
+     * @param out  The array to receive the objects
+     * @return the number of objects found
+     */
+    public int query(Rectangle area, Array<T> out) {
+        stamp++;
+        found.clear();
+        float right = area.x + area.width;
+        float top = area.y + area.height;
+        int cellLeft = toCell(area.x);
+        int cellBottom = toCell(area.y);
+        int cellRight = toCell(right);
+        int cellTop = toCell(top);
+        for (int cx = cellLeft; cx <= cellRight; cx++) {
+            for (int cy = cellBottom; cy <= cellTop; cy++) {
+                Array<Entry<T>> cell = cells.get(key(cx, cy));
+                if (cell == null) {
+                    continue;
+                }
+                for (int ii = 0; ii < cell.size; ii++) {
+                    Entry<T> entry = cell.get(ii);
+                    if (entry.stamp == stamp) {
+                        continue;
+                    }
+                    entry.stamp = stamp;
+                    if (entry.left <= right && area.x <= entry.right &&
+                            entry.bottom <= top && area.y <= entry.top) {
+                        found.add(entry);
+                    }
+                }
+            }
+        }
+        found.sort(ORDER);
+        for (int ii = 0; ii < found.size; ii++) {
+            out.add(found.get(ii).item);
+        }
+        int count = found.size;
+        found.clear();
+        return count;
+    }
+
+    /**
+     * Copies a bounding box into an entry.
+     *
+     * @param entry  The entry to update
+     * @param bounds The bounding box
+     */
+    private static void setBox(Entry<?> entry, Rectangle bounds) {
+        entry.left = bounds.x;
+        entry.bottom = bounds.y;
+        entry.right = bounds.x + bounds.width;
+        entry.top = bounds.y + bounds.height;
+    }
+
+    /**
+     * Adds an entry to every cell in its cell range.
+     *
+     * @param entry The entry to file
+     */
+    private void file(Entry<T> entry) {
+        for (int cx = entry.cellLeft; cx <= entry.cellRight; cx++) {
+            for (int cy = entry.cellBottom; cy <= entry.cellTop; cy++) {
+                int key = key(cx, cy);
+                Array<Entry<T>> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Array<>(false, 8);
+                    cells.put(key, cell);
+                }
+                cell.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes an entry from every cell in its cell range.
+     *
+     * @param entry The entry to unfile
+     */
+    private void unfile(Entry<T> entry) {
+        for (int cx = entry.cellLeft; cx <= entry.cellRight; cx++) {
+            for (int cy = entry.cellBottom; cy <= entry.cellTop; cy++) {
+                Array<Entry<T>> cell = cells.get(key(cx, cy));
+                if (cell != null) {
+                    cell.removeValue(entry, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cell coordinate of a position, clamped to the key range.
+     *
+     * @param value A position along either axis
+     * @return the cell coordinate of a position
+     */
+    private int toCell(float value) {
+        int cell = (int) Math.floor(value / cellSize);
+        return Math.max(-MAX_CELL, Math.min(MAX_CELL, cell));
+    }
+
+    /**
+     * Returns the key of a cell.
+     *
+     * @param cx The horizontal cell coordinate
+     * @param cy The vertical cell coordinate
+     * @return the key of a cell
+     */
+    private static int key(int cx, int cy) {
+        return (cx << 16) | (cy & 0xFFFF);
+    }
+}
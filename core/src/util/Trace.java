@@ -0,0 +1,251 @@
+/*
+ * Trace.java
+ *
+ * Records how long startup and asset loading take, as a Chrome trace-event
+ * file.  Open the file in chrome://tracing (or ui.perfetto.dev) to see every
+ * recorded span on a timeline, one row per thread, so that the assets and modes
+ * that dominate a cold start stand out.
+ *
+ * Tracing is off unless started.  When it is off, begin and end return at once,
+ * so the calls can stay in place.  The events are kept in memory and written
+ * when the process exits (even through System.exit), as the game has no single
+ * point at which loading is known to be over.
+ */
+package util;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongMap;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Chrome trace-event recorder for coarse spans.
+ * <p>
+ * A span is timed by calling begin, doing the work, and passing the value that
+ * begin returned to end.  Spans may be recorded from any thread.
+ */
+public class Trace {
+    /**
+     * The most events kept; later events are dropped and counted
+     */
+    private static final int MAX_EVENTS = 1 << 18;
+
+    /**
+     * A completed span
+     */
+    private static class Event {
+        String name;
+        String category;
+        String detail;
+        long thread;
+        long startNanos;
+        long durationNanos;
+    }
+
+    /**
+     * Whether events are being recorded
+     */
+    private static volatile boolean enabled;
+    /**
+     * The file the trace is written to
+     */
+    private static File file;
+    /**
+     * The time that the trace started, in nanoseconds
+     */
+    private static long origin;
+    /**
+     * The recorded events, in the order that they ended
+     */
+    private static final Array<Event> events = new Array<>();
+    /**
+     * The name of every thread that recorded an event, by thread id
+     */
+    private static final LongMap<String> threads = new LongMap<>();
+    /**
+     * The number of events dropped once the trace was full
+     */
+    private static int dropped;
+
+    /**
+     * Starts recording, to be written to the given file when the process exits.
+     * <p>
+     * Nothing happens if tracing has already started.
+     *
+     * @param path The trace file
+     */
+    public static synchronized void start(String path) {
+        if (enabled) {
+            return;
+        }
+        file = new File(path);
+        origin = System.nanoTime();
+        enabled = true;
+        Runtime.getRuntime().addShutdownHook(new Thread("TraceWriter") {
+            @Override
+            public void run() {
+                write();
+            }
+        });
+    }
+
+    /**
+     * Returns true if events are being recorded.
+     *
+     * @return true if events are being recorded
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the start time of a span.
+     *
+     * @return the start time of a span, to be passed to end
+     */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records a span that started at the given time and ends now.
+     *
+     * @param name     The name of the span
+     * @param category The category of the span
+     * @param start    The value returned by begin
+     */
+    public static void end(String name, String category, long start) {
+        end(name, category, start, null);
+    }
+
+    /**
+     * Records a span that started at the given time and ends now.
+     *
+     * @param name     The name of the span
+     * @param category The category of the span
+     * @param start    The value returned by begin
+     * @param detail   Extra information shown with the span, or null
+     */
+    public static void end(String name, String category, long start, String detail) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        Thread thread = Thread.currentThread();
+        synchronized (Trace.class) {
+            if (events.size >= MAX_EVENTS) {
+                dropped++;
+                return;
+            }
+            Event event = new Event();
+            event.name = name;
+            event.category = category;
+            event.detail = detail;
+            event.thread = thread.getId();
+            event.startNanos = start;
+            event.durationNanos = now - start;
+            events.add(event);
+            if (!threads.containsKey(event.thread)) {
+                threads.put(event.thread, thread.getName());
+            }
+        }
+    }
+
+    /**
+     * Writes the recorded events to the trace file.
+     * <p>
+     * This is called when the process exits, but may be called earlier to get a
+     * partial trace.  Each call writes every event recorded so far.
+     */
+    public static synchronized void write() {
+        if (file == null) {
+            return;
+        }
+        Writer out = null;
+        try {
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+            out = new BufferedWriter(new FileWriter(file));
+            out.write("{\"traceEvents\":[\n");
+            boolean first = true;
+            for (LongMap.Entry<String> thread : threads) {
+                first = separate(out, first);
+                out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.key
+                        + ",\"args\":{\"name\":\"" + escape(thread.value) + "\"}}");
+            }
+            for (int ii = 0; ii < events.size; ii++) {
+                Event event = events.get(ii);
+                first = separate(out, first);
+                out.write("{\"name\":\"" + escape(event.name) + "\",\"cat\":\"" + escape(event.category)
+                        + "\",\"ph\":\"X\",\"pid\":1,\"tid\":" + event.thread
+                        + ",\"ts\":" + micros(event.startNanos - origin)
+                        + ",\"dur\":" + micros(event.durationNanos));
+                if (event.detail != null) {
+                    out.write(",\"args\":{\"detail\":\"" + escape(event.detail) + "\"}");
+                }
+                out.write("}");
+            }
+            out.write("\n],\"displayTimeUnit\":\"ms\",\"otherData\":{\"droppedEvents\":" + dropped + "}}\n");
+        } catch (IOException e) {
+            System.err.println("util.Trace: could not write " + file + ": " + e.getMessage());
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the separator before an event, unless it is the first.
+     *
+     * @param out   The trace file
+     * @param first Whether this is the first event
+     * @return false, as the next event is never the first
+     * @throws IOException if the separator cannot be written
+     */
+    private static boolean separate(Writer out, boolean first) throws IOException {
+        if (!first) {
+            out.write(",\n");
+        }
+        return false;
+    }
+
+    /**
+     * Returns a duration in microseconds, the unit of the trace format.
+     *
+     * @param nanos The duration in nanoseconds
+     * @return the duration in microseconds
+     */
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1000.0);
+    }
+
+    /**
+     * Escapes a string for a JSON string literal.
+     *
+     * @param value The string to escape
+     * @return the escaped string
+     */
+    private static String escape(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        for (int ii = 0; ii < value.length(); ii++) {
+            char c = value.charAt(ii);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < ' ') {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * TracedLoader.java
+ *
+ * The asset manager gives no hook into the loading of a single asset, but every
+ * asset goes through the loader registered for its type.  These wrappers stand
+ * in for those loaders and record each phase of each asset in the trace (see
+ * Trace): resolving dependencies, the asynchronous part (on the loader thread)
+ * and the synchronous part (on the render thread).
+ */
+package util;
+
+import com.badlogic.gdx.assets.AssetDescriptor;
+import com.badlogic.gdx.assets.AssetLoaderParameters;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.assets.loaders.AssetLoader;
+import com.badlogic.gdx.assets.loaders.AsynchronousAssetLoader;
+import com.badlogic.gdx.assets.loaders.SynchronousAssetLoader;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Wrappers that trace the loaders of an asset manager.
+ */
+public class TracedLoader {
+
+    /**
+     * Replaces the loader of a type (and file suffix) with a traced one.
+     * <p>
+     * Nothing happens if there is no such loader.
+     *
+     * @param manager The asset manager
+     * @param type    The asset type
+     * @param suffix  The file suffix of the loader, or the empty string for the default
+     */
+    public static void install(AssetManager manager, Class<?> type, String suffix) {
+        AssetLoader<?, ?> loader = manager.getLoader(type, "asset" + suffix);
+        if (loader instanceof AsynchronousAssetLoader) {
+            install(manager, type, suffix, new Async<>((AsynchronousAssetLoader<?, ?>) loader));
+        } else if (loader instanceof SynchronousAssetLoader) {
+            install(manager, type, suffix, new Sync<>((SynchronousAssetLoader<?, ?>) loader));
+        }
+    }
+
+    /**
+     * Registers a traced loader for a type (and file suffix).
+     * <p>
+     * The type is the one that the wrapped loader was registered for, so it
+     * matches the asset type of the loader.
+     *
+     * @param manager The asset manager
+     * @param type    The asset type
+     * @param suffix  The file suffix of the loader, or the empty string for the default
+     * @param loader  The traced loader
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, P extends AssetLoaderParameters<T>> void install(AssetManager manager, Class<?> type,
+                                                                         String suffix, AssetLoader<T, P> loader) {
+        manager.setLoader((Class<T>) type, suffix, loader);
+    }
+
+    /**
+     * A traced asynchronous loader
+     */
+    private static class Async<T, P extends AssetLoaderParameters<T>> extends AsynchronousAssetLoader<T, P> {
+        /**
+         * The loader that does the work
+         */
+        private final AsynchronousAssetLoader<T, P> loader;
+        /**
+         * The name of the loader, shown with each span
+         */
+        private final String name;
+
+        Async(AsynchronousAssetLoader<T, P> loader) {
+            super(null);
+            this.loader = loader;
+            this.name = loader.getClass().getSimpleName();
+        }
+
+        @Override
+        public FileHandle resolve(String fileName) {
+            return loader.resolve(fileName);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, P parameter) {
+            long start = Trace.begin();
+            Array<AssetDescriptor> result = loader.getDependencies(fileName, file, parameter);
+            Trace.end(fileName, "dependencies", start, name);
+            return result;
+        }
+
+        @Override
+        public void loadAsync(AssetManager manager, String fileName, FileHandle file, P parameter) {
+            long start = Trace.begin();
+            loader.loadAsync(manager, fileName, file, parameter);
+            Trace.end(fileName, "loadAsync", start, name);
+        }
+
+        @Override
+        public T loadSync(AssetManager manager, String fileName, FileHandle file, P parameter) {
+            long start = Trace.begin();
+            T result = loader.loadSync(manager, fileName, file, parameter);
+            Trace.end(fileName, "loadSync", start, name);
+            return result;
+        }
+    }
+
+    /**
+     * A traced synchronous loader
+     */
+    private static class Sync<T, P extends AssetLoaderParameters<T>> extends SynchronousAssetLoader<T, P> {
+        /**
+         * The loader that does the work
+         */
+        private final SynchronousAssetLoader<T, P> loader;
+        /**
+         * The name of the loader, shown with each span
+         */
+        private final String name;
+
+        Sync(SynchronousAssetLoader<T, P> loader) {
+            super(null);
+            this.loader = loader;
+            this.name = loader.getClass().getSimpleName();
+        }
+
+        @Override
+        public FileHandle resolve(String fileName) {
+            return loader.resolve(fileName);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Array<AssetDescriptor> getDependencies(String fileName, FileHandle file, P parameter) {
+            long start = Trace.begin();
+            Array<AssetDescriptor> result = loader.getDependencies(fileName, file, parameter);
+            Trace.end(fileName, "dependencies", start, name);
+            return result;
+        }
+
+        @Override
+        public T load(AssetManager manager, String fileName, FileHandle file, P parameter) {
+            long start = Trace.begin();
+            T result = loader.load(manager, fileName, file, parameter);
+            Trace.end(fileName, "loadSync", start, name);
+            return result;
+        }
+    }
+}
@@ -14,6 +14,7 @@ package desktop;/*
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import root.GDXRoot;
+import util.MetricsSink;
 
 /**
  * The main class of the game.
@@ -22,17 +23,49 @@ import root.GDXRoot;
  * the window size, you should almost never need to modify this class.
  */
 public class DesktopLauncher {
+	/**
+	 * The trace file written by --trace, relative to the working directory
+	 */
+	private static final String DEFAULT_TRACE = "traces/startup.json";
 	
 	/**
 	 * Classic main method that all Java programmers know.
 	 * 
 	 * This method simply exists to start a new LwjglApplication.  For desktop games,
 	 * LibGDX is built on top of LWJGL (this is not the case for Android).
+	 * <p>
+	 * Pass --record to write an input recording for every level attempt, and
+	 * --uncapped to draw as fast as possible (physics still runs at a fixed step).
+	 * Pass --metrics (JSON lines) or --metrics=csv to write per-frame metrics.
+	 * Pass --min-scale=s to set the lowest resolution scale of the world (1 turns
+	 * dynamic resolution off), or --scale=s to fix the scale.
+	 * Pass --trace (to traces/startup.json) or --trace=file to write a Chrome trace
+	 * of startup and asset loading when the game exits.
 	 *
 	 * @param arg Command line arguments
 	 */
 	public static void main (String[] arg) {
 		LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
+		for (String a : arg) {
+			if (a.equals("--record")) {
+				GDXRoot.recordInput = true;
+			} else if (a.equals("--metrics")) {
+				GDXRoot.metricsFormat = MetricsSink.Format.JSONL;
+			} else if (a.equals("--metrics=csv")) {
+				GDXRoot.metricsFormat = MetricsSink.Format.CSV;
+			} else if (a.startsWith("--min-scale=")) {
+				GDXRoot.minRenderScale = Float.parseFloat(a.substring("--min-scale=".length()));
+			} else if (a.startsWith("--scale=")) {
+				GDXRoot.renderScale = Float.parseFloat(a.substring("--scale=".length()));
+			} else if (a.equals("--trace")) {
+				GDXRoot.traceFile = DEFAULT_TRACE;
+			} else if (a.startsWith("--trace=")) {
+				GDXRoot.traceFile = a.substring("--trace=".length());
+			} else if (a.equals("--uncapped")) {
+				config.foregroundFPS = 0;
+				config.vSyncEnabled = false;
+			}
+		}
 		config.width  = 1200;
 		config.height = 800;
 		config.resizable = false;
@@ -0,0 +1,84 @@
+package desktop;/*
+ * desktop.HeadlessLauncher.java
+ *
+ * Launches the simulation runner on the headless backend.  There is no window
+ * and no OpenGL context, so this can run on a build server.  The headless
+ * backend does not provide a GL implementation, so we install one that does
+ * nothing; textures still load (their pixel data is simply never uploaded).
+ */
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import root.HeadlessCanvas;
+import root.SimulationRunner;
+
+/**
+ * The main class of the headless simulation runner.
+ * <p>
+ * Usage: HeadlessLauncher [frames] [level id ...]
+ * <br>
+ * or:    HeadlessLauncher --replay [--dt seconds] recording ...
+ * <br>
+ * or:    HeadlessLauncher --stress frames couples ...
+ * <br>
+ * or:    HeadlessLauncher --alloc frames [level id ...]
+ * <br>
+ * or:    HeadlessLauncher --alloc --replay recording ...
+ * <p>
+ * With no level ids, every level in levels.json is simulated.  With --replay,
+ * each input recording is replayed, using the recorded frame deltas unless a
+ * fixed delta is given.  With --stress, a level with each number of couples is
+ * generated and the update, physics and draw phases are timed.  With --alloc,
+ * the bytes allocated per steady-state frame are measured instead, and the
+ * process exits with status 1 if any level allocates.
+ */
+public class HeadlessLauncher {
+
+	/**
+	 * Classic main method that all Java programmers know.
+	 *
+	 * @param arg Command line arguments
+	 */
+	public static void main (String[] arg) {
+		SimulationRunner runner;
+		boolean alloc = arg.length > 0 && arg[0].equals("--alloc");
+		if (alloc) {
+			String[] rest = new String[arg.length - 1];
+			System.arraycopy(arg, 1, rest, 0, rest.length);
+			arg = rest;
+		}
+		if (arg.length > 0 && arg[0].equals("--replay")) {
+			int first = 1;
+			float dt = 0;
+			if (arg.length > 2 && arg[1].equals("--dt")) {
+				dt = Float.parseFloat(arg[2]);
+				first = 3;
+			}
+			String[] replays = new String[arg.length - first];
+			System.arraycopy(arg, first, replays, 0, replays.length);
+			runner = new SimulationRunner(replays, dt);
+		} else if (arg.length > 1 && arg[0].equals("--stress")) {
+			int[] sizes = new int[arg.length - 2];
+			for (int ii = 0; ii < sizes.length; ii++) {
+				sizes[ii] = Integer.parseInt(arg[ii + 2]);
+			}
+			runner = new SimulationRunner(Integer.parseInt(arg[1]), new int[0]);
+			runner.setStressSizes(sizes);
+		} else {
+			int frames = arg.length > 0 ? Integer.parseInt(arg[0]) : SimulationRunner.DEFAULT_FRAMES;
+			int[] levels = new int[Math.max(0, arg.length - 1)];
+			for (int ii = 0; ii < levels.length; ii++) {
+				levels[ii] = Integer.parseInt(arg[ii + 1]);
+			}
+			runner = new SimulationRunner(frames, levels);
+		}
+		runner.setAllocationCheck(alloc);
+
+		// Must be in place before the application thread calls create()
+		Gdx.gl = Gdx.gl20 = HeadlessCanvas.createNoopGL();
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		new HeadlessApplication(runner, config);
+	}
+
+}
@@ -0,0 +1,68 @@
+package desktop;/*
+ * desktop.LevelCompiler.java
+ *
+ * Compiles the JSON levels into the binary level format (see LevelFormat).  This
+ * is run by the compileLevels task of the build, from the assets directory, and
+ * does not start an application; it only parses and writes files.  The compiled
+ * levels go to the generated assets of the build, not next to their sources.
+ */
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Json;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import entities.Level;
+import entities.LevelFormat;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The main class of the level compiler.
+ * <p>
+ * Usage: LevelCompiler output [index]
+ * <p>
+ * Every level listed in the index (levels/levels.json by default) is compiled to
+ * the same relative path under the output directory.  The type and item count
+ * that the index records for each level are checked against the level, as the
+ * game trusts the index.
+ */
+public class LevelCompiler {
+	/**
+	 * The level index, relative to the assets directory
+	 */
+	private static final String DEFAULT_INDEX = "levels/levels.json";
+
+	/**
+	 * Classic main method that all Java programmers know.
+	 *
+	 * @param arg Command line arguments
+	 * @throws IOException if a level cannot be read or written, or the index is out of date
+	 */
+	public static void main (String[] arg) throws IOException {
+		if (arg.length < 1) {
+			throw new IllegalArgumentException("Usage: LevelCompiler output [index]");
+		}
+		File output = new File(arg[0]);
+		File index = new File(arg.length > 1 ? arg[1] : DEFAULT_INDEX);
+		JsonValue levels = new JsonReader().parse(new FileHandle(index)).get("levels");
+		Json json = new Json();
+		int count = 0;
+		for (JsonValue entry : levels) {
+			String path = entry.getString("path");
+			FileHandle source = new FileHandle(new File(path));
+			Level level = json.fromJson(Level.class, source);
+			String type = entry.getString("type", null);
+			int items = entry.getInt("items", -1);
+			if (!level.getType().equals(type) || level.getItems().size() != items) {
+				throw new IOException("The entry for " + path + " in " + index + " should have type \""
+						+ level.getType() + "\" and " + level.getItems().size() + " items");
+			}
+			FileHandle target = new FileHandle(new File(output, LevelFormat.compiledPath(path)));
+			LevelFormat.write(level, LevelFormat.checksum(source.readBytes()), target);
+			count++;
+		}
+		System.out.println("Compiled " + count + " levels");
+	}
+
+}